@@ -0,0 +1,108 @@
+package acg.project.cli.parser;
+
+import acg.project.action.ActionSet;
+
+//==================================================================================================================================================================================
+/**
+ * Base class of the command parsers. The text form of parseCommand scans the
+ * statement once with CommandLexer and hands the tokens to the subclass, so
+ * every parser works from the same tokens and never re-splits the input.
+ *
+ * The parsers reject a statement with throw fail(...). The failure has no
+ * stack trace and builds its message only on demand, which keeps rejecting
+ * cheap for parse(), the result form of parseCommand.
+ */
+public abstract class A_CommandParser implements I_Command
+{
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Tokenizes a single statement and parses it.
+	 * 
+	 * @param actionset
+	 * @param command
+	 * @throws ParseException
+	 */
+	@Override
+	public void parseCommand(ActionSet actionset, String command)
+			throws ParseException
+	{
+		CommandTokens tokens = CommandLexer.tokenize(command);
+		if (tokens.size() == 0)
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"\"", command, "\" is an invalid command");
+
+		parseCommand(new ActionSetTarget(actionset), tokens);
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Parses a statement like parseCommand, but reports a rejected statement
+	 * in the result instead of throwing. A number that cannot be read is
+	 * reported as INVALID_NUMBER.
+	 * 
+	 * @param target
+	 * @param command
+	 * @return ParseResult.VALID, or why the statement was rejected
+	 */
+	@Override
+	public ParseResult parse(I_CommandTarget target, CommandTokens command)
+	{
+		try
+		{
+			parseCommand(target, command);
+			return ParseResult.VALID;
+		} catch (ParseException exception)
+		{
+			return ParseResult.rejected(command, exception);
+		} catch (NumberFormatException exception)
+		{
+			return ParseResult.rejectedNumber(command);
+		}
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Looks a keyword token up among the constants of an enum, as valueOf
+	 * would but ignoring case and without throwing.
+	 *
+	 * @return the constant token i names, or null if it names none
+	 */
+	protected static <E extends Enum<E>> E keyword(Class<E> type,
+			CommandTokens command, int token)
+	{
+		for (E constant : type.getEnumConstants())
+			if (command.is(token, constant.name()))
+				return constant;
+		return null;
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * @return the failure for throwing, with the message prefix + subject
+	 */
+	protected static ParseFailure fail(E_ParseError error, String prefix,
+			Object subject)
+	{
+		return new ParseFailure(error, -1, prefix, subject, "");
+	}
+
+	/**
+	 * @return the failure for throwing, blaming token, with the message
+	 *         prefix + subject
+	 */
+	protected static ParseFailure fail(E_ParseError error, int token,
+			String prefix, Object subject)
+	{
+		return new ParseFailure(error, token, prefix, subject, "");
+	}
+
+	/**
+	 * @return the failure for throwing, with the message prefix + subject +
+	 *         suffix
+	 */
+	protected static ParseFailure fail(E_ParseError error, String prefix,
+			Object subject, String suffix)
+	{
+		return new ParseFailure(error, -1, prefix, subject, suffix);
+	}
+}
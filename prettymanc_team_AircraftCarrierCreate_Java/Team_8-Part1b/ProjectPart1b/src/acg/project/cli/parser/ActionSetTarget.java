@@ -0,0 +1,212 @@
+package acg.project.cli.parser;
+
+import acg.architecture.datatype.Identifier;
+import acg.architecture.timing.Clock;
+import acg.project.action.ActionCreationalCreate;
+import acg.project.action.ActionCreationalDefine;
+import acg.project.action.ActionSet;
+import acg.project.action.ActionStructural;
+import acg.project.action.command.A_Command;
+import acg.project.action.command.behavioral.A_CommandBehavioral;
+import acg.project.action.command.creational.create.CommandCreationalCreateAuxiliaryTank;
+import acg.project.action.command.creational.create.CommandCreationalCreateBarrier;
+import acg.project.action.command.creational.create.CommandCreationalCreateBoomFemale;
+import acg.project.action.command.creational.create.CommandCreationalCreateBoomMale;
+import acg.project.action.command.creational.create.CommandCreationalCreateCarrier;
+import acg.project.action.command.creational.create.CommandCreationalCreateCatapult;
+import acg.project.action.command.creational.create.CommandCreationalCreateFighter;
+import acg.project.action.command.creational.create.CommandCreationalCreateOLSReceiver;
+import acg.project.action.command.creational.create.CommandCreationalCreateOLSTransmitter;
+import acg.project.action.command.creational.create.CommandCreationalCreateTailhook;
+import acg.project.action.command.creational.create.CommandCreationalCreateTanker;
+import acg.project.action.command.creational.create.CommandCreationalCreateTrap;
+import acg.project.action.command.creational.create.CommandCreationalDescribe;
+import acg.project.action.command.creational.create.CommandCreationalListAgents;
+import acg.project.action.command.creational.create.CommandCreationalUncreate;
+import acg.project.action.command.creational.define.A_CommandCreationalDefine;
+import acg.project.action.command.creational.define.CommandCreationalListTemplates;
+import acg.project.action.command.creational.define.CommandCreationalShowTemplate;
+import acg.project.action.command.creational.define.CommandCreationalUndefine;
+import acg.project.action.command.miscellaneous.A_CommandMisc;
+import acg.project.action.command.miscellaneous.CommandMiscDoSetClockRunning;
+import acg.project.action.command.structural.CommandStructuralCommit;
+import acg.project.action.command.structural.CommandStructuralPopulateCarrier;
+import acg.project.action.command.structural.CommandStructuralPopulateWorld;
+import acg.project.map.MapTemplate;
+
+//==================================================================================================================================================================================
+/**
+ * Delivers parsed commands to the action processors of an ActionSet.
+ *
+ * The processors only accept commands through typed submit overloads, so each
+ * command is matched to the overload its parser used to call directly.
+ *
+ * Every command is scheduled in the ActionSet, control commands included,
+ * and runs at its tick in the order it was submitted; an @EXIT at the end of
+ * a script thus ends the simulation after the script. Nothing here calls a
+ * synchronized method of the Clock on the submitting thread: the clock thread
+ * holds the Clock while it runs a script, and that script may be waiting for
+ * the submitter, e.g. the worker of a full SubmissionQueue. The one tick an
+ * @CLOCK RESUME forces on a paused clock is therefore run on a thread of its
+ * own.
+ *
+ * Any number of threads may submit, e.g. the worker of a SubmissionQueue and
+ * the clock thread releasing the commands of a TimerWheel; a submission never
+ * waits for anything but another one.
+ */
+public class ActionSetTarget implements I_ThreadSafeCommandTarget
+{
+	// Resumes a paused clock by forcing the tick that runs the scheduled
+	// @CLOCK RESUME, as the miscellaneous processor's own submit does
+	private static final Runnable CATCH_UP = new Runnable()
+	{
+		@Override
+		public void run()
+		{
+			Clock clock = Clock.getInstance();
+			if (!clock.isEnabled())
+				clock.forceUpdate();
+		}
+	};
+
+	private final ActionSet _actionSet;
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Constructor.
+	 *
+	 * @param actionSet
+	 *            - the action set of the simulation
+	 */
+	public ActionSetTarget(ActionSet actionSet)
+	{
+		_actionSet = actionSet;
+	}
+
+	/**
+	 * @return the action set commands are delivered to
+	 */
+	public ActionSet getActionSet()
+	{
+		return _actionSet;
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	@Override
+	public synchronized void submit(A_Command<?> command)
+	{
+		switch (E_ActionProcessor.of(command))
+		{
+			case BEHAVIORAL:
+				_actionSet.getActionBehavioral().submit(
+						(A_CommandBehavioral) command);
+				break;
+			case MISCELLANEOUS:
+				submitMisc((A_CommandMisc) command);
+				break;
+			case STRUCTURAL:
+				submitStructural(_actionSet.getActionStructural(), command);
+				break;
+			case DEFINE:
+				submitDefine(_actionSet.getActionCreationalDefine(), command);
+				break;
+			case CREATE:
+				submitCreate(_actionSet.getActionCreationalCreate(), command);
+				break;
+		}
+	}
+
+	@Override
+	public synchronized A_CommandCreationalDefine getTemplate(Identifier tid)
+	{
+		MapTemplate templates = _actionSet.getMapTemplates();
+		if (!templates.hasCommand(tid))
+			return null;
+		return templates.getCommand(tid);
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	private void submitMisc(A_CommandMisc command)
+	{
+		// Note: The processor's own overload for CommandMiscDoSetClockRunning
+		// asks the Clock on this thread; this one only schedules.
+		_actionSet.getActionMisc().submit(command);
+
+		if (command instanceof CommandMiscDoSetClockRunning
+				&& ((CommandMiscDoSetClockRunning) command).isRunning())
+		{
+			Thread thread = new Thread(CATCH_UP, "clock catch-up");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	private static void submitCreate(ActionCreationalCreate acc,
+			A_Command<?> command)
+	{
+		if (command instanceof CommandCreationalCreateFighter)
+			acc.submit((CommandCreationalCreateFighter) command);
+		else if (command instanceof CommandCreationalCreateCarrier)
+			acc.submit((CommandCreationalCreateCarrier) command);
+		else if (command instanceof CommandCreationalCreateTanker)
+			acc.submit((CommandCreationalCreateTanker) command);
+		else if (command instanceof CommandCreationalCreateTrap)
+			acc.submit((CommandCreationalCreateTrap) command);
+		else if (command instanceof CommandCreationalCreateBarrier)
+			acc.submit((CommandCreationalCreateBarrier) command);
+		else if (command instanceof CommandCreationalCreateAuxiliaryTank)
+			acc.submit((CommandCreationalCreateAuxiliaryTank) command);
+		else if (command instanceof CommandCreationalCreateCatapult)
+			acc.submit((CommandCreationalCreateCatapult) command);
+		else if (command instanceof CommandCreationalCreateOLSTransmitter)
+			acc.submit((CommandCreationalCreateOLSTransmitter) command);
+		else if (command instanceof CommandCreationalCreateOLSReceiver)
+			acc.submit((CommandCreationalCreateOLSReceiver) command);
+		else if (command instanceof CommandCreationalCreateBoomMale)
+			acc.submit((CommandCreationalCreateBoomMale) command);
+		else if (command instanceof CommandCreationalCreateBoomFemale)
+			acc.submit((CommandCreationalCreateBoomFemale) command);
+		else if (command instanceof CommandCreationalCreateTailhook)
+			acc.submit((CommandCreationalCreateTailhook) command);
+		else if (command instanceof CommandCreationalUncreate)
+			acc.submit((CommandCreationalUncreate) command);
+		else if (command instanceof CommandCreationalDescribe)
+			acc.submit((CommandCreationalDescribe) command);
+		else if (command instanceof CommandCreationalListAgents)
+			acc.submit((CommandCreationalListAgents) command);
+		else
+			throw new IllegalArgumentException("unsupported command > "
+					+ command.getClass().getName());
+	}
+
+	private static void submitDefine(ActionCreationalDefine acd,
+			A_Command<?> command)
+	{
+		// Undefine is an A_CommandCreationalDefine too, so it goes first
+		if (command instanceof CommandCreationalUndefine)
+			acd.submit((CommandCreationalUndefine) command);
+		else if (command instanceof A_CommandCreationalDefine)
+			acd.submit((A_CommandCreationalDefine) command);
+		else if (command instanceof CommandCreationalShowTemplate)
+			acd.submit((CommandCreationalShowTemplate) command);
+		else if (command instanceof CommandCreationalListTemplates)
+			acd.submit((CommandCreationalListTemplates) command);
+		else
+			throw new IllegalArgumentException("unsupported command > "
+					+ command.getClass().getName());
+	}
+
+	private static void submitStructural(ActionStructural actStruct,
+			A_Command<?> command)
+	{
+		if (command instanceof CommandStructuralPopulateWorld)
+			actStruct.submit((CommandStructuralPopulateWorld) command);
+		else if (command instanceof CommandStructuralPopulateCarrier)
+			actStruct.submit((CommandStructuralPopulateCarrier) command);
+		else if (command instanceof CommandStructuralCommit)
+			actStruct.submit((CommandStructuralCommit) command);
+		else
+			throw new IllegalArgumentException("unsupported command > "
+					+ command.getClass().getName());
+	}
+}
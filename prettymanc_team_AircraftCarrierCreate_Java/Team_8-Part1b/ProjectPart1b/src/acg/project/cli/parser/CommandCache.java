@@ -0,0 +1,413 @@
+package acg.project.cli.parser;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import acg.architecture.datatype.Identifier;
+import acg.project.action.command.A_Command;
+import acg.project.action.command.behavioral.CommandBehavioralDoAsk;
+import acg.project.action.command.behavioral.CommandBehavioralDoBarrier;
+import acg.project.action.command.behavioral.CommandBehavioralDoBoom;
+import acg.project.action.command.behavioral.CommandBehavioralDoCaptureOLS;
+import acg.project.action.command.behavioral.CommandBehavioralDoCatapult;
+import acg.project.action.command.behavioral.CommandBehavioralDoForceAll;
+import acg.project.action.command.behavioral.CommandBehavioralDoForceAltitude;
+import acg.project.action.command.behavioral.CommandBehavioralDoForceCoordinates;
+import acg.project.action.command.behavioral.CommandBehavioralDoForceHeading;
+import acg.project.action.command.behavioral.CommandBehavioralDoForceSpeed;
+import acg.project.action.command.behavioral.CommandBehavioralDoPosition;
+import acg.project.action.command.behavioral.CommandBehavioralDoSetAltitude;
+import acg.project.action.command.behavioral.CommandBehavioralDoSetHeading;
+import acg.project.action.command.behavioral.CommandBehavioralDoSetSpeed;
+import acg.project.action.command.behavioral.CommandBehavioralDoTailhook;
+import acg.project.action.command.behavioral.CommandBehavioralDoTransfer;
+import acg.project.action.command.behavioral.CommandBehavioralGetWindConditions;
+import acg.project.action.command.behavioral.CommandBehavioralSetWindDirection;
+import acg.project.action.command.behavioral.CommandBehavioralSetWindSpeed;
+import acg.project.action.command.creational.define.A_CommandCreationalDefine;
+
+//==================================================================================================================================================================================
+/**
+ * Bounded LRU cache of parsed behavioral lines, for feeds that repeat the same
+ * lines over and over (DO f1 ASK ALL, GET WIND CONDITIONS every tick).
+ *
+ * The key is the line as the lexer sees it: its tokens and statements, with
+ * the comment dropped and the keywords folded to upper case, so "do f1 ask
+ * all" and "DO f1 ASK ALL" share an entry. The agent identifiers stay as they
+ * are; they are case-sensitive.
+ *
+ * A command can only be submitted once, so the cache does not keep the
+ * command that was submitted but a prototype, and a hit submits a copy of it.
+ * copy() knows how to copy every behavioral command, from its getters and
+ * its constructor; the datatypes they hold are immutable and shared. A hit
+ * skips matching and datatype construction.
+ *
+ * Only lines whose commands copy() knows are cached; they do not depend on
+ * templates or other state at parse time. Install a cache with
+ * CommandParser.setCache().
+ */
+public final class CommandCache
+{
+	private final Map<String, A_Command<?>[]> _entries;
+
+	private long _hits;
+
+	private long _misses;
+
+	private long _evictions;
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity
+	 *            - the number of distinct lines kept
+	 */
+	public CommandCache(final int capacity)
+	{
+		if (capacity < 1)
+			throw new IllegalArgumentException("invalid capacity > " + capacity);
+
+		_entries = new LinkedHashMap<String, A_Command<?>[]>(16, 0.75f, true)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					Map.Entry<String, A_Command<?>[]> eldest)
+			{
+				if (size() <= capacity)
+					return false;
+				_evictions++;
+				return true;
+			}
+		};
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Parses a line like CommandParser.parse, from the cache where possible.
+	 *
+	 * @param target
+	 * @param line
+	 * @return ParseResult.VALID, or why the line was rejected
+	 */
+	public ParseResult parse(I_CommandTarget target, CharSequence line)
+	{
+		String key = normalize(line);
+		if (replay(target, key))
+			return ParseResult.VALID;
+
+		Capture capture = new Capture(target);
+		ParseResult result = CommandParser.parseLine(capture, line);
+		if (result.isValid())
+			store(key, capture);
+		return result;
+	}
+
+	/**
+	 * Interprets a line like CommandParser.interpret, from the cache where
+	 * possible.
+	 *
+	 * @param target
+	 * @param line
+	 * @throws ParseException
+	 */
+	public void interpret(I_CommandTarget target, CharSequence line)
+			throws ParseException
+	{
+		String key = normalize(line);
+		if (replay(target, key))
+			return;
+
+		Capture capture = new Capture(target);
+		CommandParser.interpret(capture, line);
+		store(key, capture);
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * @return the number of lines served from the cache
+	 */
+	public synchronized long getHits()
+	{
+		return _hits;
+	}
+
+	/**
+	 * @return the number of lines that had to be parsed
+	 */
+	public synchronized long getMisses()
+	{
+		return _misses;
+	}
+
+	/**
+	 * @return the number of lines dropped to make room
+	 */
+	public synchronized long getEvictions()
+	{
+		return _evictions;
+	}
+
+	/**
+	 * @return the number of lines cached
+	 */
+	public synchronized int size()
+	{
+		return _entries.size();
+	}
+
+	/**
+	 * Empties the cache. The counters are kept.
+	 */
+	public synchronized void clear()
+	{
+		_entries.clear();
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		return "hits=" + _hits + " misses=" + _misses + " evictions="
+				+ _evictions + " size=" + _entries.size();
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	private boolean replay(I_CommandTarget target, String key)
+	{
+		A_Command<?>[] prototypes;
+		synchronized (this)
+		{
+			prototypes = _entries.get(key);
+			if (prototypes == null)
+			{
+				_misses++;
+				return false;
+			}
+			_hits++;
+		}
+
+		for (A_Command<?> prototype : prototypes)
+			target.submit(copy(prototype));
+		return true;
+	}
+
+	private void store(String key, Capture capture)
+	{
+		A_Command<?>[] prototypes = capture.prototypes();
+		if (prototypes == null)
+			return;
+
+		synchronized (this)
+		{
+			_entries.put(key, prototypes);
+		}
+	}
+
+	// The statements of the line, as the lexer splits them, with their tokens
+	// one blank apart and the keywords folded to upper case the way the
+	// parsers compare them. The identifier after DO and @DO is kept as it is.
+	private static String normalize(CharSequence line)
+	{
+		StringBuilder key = new StringBuilder(line.length());
+		for (CommandTokens statement : CommandLexer.statements(line))
+		{
+			if (key.length() > 0)
+				key.append(';');
+
+			boolean agent = (statement.is(0, "DO") || statement.is(0, "@DO"));
+			for (int i = 0; i < statement.size(); i++)
+			{
+				if (i > 0)
+					key.append(' ');
+				String token = statement.get(i);
+				key.append(i == 1 && agent ? token : token.toUpperCase());
+			}
+		}
+		return key.toString();
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Copies a command that the cache can replay.
+	 *
+	 * Note: The class must match exactly. A subclass may carry state that the
+	 * copy would lose, so it is not cached.
+	 *
+	 * @param command
+	 * @return a new command equal to command, or null if commands of its class
+	 *         are not cached
+	 */
+	static A_Command<?> copy(A_Command<?> command)
+	{
+		Class<?> type = command.getClass();
+
+		if (type == CommandBehavioralDoAsk.class)
+		{
+			CommandBehavioralDoAsk ask = (CommandBehavioralDoAsk) command;
+			return new CommandBehavioralDoAsk(ask.getID_(), ask.getParameter());
+		}
+		if (type == CommandBehavioralDoBarrier.class)
+		{
+			CommandBehavioralDoBarrier barrier = (CommandBehavioralDoBarrier) command;
+			return new CommandBehavioralDoBarrier(barrier.getID_(),
+					barrier.isUp());
+		}
+		if (type == CommandBehavioralDoBoom.class)
+		{
+			CommandBehavioralDoBoom boom = (CommandBehavioralDoBoom) command;
+			return new CommandBehavioralDoBoom(boom.getID_(), boom.isExtend());
+		}
+		if (type == CommandBehavioralDoCaptureOLS.class)
+			return new CommandBehavioralDoCaptureOLS(
+					((CommandBehavioralDoCaptureOLS) command).getID_());
+		if (type == CommandBehavioralDoCatapult.class)
+		{
+			CommandBehavioralDoCatapult catapult = (CommandBehavioralDoCatapult) command;
+			return new CommandBehavioralDoCatapult(catapult.getID_(),
+					catapult.getSpeed());
+		}
+		if (type == CommandBehavioralDoForceAll.class)
+		{
+			CommandBehavioralDoForceAll force = (CommandBehavioralDoForceAll) command;
+			if (force.hasAltitude())
+				return new CommandBehavioralDoForceAll(force.getID_(),
+						force.getCoordinates(), force.getAltitude(),
+						force.getHeading(), force.getSpeed());
+			return new CommandBehavioralDoForceAll(force.getID_(),
+					force.getCoordinates(), force.getHeading(),
+					force.getSpeed());
+		}
+		if (type == CommandBehavioralDoForceAltitude.class)
+		{
+			CommandBehavioralDoForceAltitude force = (CommandBehavioralDoForceAltitude) command;
+			return new CommandBehavioralDoForceAltitude(force.getID_(),
+					force.getAltitude());
+		}
+		if (type == CommandBehavioralDoForceCoordinates.class)
+		{
+			CommandBehavioralDoForceCoordinates force = (CommandBehavioralDoForceCoordinates) command;
+			return new CommandBehavioralDoForceCoordinates(force.getID_(),
+					force.getCoordinates());
+		}
+		if (type == CommandBehavioralDoForceHeading.class)
+		{
+			CommandBehavioralDoForceHeading force = (CommandBehavioralDoForceHeading) command;
+			return new CommandBehavioralDoForceHeading(force.getID_(),
+					force.getHeading());
+		}
+		if (type == CommandBehavioralDoForceSpeed.class)
+		{
+			CommandBehavioralDoForceSpeed force = (CommandBehavioralDoForceSpeed) command;
+			return new CommandBehavioralDoForceSpeed(force.getID_(),
+					force.getSpeed());
+		}
+		if (type == CommandBehavioralDoPosition.class)
+			return new CommandBehavioralDoPosition(
+					((CommandBehavioralDoPosition) command).getID_());
+		if (type == CommandBehavioralDoSetAltitude.class)
+		{
+			CommandBehavioralDoSetAltitude set = (CommandBehavioralDoSetAltitude) command;
+			return new CommandBehavioralDoSetAltitude(set.getID_(),
+					set.getAltitude());
+		}
+		if (type == CommandBehavioralDoSetHeading.class)
+		{
+			CommandBehavioralDoSetHeading set = (CommandBehavioralDoSetHeading) command;
+			return new CommandBehavioralDoSetHeading(set.getID_(),
+					set.getHeading(), set.getDirection());
+		}
+		if (type == CommandBehavioralDoSetSpeed.class)
+		{
+			CommandBehavioralDoSetSpeed set = (CommandBehavioralDoSetSpeed) command;
+			return new CommandBehavioralDoSetSpeed(set.getID_(), set.getSpeed());
+		}
+		if (type == CommandBehavioralDoTailhook.class)
+		{
+			CommandBehavioralDoTailhook tailhook = (CommandBehavioralDoTailhook) command;
+			return new CommandBehavioralDoTailhook(tailhook.getID_(),
+					tailhook.isUp());
+		}
+		if (type == CommandBehavioralDoTransfer.class)
+		{
+			CommandBehavioralDoTransfer transfer = (CommandBehavioralDoTransfer) command;
+			return new CommandBehavioralDoTransfer(transfer.getID_(),
+					transfer.isStart());
+		}
+		if (type == CommandBehavioralGetWindConditions.class)
+			return new CommandBehavioralGetWindConditions();
+		if (type == CommandBehavioralSetWindDirection.class)
+			return new CommandBehavioralSetWindDirection(
+					((CommandBehavioralSetWindDirection) command).getHeading());
+		if (type == CommandBehavioralSetWindSpeed.class)
+			return new CommandBehavioralSetWindSpeed(
+					((CommandBehavioralSetWindSpeed) command).getSpeed());
+		return null;
+	}
+
+	/**
+	 * @param target
+	 * @return the real target if target is the capture of a line being
+	 *         parsed through the cache, else target
+	 */
+	static I_CommandTarget passedThrough(I_CommandTarget target)
+	{
+		return (target instanceof Capture ? ((Capture) target)._target
+				: target);
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Passes the commands of a line on to the real target and keeps a
+	 * prototype of each.
+	 */
+	private static final class Capture implements I_CommandTarget
+	{
+		private final I_CommandTarget _target;
+
+		private final List<A_Command<?>> _prototypes = new ArrayList<A_Command<?>>(
+				1);
+
+		private boolean _cacheable = true;
+
+		public Capture(I_CommandTarget target)
+		{
+			_target = target;
+		}
+
+		@Override
+		public void submit(A_Command<?> command)
+		{
+			// Note: An @RUN runs later, into the real target.
+			if (command instanceof CommandMiscDoRunScript)
+				command = ((CommandMiscDoRunScript) command).on(_target);
+
+			// Note: The copy is taken before the target can change the command.
+			A_Command<?> prototype = (_cacheable ? copy(command) : null);
+			_target.submit(command);
+
+			if (prototype == null)
+				_cacheable = false;
+			else
+				_prototypes.add(prototype);
+		}
+
+		@Override
+		public A_CommandCreationalDefine getTemplate(Identifier tid)
+		{
+			_cacheable = false;
+			return _target.getTemplate(tid);
+		}
+
+		// @return the prototypes, or null if the line cannot be cached
+		public A_Command<?>[] prototypes()
+		{
+			if (!_cacheable || _prototypes.isEmpty())
+				return null;
+			return _prototypes.toArray(new A_Command<?>[_prototypes.size()]);
+		}
+	}
+}
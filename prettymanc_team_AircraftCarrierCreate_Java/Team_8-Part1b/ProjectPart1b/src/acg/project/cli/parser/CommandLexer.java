@@ -0,0 +1,114 @@
+package acg.project.cli.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//==================================================================================================================================================================================
+/**
+ * Single pass scanner for command lines.
+ *
+ * A line is walked exactly once. Whitespace separates tokens, ';' separates
+ * statements and "//" starts a comment that runs to the end of the line. The
+ * result is one CommandTokens per non-empty statement, each holding offsets
+ * into the original line rather than copies of it.
+ */
+public final class CommandLexer
+{
+	private static final int INITIAL_TOKENS = 16;
+
+	// Note: No instances, the lexer keeps no state between lines.
+	private CommandLexer()
+	{
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Splits a line into its statements.
+	 *
+	 * @param line
+	 *            - the raw input line
+	 * @return the non-empty statements of the line, in order
+	 */
+	public static List<CommandTokens> statements(CharSequence line)
+	{
+		List<CommandTokens> statements = new ArrayList<CommandTokens>(1);
+		scan(line, statements, true);
+		return statements;
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Tokenizes a line that holds exactly one statement. ';' and "//" have no
+	 * special meaning here.
+	 *
+	 * @param command
+	 *            - a single statement
+	 * @return the tokens of the statement (possibly none)
+	 */
+	public static CommandTokens tokenize(CharSequence command)
+	{
+		List<CommandTokens> statements = new ArrayList<CommandTokens>(1);
+		scan(command, statements, false);
+		if (statements.isEmpty())
+			return new CommandTokens(command, new int[0], new int[0], 0);
+		return statements.get(0);
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	private static void scan(CharSequence line, List<CommandTokens> out,
+			boolean separators)
+	{
+		int length = line.length();
+		int[] starts = null;
+		int[] ends = null;
+		int count = 0;
+		int tokenStart = -1;
+
+		for (int i = 0; i <= length; i++)
+		{
+			char c = (i < length ? line.charAt(i) : ' ');
+			boolean comment = separators && c == '/' && i + 1 < length
+					&& line.charAt(i + 1) == '/';
+			boolean statementEnd = (separators && c == ';') || comment
+					|| i == length;
+
+			if (Character.isWhitespace(c) || statementEnd)
+			{
+				// close the current token
+				if (tokenStart >= 0)
+				{
+					if (starts == null)
+					{
+						starts = new int[INITIAL_TOKENS];
+						ends = new int[INITIAL_TOKENS];
+					} else if (count == starts.length)
+					{
+						int[] grown = new int[count * 2];
+						System.arraycopy(starts, 0, grown, 0, count);
+						starts = grown;
+						grown = new int[count * 2];
+						System.arraycopy(ends, 0, grown, 0, count);
+						ends = grown;
+					}
+					starts[count] = tokenStart;
+					ends[count] = i;
+					count++;
+					tokenStart = -1;
+				}
+
+				// close the current statement
+				if (statementEnd && count > 0)
+				{
+					out.add(new CommandTokens(line, starts, ends, count));
+					starts = null;
+					ends = null;
+					count = 0;
+				}
+
+				if (comment)
+					return;
+			} else if (tokenStart < 0)
+				tokenStart = i;
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package acg.project.cli.parser;
+
+import java.io.File;
+import java.io.IOException;
+
+import acg.project.action.command.miscellaneous.CommandMiscDoRun;
+
+//==================================================================================================================================================================================
+/**
+ * The command of @RUN. Like the CommandMiscDoRun it stands in for, it is
+ * scheduled by the ActionSet and only runs the script when executed at its
+ * tick, so an @WAIT before the @RUN still delays the whole script. Executing
+ * it streams the script through CommandScriptLoader into the target the
+ * commands of the script go to.
+ *
+ * Once setTimerWheel() has given the scripts a TimerWheel, each script runs
+ * into an input of its own on the wheel instead, which waits out the
+ * script's @WAITs and releases the rest at their tick to the wheel's target.
+ * A script's @WAIT then no longer holds up the commands of every other
+ * script and line, only its own.
+ *
+ * A target that only passes commands through on their way (the collector of
+ * a script, the capture of a cache) hands the command on bound to its own
+ * target with on(), so the script is not run into an object that is no
+ * longer in use by then.
+ */
+public class CommandMiscDoRunScript extends CommandMiscDoRun
+{
+	private final File _file;
+
+	private final boolean _validate;
+
+	// Optional wheel every script runs into; null for none
+	private static volatile TimerWheel _wheel;
+
+	private final I_CommandTarget _target;
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Constructor.
+	 *
+	 * @param file
+	 *            - the script
+	 * @param validate
+	 *            - true to run the script only if every line is valid
+	 * @param target
+	 *            - where the commands of the script are submitted
+	 */
+	public CommandMiscDoRunScript(File file, boolean validate,
+			I_CommandTarget target)
+	{
+		super(file.getPath());
+		_file = file;
+		_validate = validate;
+		_target = target;
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * @return the same command, running the script into target instead
+	 */
+	CommandMiscDoRunScript on(I_CommandTarget target)
+	{
+		return (target == _target ? this : new CommandMiscDoRunScript(_file,
+				_validate, target));
+	}
+
+	/**
+	 * @return true if the script is only run if every line is valid
+	 */
+	public boolean isValidate()
+	{
+		return _validate;
+	}
+
+	/**
+	 * @return where the commands of the script are submitted
+	 */
+	public I_CommandTarget getTarget()
+	{
+		return _target;
+	}
+
+	/**
+	 * Runs the scripts of every @RUN executed from now on through a wheel, or
+	 * into their targets again. The wheel is to release into the simulation
+	 * their targets would deliver to.
+	 *
+	 * @param wheel
+	 *            - the wheel, or null for none
+	 */
+	public static void setTimerWheel(TimerWheel wheel)
+	{
+		_wheel = wheel;
+	}
+
+	/**
+	 * @return the wheel the scripts run into, or null
+	 */
+	public static TimerWheel getTimerWheel()
+	{
+		return _wheel;
+	}
+
+	/**
+	 * Runs the script. Lines that do not parse are reported to System.err, as
+	 * is a script that cannot be read any more.
+	 */
+	@Override
+	public void execute()
+	{
+		try
+		{
+			TimerWheel wheel = _wheel;
+			CommandScriptLoader loader = new CommandScriptLoader(
+					wheel == null ? _target : wheel.stream());
+			if (_validate)
+				loader.loadValidated(_file);
+			else
+				loader.load(_file);
+		} catch (ParseException exception)
+		{
+			System.err.println("invalid command: " + exception.getMessage());
+		} catch (IOException exception)
+		{
+			System.err.println("command failed: " + exception);
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return getClass().getSimpleName() + "{deltaTick=" + getDeltaTick()
+				+ " filename=" + getFilename() + " validate=" + _validate
+				+ "}";
+	}
+}
@@ -3,6 +3,10 @@ package acg.project.cli.parser;
 import acg.project.action.ActionSet;
 
 /**
+ * Note: A CommandParser holds nothing but its target (and the line it was
+ * built with, if any); every call keeps its state on its own stack. One
+ * instance, e.g. new CommandParser(target), can therefore serve any number of
+ * threads at once, as long as the target accepts commands from all of them.
  * 
  * @author Samir Ouahhabi
  * 
@@ -10,8 +14,56 @@ import acg.project.action.ActionSet;
 
 public class CommandParser
 {
-	protected ActionSet _actionSet;
-	protected String _command;
+	// The parsers keep no state, so one instance of each serves every command
+	private static final I_Command TEMPLATE = new CommandParserCreationalTemplate();
+	private static final I_Command AGENTS = new CommandParserCreationalAgents();
+	private static final I_Command STRUCTURAL = new CommandParserStructural();
+	private static final I_Command MISC = new CommandParserMisc();
+	private static final I_Command BEHAVIORAL = new CommandParserBehavioral();
+
+	// Leading verb of a statement -> parser
+	private static final KeywordTable<I_Command> VERBS = new KeywordTable<I_Command>();
+
+	// Object of a LIST statement -> parser
+	private static final KeywordTable<I_Command> LISTS = new KeywordTable<I_Command>();
+
+	static
+	{
+		// templates
+		VERBS.put("define", TEMPLATE);
+		VERBS.put("undefine", TEMPLATE);
+		VERBS.put("show", TEMPLATE);
+		LISTS.put("templates", TEMPLATE);
+
+		// agents
+		VERBS.put("create", AGENTS);
+		VERBS.put("uncreate", AGENTS);
+		VERBS.put("describe", AGENTS);
+		LISTS.put("agents", AGENTS);
+
+		// structural
+		VERBS.put("populate", STRUCTURAL);
+		VERBS.put("commit", STRUCTURAL);
+
+		// misc
+		VERBS.put("@clock", MISC);
+		VERBS.put("@run", MISC);
+		VERBS.put("@follow", MISC);
+		VERBS.put("@exit", MISC);
+		VERBS.put("@wait", MISC);
+
+		// behavioral
+		VERBS.put("do", BEHAVIORAL);
+		VERBS.put("@do", BEHAVIORAL);
+		VERBS.put("get", BEHAVIORAL);
+		VERBS.put("set", BEHAVIORAL);
+	}
+
+	// Optional cache of parsed lines, shared by all parsers; null for none
+	private static volatile CommandCache _cache;
+
+	protected final I_CommandTarget _target;
+	protected final String _command;
 
 	/**
 	 * Constructor
@@ -21,7 +73,29 @@ public class CommandParser
 	 */
 	public CommandParser(ActionSet actionSet, String command)
 	{
-		_actionSet = actionSet;
+		this(new ActionSetTarget(actionSet), command);
+	}
+
+	/**
+	 * Constructor for a parser that is given its lines one call at a time,
+	 * with interpret(line) or parse(line), from any number of threads.
+	 * 
+	 * @param target
+	 */
+	public CommandParser(I_CommandTarget target)
+	{
+		this(target, null);
+	}
+
+	/**
+	 * Constructor for parsing into something other than an ActionSet.
+	 * 
+	 * @param target
+	 * @param command
+	 */
+	public CommandParser(I_CommandTarget target, String command)
+	{
+		_target = target;
 		_command = command;
 	}
 
@@ -33,86 +107,137 @@ public class CommandParser
 	 */
 	public void interpret() throws ParseException
 	{
-		// checking for null or empty command
-		if (_command.isEmpty() || _command.equals(""))
-			throw new ParseException("\"" + _command
-					+ "\" is an invalid command");
-		String[] pieces = _command.split("//");
-
-		// handling comments
-		if (pieces.length == 0 || pieces[0].equals(""))
-			return;
-
-		String command = pieces[0];
-		pieces = command.split(";");
-		for (String s : pieces)
-		{
-			transmitCommand(s);
-		}
+		if (_command == null)
+			throw new IllegalStateException("no command to interpret");
+		interpret(_command);
 	}
 
-	private void transmitCommand(String s) throws ParseException
+	/**
+	 * Interprets a line into the target of this parser and delegates the
+	 * appropriate actions for execution.
+	 * 
+	 * @param line
+	 * @throws ParseException
+	 */
+	public void interpret(CharSequence line) throws ParseException
 	{
-		String command = s.trim();
-		I_Command cmd;
-		;
-		if (!command.isEmpty() && command != null)
+		// checking for an empty command
+		if (line.length() == 0)
+			throw new ParseFailure(E_ParseError.INVALID_COMMAND, -1, "\"",
+					line, "\" is an invalid command");
+
+		CommandCache cache = _cache;
+		if (cache != null)
+			cache.interpret(_target, line);
+		else
+			interpret(_target, line);
+	}
+
+	/**
+	 * Parses a line into the target of this parser without throwing, like
+	 * parse(target, line).
+	 * 
+	 * @param line
+	 * @return ParseResult.VALID, or why the first bad statement was rejected
+	 */
+	public ParseResult parse(CharSequence line)
+	{
+		return parse(_target, line);
+	}
+
+	/**
+	 * Puts a cache in front of every parser, or removes it.
+	 * 
+	 * @param cache
+	 *            - the cache to use, or null for none
+	 */
+	public static void setCache(CommandCache cache)
+	{
+		_cache = cache;
+	}
+
+	/**
+	 * @return the cache in front of the parsers, or null
+	 */
+	public static CommandCache getCache()
+	{
+		return _cache;
+	}
+
+	/**
+	 * Parses a line into target without throwing, for high-volume input
+	 * where rejected lines are common. The statements of the line are parsed
+	 * in order up to the first one that is rejected. A blank line is valid.
+	 * 
+	 * @param target
+	 * @param line
+	 * @return ParseResult.VALID, or why the first bad statement was rejected
+	 */
+	public static ParseResult parse(I_CommandTarget target, CharSequence line)
+	{
+		CommandCache cache = _cache;
+		if (cache != null)
+			return cache.parse(target, line);
+		return parseLine(target, line);
+	}
+
+	// parse() without the cache
+	static ParseResult parseLine(I_CommandTarget target, CharSequence line)
+	{
+		for (CommandTokens command : CommandLexer.statements(line))
 		{
-			String[] pieces = command.split(" ");
-			if (pieces[0].equalsIgnoreCase("define")
-					|| pieces[0].equalsIgnoreCase("undefine")
-					|| pieces[0].equalsIgnoreCase("show"))
+			I_Command cmd;
+			try
 			{
-				// templates
-				cmd = new CommandParserCreationalTemplate();
-				cmd.parseCommand(_actionSet, command);
-			} else if (pieces[0].equalsIgnoreCase("create")
-					|| pieces[0].equalsIgnoreCase("uncreate")
-					|| pieces[0].equalsIgnoreCase("describe"))
+				cmd = parserFor(line, command);
+			} catch (ParseException exception)
 			{
-				// agents
-				cmd = new CommandParserCreationalAgents();
-				cmd.parseCommand(_actionSet, command);
-			} else if (pieces[0].equalsIgnoreCase("list"))
-			{
-				// list
-				if (pieces.length < 2)
-					throw new ParseException("\"" + _command
-							+ "\" is an invalid command");
-				if (pieces[1].equalsIgnoreCase("templates"))
-				{
-					cmd = new CommandParserCreationalTemplate();
-					cmd.parseCommand(_actionSet, command);
-				} else if (pieces[1].equalsIgnoreCase("agents"))
-				{
-					cmd = new CommandParserCreationalAgents();
-					cmd.parseCommand(_actionSet, command);
-				} else
-					throw new ParseException("\"" + _command
-							+ "\" is an invalid command");
-			} else if (pieces[0].equalsIgnoreCase("populate")
-					|| pieces[0].equalsIgnoreCase("commit"))
-			{
-				// structural
-				cmd = new CommandParserStructural();
-				cmd.parseCommand(_actionSet, command);
-			} else if (pieces[0].equalsIgnoreCase("@clock")
-					|| pieces[0].equalsIgnoreCase("@run")
-					|| pieces[0].equalsIgnoreCase("@exit")
-					|| pieces[0].equalsIgnoreCase("@wait"))
-			{
-				// misc
-				cmd = new CommandParserMisc();
-				cmd.parseCommand(_actionSet, command);
-			} else if (pieces[0].equalsIgnoreCase("do")
-					|| pieces[0].equalsIgnoreCase("@do")
-					|| pieces[0].equalsIgnoreCase("get")
-					|| pieces[0].equalsIgnoreCase("set"))
+				return ParseResult.rejected(command, exception);
+			}
+
+			if (cmd != null)
 			{
-				// behavioral
-				cmd = new CommandParserBehavioral();
-				cmd.parseCommand(_actionSet, command);
+				ParseResult result = cmd.parse(target, command);
+				if (!result.isValid())
+					return result;
 			}
 		}
+		return ParseResult.VALID;
+	}
+
+	/**
+	 * Interprets one line of any CharSequence, so that script lines need not
+	 * be copied into Strings first. Blank lines are accepted and do nothing.
+	 * 
+	 * @param target
+	 * @param line
+	 * @throws ParseException
+	 */
+	static void interpret(I_CommandTarget target, CharSequence line)
+			throws ParseException
+	{
+		// the line is scanned once; comments are dropped and ';' separates
+		// the statements
+		for (CommandTokens command : CommandLexer.statements(line))
+		{
+			I_Command cmd = parserFor(line, command);
+			if (cmd != null)
+				cmd.parseCommand(target, command);
+		}
+	}
+
+	// Unknown verbs have no parser and are ignored
+	private static I_Command parserFor(CharSequence line,
+			CommandTokens command) throws ParseException
+	{
+		if (!command.is(0, "list"))
+			return VERBS.get(command, 0);
+
+		// list is shared by templates and agents; the object decides
+		I_Command cmd = LISTS.get(command, 1);
+		if (cmd == null)
+			throw new ParseFailure(E_ParseError.INVALID_COMMAND, 1, "\"",
+					line, "\" is an invalid command");
+		return cmd;
 	}
 }
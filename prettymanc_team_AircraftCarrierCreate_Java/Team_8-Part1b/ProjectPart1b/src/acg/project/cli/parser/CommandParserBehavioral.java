@@ -1,15 +1,10 @@
 package acg.project.cli.parser;
 
-import java.util.regex.Pattern;
-
 import acg.architecture.datatype.Altitude;
 import acg.architecture.datatype.AngleNavigational;
 import acg.architecture.datatype.CoordinateWorld;
 import acg.architecture.datatype.Identifier;
-import acg.architecture.datatype.Latitude;
-import acg.architecture.datatype.Longitude;
 import acg.architecture.datatype.Speed;
-import acg.project.action.ActionSet;
 import acg.project.action.command.behavioral.CommandBehavioralDoAsk;
 import acg.project.action.command.behavioral.CommandBehavioralDoBarrier;
 import acg.project.action.command.behavioral.CommandBehavioralDoBoom;
@@ -35,45 +30,41 @@ import acg.project.action.command.behavioral.CommandBehavioralSetWindSpeed;
  * 
  */
 
-public class CommandParserBehavioral implements I_Command
+public class CommandParserBehavioral extends A_CommandParser
 {
-	protected ActionSet _actionSet;
-	protected String _command;
+	// Note: Implicit empty constructor here. The parser keeps no state, one
+	// instance is shared by all commands.
 
 	/**
 	 * 
 	 */
 	@Override
-	public void parseCommand(ActionSet actionset, String command)
+	public void parseCommand(I_CommandTarget target, CommandTokens command)
 			throws ParseException
 	{
-		_actionSet = actionset;
-		_command = command;
-		String[] line = command.split(" ");
+		CommandTokens line = command;
 
-		if (line != null && line.length >= 3)
+		if (line.size() >= 3)
 		{
-			switch (line[0].toUpperCase())
+			switch (line.get(0).toUpperCase())
 			{
 			case "DO":
-				parseBehavioralDo(line);
+				parseBehavioralDo(target, line);
 				break;
 			case "@DO":
-				parseBehavioralDoForce(line);
+				parseBehavioralDoForce(target, line);
 				break;
 			case "SET":
-				parseBehavioralSet(line);
+				parseBehavioralSet(target, line);
 				break;
 			case "GET":
-				parseBehavioralGet(line);
+				parseBehavioralGet(target, line);
 				break;
 			default:
-				throw new ParseException("\"" + _command
-					+ "\" is an invalid Behavioral command");
+				throw invalid(line);
 			}
 		} else
-			throw new ParseException("\"" + _command
-					+ "\" is an invalid Behavioral command");
+			throw invalid(line);
 	}
 
 	/**
@@ -82,15 +73,14 @@ public class CommandParserBehavioral implements I_Command
 	 * @param line
 	 * @throws ParseException
 	 */
-	private void parseBehavioralGet(String[] line) throws ParseException
+	private void parseBehavioralGet(I_CommandTarget target, CommandTokens line) throws ParseException
 	{
-		if (!line[1].equalsIgnoreCase("wind")
-				|| !line[2].equalsIgnoreCase("conditions"))
-			throw new ParseException("\"" + _command
-					+ "\" is an invalid Behavioral command");
+		if (!line.is(1, "wind")
+				|| !line.is(2, "conditions"))
+			throw invalid(line);
 
 		CommandBehavioralGetWindConditions command = new CommandBehavioralGetWindConditions();
-		_actionSet.getActionBehavioral().submit(command);
+		target.submit(command);
 	}
 
 	/**
@@ -99,33 +89,30 @@ public class CommandParserBehavioral implements I_Command
 	 * @param line
 	 * @throws ParseException
 	 */
-	private void parseBehavioralSet(String[] line) throws ParseException
+	private void parseBehavioralSet(I_CommandTarget target, CommandTokens line) throws ParseException
 	{
-		if (line.length < 4)
-			throw new ParseException("\"" + _command
-					+ "\" is an invalid Behavioral command");
-		if (line[1].equalsIgnoreCase("wind")
-				&& line[2].equalsIgnoreCase("direction"))
+		if (line.size() < 4)
+			throw invalid(line);
+		if (line.is(1, "wind")
+				&& line.is(2, "direction"))
 		{
-			int courseVal = Integer.parseInt(line[3]);
+			int courseVal = line.parseInt(3);
 			if (courseVal < 0 || courseVal > 359)
-				throw new ParseException("\"" + _command
-						+ "\" is an invalid Behavioral command");
-			AngleNavigational course = new AngleNavigational(courseVal);
+				throw invalid(line, 3);
+			AngleNavigational course = DatatypeCache.angle(courseVal);
 			CommandBehavioralSetWindDirection command = new CommandBehavioralSetWindDirection(
 					course);
-			_actionSet.getActionBehavioral().submit(command);
-		} else if (line[1].equalsIgnoreCase("wind")
-				&& line[2].equalsIgnoreCase("speed"))
+			target.submit(command);
+		} else if (line.is(1, "wind")
+				&& line.is(2, "speed"))
 		{
-			int speedVal = Integer.parseInt(line[3]);
+			int speedVal = line.parseInt(3);
 			if (speedVal < 0)
-				throw new ParseException("\"" + _command
-						+ "\" is an invalid Behavioral command");
-			Speed speed = new Speed(speedVal);
+				throw invalid(line, 3);
+			Speed speed = DatatypeCache.speed(speedVal);
 			CommandBehavioralSetWindSpeed command = new CommandBehavioralSetWindSpeed(
 					speed);
-			_actionSet.getActionBehavioral().submit(command);
+			target.submit(command);
 		}
 	}
 
@@ -135,28 +122,26 @@ public class CommandParserBehavioral implements I_Command
 	 * @param line
 	 * @throws ParseException
 	 */
-	private void parseBehavioralDoForce(String[] line) throws ParseException
+	private void parseBehavioralDoForce(I_CommandTarget target, CommandTokens line) throws ParseException
 	{
-		if (line.length < 5)
-			throw new ParseException("\"" + _command
-					+ "\" is an invalid Behavioral command");
-		switch (line[3].toUpperCase())
+		if (line.size() < 5)
+			throw invalid(line);
+		switch (line.get(3).toUpperCase())
 		{
 		case "COORDINATES":
-			parseBehavioralDoForceCoordinates(line);
+			parseBehavioralDoForceCoordinates(target, line);
 			break;
 		case "ALTITUDE":
-			parseBehavioralDoForceAltitude(line);
+			parseBehavioralDoForceAltitude(target, line);
 			break;
 		case "HEADING":
-			parseBehavioralDoForceHeading(line);
+			parseBehavioralDoForceHeading(target, line);
 			break;
 		case "SPEED":
-			parseBehavioralDoForceSpeed(line);
+			parseBehavioralDoForceSpeed(target, line);
 			break;
 		default:
-			throw new ParseException("\"" + _command
-					+ "\" is an invalid Behavioral command");
+			throw invalid(line);
 		}
 	}
 
@@ -166,134 +151,76 @@ public class CommandParserBehavioral implements I_Command
 	 * @param line
 	 * @throws ParseException
 	 */
-	private void parseBehavioralDoForceCoordinates(String[] line)
+	private void parseBehavioralDoForceCoordinates(I_CommandTarget target, CommandTokens line)
 			throws ParseException
 	{
-		if (line.length == 5 && line[3].equalsIgnoreCase("coordinates"))
+		if (line.size() == 5 && line.is(3, "coordinates"))
 		{
-			Identifier id = new Identifier(line[1]);
-			CoordinateWorld coord = parseCoordinates(line[4]);
+			Identifier id = SymbolTable.intern(line, 1);
+			CoordinateWorld coord = CoordinateScanner.scan(line, 4);
 			CommandBehavioralDoForceCoordinates command = new CommandBehavioralDoForceCoordinates(
 					id, coord);
-			_actionSet.getActionBehavioral().submit(command);
-		} else if (line.length == 9 && line[3].equalsIgnoreCase("coordinates")
-				&& line[5].equalsIgnoreCase("heading")
-				&& line[7].equalsIgnoreCase("speed"))
+			target.submit(command);
+		} else if (line.size() == 9 && line.is(3, "coordinates")
+				&& line.is(5, "heading")
+				&& line.is(7, "speed"))
 		{
-			Identifier id = new Identifier(line[1]);
-			CoordinateWorld coord = parseCoordinates(line[4]);
-			int courseVal = Integer.parseInt(line[6]);
+			Identifier id = SymbolTable.intern(line, 1);
+			CoordinateWorld coord = CoordinateScanner.scan(line, 4);
+			int courseVal = line.parseInt(6);
 			if (courseVal < 0 || courseVal > 359)
-				throw new ParseException("\"" + _command
-						+ "\" is an invalid Behavioral command");
-			AngleNavigational course = new AngleNavigational(courseVal);
-			int speedVal = Integer.parseInt(line[8]);
+				throw invalid(line, 6);
+			AngleNavigational course = DatatypeCache.angle(courseVal);
+			int speedVal = line.parseInt(8);
 			if (speedVal < 0)
-				throw new ParseException("\"" + _command
-						+ "\" is an invalid Behavioral command");
-			Speed speed = new Speed(speedVal);
+				throw invalid(line, 8);
+			Speed speed = DatatypeCache.speed(speedVal);
 			CommandBehavioralDoForceAll command = new CommandBehavioralDoForceAll(
 					id, coord, course, speed);
-			_actionSet.getActionBehavioral().submit(command);
-		} else if (line.length == 11 && line[3].equalsIgnoreCase("coordinates")
-				&& line[5].equalsIgnoreCase("altitude")
-				&& line[7].equalsIgnoreCase("heading")
-				&& line[9].equalsIgnoreCase("speed"))
+			target.submit(command);
+		} else if (line.size() == 11 && line.is(3, "coordinates")
+				&& line.is(5, "altitude")
+				&& line.is(7, "heading")
+				&& line.is(9, "speed"))
 		{
-			Identifier id = new Identifier(line[1]);
-			CoordinateWorld coord = parseCoordinates(line[4]);
-			int altitudeVal = Integer.parseInt(line[6]);
+			Identifier id = SymbolTable.intern(line, 1);
+			CoordinateWorld coord = CoordinateScanner.scan(line, 4);
+			int altitudeVal = line.parseInt(6);
 			if (altitudeVal < 0)
-				throw new ParseException("\"" + _command
-						+ "\" is an invalid Behavioral command");
-			Altitude altitude = new Altitude(altitudeVal);
-			int courseVal = Integer.parseInt(line[8]);
+				throw invalid(line, 6);
+			Altitude altitude = DatatypeCache.altitude(altitudeVal);
+			int courseVal = line.parseInt(8);
 			if (courseVal < 0 || courseVal > 359)
-				throw new ParseException("\"" + _command
-						+ "\" is an invalid Behavioral command");
-			AngleNavigational course = new AngleNavigational(courseVal);
-			int speedVal = Integer.parseInt(line[10]);
+				throw invalid(line, 8);
+			AngleNavigational course = DatatypeCache.angle(courseVal);
+			int speedVal = line.parseInt(10);
 			if (speedVal < 0)
-				throw new ParseException("\"" + _command
-						+ "\" is an invalid Behavioral command");
-			Speed speed = new Speed(speedVal);
+				throw invalid(line, 10);
+			Speed speed = DatatypeCache.speed(speedVal);
 			CommandBehavioralDoForceAll command = new CommandBehavioralDoForceAll(
 					id, coord, course, speed);
-			_actionSet.getActionBehavioral().submit(command);
+			target.submit(command);
 		} else
-			throw new ParseException("\"" + _command
-					+ "\" is an invalid Behavioral command");
+			throw invalid(line);
 	}
 
 	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
-	/**
-	 * Helper method for coordinate parsing in createTanker
-	 * 
-	 * coordinates latitude/longitude 45*30'15�/110*30'10� CoordinateWorld
-	 * degrees and minutes are integers on [0,90] and [0,60), respectively;
-	 * seconds is a double on [0,60).
-	 * 
-	 * @param command
-	 * @return a coordinateworld object parsed from the input
-	 * @throws ParseException
-	 */
-	private CoordinateWorld parseCoordinates(String command)
-			throws ParseException
-	{
-		command = command.replace("/", "");
-		command = command.trim();
-		String[] pcommand = command.split("\\*|\"|'");
-
-		String regex = "\\d*\\*\\d*'\\d*\\.?\\d*\"\\d*\\*\\d*'\\d*\\.?\\d*\"";
-		Pattern p = Pattern.compile(regex);
-		if (!p.matcher(command).matches())
-			throw new ParseException("Invalid Coordinates > " + command);
-
-		// Parse the first half for the latitude coordinates
-		int deg = Integer.parseInt(pcommand[0]);
-		int min = Integer.parseInt(pcommand[1]);
-		double sec = Double.parseDouble(pcommand[2]);
-
-		if (!(deg >= 0 && deg <= 90) || !(min >= 0 && min < 60)
-				|| !(sec >= 0 && sec < 60))
-			throw new ParseException("Invalid Latitude Coordinates >" + command);
-
-		Latitude latitude = new Latitude(deg, min, sec);
-
-		// Parse the second half for the longitude coordinates.
-		deg = Integer.parseInt(pcommand[3]);
-		min = Integer.parseInt(pcommand[4]);
-		sec = Double.parseDouble(pcommand[5]);
-
-		if (!(deg >= 0 && deg <= 180) || !(min >= 0 && min < 60)
-				|| !(sec >= 0 && sec < 60))
-			throw new ParseException("Invalid Longitude Coordinates >"
-					+ command);
-
-		Longitude longitude = new Longitude(deg, min, sec);
-
-		CoordinateWorld cw = new CoordinateWorld(latitude, longitude);
-
-		return cw;
-	}
-
 	/**
 	 * @DO�<aid>�FORCE�ALTITUDE�<altitude>
 	 * @param line
 	 * @throws ParseException
 	 */
-	private void parseBehavioralDoForceAltitude(String[] line)
+	private void parseBehavioralDoForceAltitude(I_CommandTarget target, CommandTokens line)
 			throws ParseException
 	{
-		Identifier id = new Identifier(line[1]);
-		int altitudeVal = Integer.parseInt(line[4]);
+		Identifier id = SymbolTable.intern(line, 1);
+		int altitudeVal = line.parseInt(4);
 		if (altitudeVal < 0)
-			throw new ParseException("\"" + _command
-					+ "\" is an invalid Behavioral command");
-		Altitude altitude = new Altitude(altitudeVal);
+			throw invalid(line, 4);
+		Altitude altitude = DatatypeCache.altitude(altitudeVal);
 		CommandBehavioralDoForceAltitude command = new CommandBehavioralDoForceAltitude(
 				id, altitude);
-		_actionSet.getActionBehavioral().submit(command);
+		target.submit(command);
 	}
 
 	/**
@@ -301,18 +228,17 @@ public class CommandParserBehavioral implements I_Command
 	 * @param line
 	 * @throws ParseException
 	 */
-	private void parseBehavioralDoForceHeading(String[] line)
+	private void parseBehavioralDoForceHeading(I_CommandTarget target, CommandTokens line)
 			throws ParseException
 	{
-		Identifier id = new Identifier(line[1]);
-		int courseVal = Integer.parseInt(line[4]);
+		Identifier id = SymbolTable.intern(line, 1);
+		int courseVal = line.parseInt(4);
 		if (courseVal < 0 || courseVal > 359)
-			throw new ParseException("\"" + _command
-					+ "\" is an invalid Behavioral command");
-		AngleNavigational course = new AngleNavigational(courseVal);
+			throw invalid(line, 4);
+		AngleNavigational course = DatatypeCache.angle(courseVal);
 		CommandBehavioralDoForceHeading command = new CommandBehavioralDoForceHeading(
 				id, course);
-		_actionSet.getActionBehavioral().submit(command);
+		target.submit(command);
 	}
 
 	/**
@@ -320,18 +246,17 @@ public class CommandParserBehavioral implements I_Command
 	 * @param line
 	 * @throws ParseException
 	 */
-	private void parseBehavioralDoForceSpeed(String[] line)
+	private void parseBehavioralDoForceSpeed(I_CommandTarget target, CommandTokens line)
 			throws ParseException
 	{
-		Identifier id = new Identifier(line[1]);
-		int speedVal = Integer.parseInt(line[4]);
+		Identifier id = SymbolTable.intern(line, 1);
+		int speedVal = line.parseInt(4);
 		if (speedVal < 0)
-			throw new ParseException("\"" + _command
-					+ "\" is an invalid Behavioral command");
-		Speed speed = new Speed(speedVal);
+			throw invalid(line, 4);
+		Speed speed = DatatypeCache.speed(speedVal);
 		CommandBehavioralDoForceSpeed command = new CommandBehavioralDoForceSpeed(
 				id, speed);
-		_actionSet.getActionBehavioral().submit(command);
+		target.submit(command);
 	}
 
 	/**
@@ -339,40 +264,39 @@ public class CommandParserBehavioral implements I_Command
 	 * @param line
 	 * @throws ParseException
 	 */
-	private void parseBehavioralDo(String[] line) throws ParseException
+	private void parseBehavioralDo(I_CommandTarget target, CommandTokens line) throws ParseException
 	{
-		switch (line[2].toUpperCase())
+		switch (line.get(2).toUpperCase())
 		{
 		case "ASK":
-			parseBehavioralDoAsk(line);
+			parseBehavioralDoAsk(target, line);
 			break;
 		case "POSITION":
-			parseBehavioralDoPosition(line);
+			parseBehavioralDoPosition(target, line);
 			break;
 		case "BARRIER":
-			parseBehavioralDoBarrier(line);
+			parseBehavioralDoBarrier(target, line);
 			break;
 		case "CATAPULT":
-			parseBehavioralDoCatapult(line);
+			parseBehavioralDoCatapult(target, line);
 			break;
 		case "SET":
-			parseBehavioralDoSet(line);
+			parseBehavioralDoSet(target, line);
 			break;
 		case "TAILHOOK":
-			parseBehavioralDoTailhook(line);
+			parseBehavioralDoTailhook(target, line);
 			break;
 		case "CAPTURE":
-			parseBehavioralDoCapture(line);
+			parseBehavioralDoCapture(target, line);
 			break;
 		case "BOOM":
-			parseBehavioralDoBoom(line);
+			parseBehavioralDoBoom(target, line);
 			break;
 		case "TRANSFER":
-			parseBehavioralDoTransfer(line);
+			parseBehavioralDoTransfer(target, line);
 			break;
 		default:
-			throw new ParseException("\"" + _command
-					+ "\" is an invalid Behavioral command");
+			throw invalid(line);
 		}
 	}
 
@@ -382,16 +306,18 @@ public class CommandParserBehavioral implements I_Command
 	 * @param line
 	 * @throws ParseException
 	 */
-	private void parseBehavioralDoAsk(String[] line) throws ParseException
+	private void parseBehavioralDoAsk(I_CommandTarget target, CommandTokens line) throws ParseException
 	{
-		if (line.length < 4)
-			throw new ParseException("\"" + _command
-					+ "\" is an invalid Behavioral command");
-		Identifier id = new Identifier(line[1]);
+		if (line.size() < 4)
+			throw invalid(line);
+		CommandBehavioralDoAsk.E_Parameter parameter = keyword(
+				CommandBehavioralDoAsk.E_Parameter.class, line, 3);
+		if (parameter == null)
+			throw invalid(line, 3);
+		Identifier id = SymbolTable.intern(line, 1);
 		CommandBehavioralDoAsk command = new CommandBehavioralDoAsk(id,
-				CommandBehavioralDoAsk.E_Parameter.valueOf(line[3]
-						.toUpperCase()));
-		_actionSet.getActionBehavioral().submit(command);
+				parameter);
+		target.submit(command);
 	}
 
 	/**
@@ -399,12 +325,12 @@ public class CommandParserBehavioral implements I_Command
 	 * 
 	 * @param line
 	 */
-	private void parseBehavioralDoPosition(String[] line)
+	private void parseBehavioralDoPosition(I_CommandTarget target, CommandTokens line)
 	{
-		Identifier id = new Identifier(line[1]);
+		Identifier id = SymbolTable.intern(line, 1);
 		CommandBehavioralDoPosition command = new CommandBehavioralDoPosition(
 				id);
-		_actionSet.getActionBehavioral().submit(command);
+		target.submit(command);
 	}
 
 	/**
@@ -412,15 +338,14 @@ public class CommandParserBehavioral implements I_Command
 	 * 
 	 * @param line
 	 */
-	private void parseBehavioralDoBarrier(String[] line) throws ParseException
+	private void parseBehavioralDoBarrier(I_CommandTarget target, CommandTokens line) throws ParseException
 	{
-		if (line.length < 4)
-			throw new ParseException("\"" + _command
-					+ "\" is an invalid Behavioral command");
-		Identifier id = new Identifier(line[1]);
+		if (line.size() < 4)
+			throw invalid(line);
+		Identifier id = SymbolTable.intern(line, 1);
 		CommandBehavioralDoBarrier command = new CommandBehavioralDoBarrier(id,
-				line[3].equalsIgnoreCase("UP"));
-		_actionSet.getActionBehavioral().submit(command);
+				line.is(3, "UP"));
+		target.submit(command);
 	}
 
 	/**
@@ -428,20 +353,18 @@ public class CommandParserBehavioral implements I_Command
 	 * 
 	 * @param line
 	 */
-	private void parseBehavioralDoCatapult(String[] line) throws ParseException
+	private void parseBehavioralDoCatapult(I_CommandTarget target, CommandTokens line) throws ParseException
 	{
-		if (line.length < 7)
-			throw new ParseException("\"" + _command
-					+ "\" is an invalid Behavioral command");
-		Identifier id = new Identifier(line[1]);
-		int speedVal = Integer.parseInt(line[6]);
+		if (line.size() < 7)
+			throw invalid(line);
+		Identifier id = SymbolTable.intern(line, 1);
+		int speedVal = line.parseInt(6);
 		if (speedVal < 0)
-			throw new ParseException("\"" + _command
-					+ "\" is an invalid Behavioral command");
-		Speed speed = new Speed(speedVal);
+			throw invalid(line, 6);
+		Speed speed = DatatypeCache.speed(speedVal);
 		CommandBehavioralDoCatapult command = new CommandBehavioralDoCatapult(
 				id, speed);
-		_actionSet.getActionBehavioral().submit(command);
+		target.submit(command);
 	}
 
 	/**
@@ -452,52 +375,48 @@ public class CommandParserBehavioral implements I_Command
 	 * @param line
 	 * @throws ParseException
 	 */
-	private void parseBehavioralDoSet(String[] line) throws ParseException
+	private void parseBehavioralDoSet(I_CommandTarget target, CommandTokens line) throws ParseException
 	{
-		if (line.length < 5)
-			throw new ParseException("\"" + _command
-					+ "\" is an invalid Behavioral command");
-		Identifier id = new Identifier(line[1]);
-		switch (line[3].toUpperCase())
+		if (line.size() < 5)
+			throw invalid(line);
+		Identifier id = SymbolTable.intern(line, 1);
+		switch (line.get(3).toUpperCase())
 		{
 		case "SPEED":
-			int speedVal = Integer.parseInt(line[4]);
+			int speedVal = line.parseInt(4);
 			if (speedVal < 0)
-				throw new ParseException("\"" + _command
-						+ "\" is an invalid Behavioral command");
-			Speed speed = new Speed(speedVal);
+				throw invalid(line, 4);
+			Speed speed = DatatypeCache.speed(speedVal);
 			CommandBehavioralDoSetSpeed command = new CommandBehavioralDoSetSpeed(
 					id, speed);
-			_actionSet.getActionBehavioral().submit(command);
+			target.submit(command);
 			break;
 		case "ALTITUDE":
-			int altitudeVal = Integer.parseInt(line[4]);
+			int altitudeVal = line.parseInt(4);
 			if (altitudeVal < 0)
-				throw new ParseException("\"" + _command
-						+ "\" is an invalid Behavioral command");
-			Altitude altitude = new Altitude(altitudeVal);
+				throw invalid(line, 4);
+			Altitude altitude = DatatypeCache.altitude(altitudeVal);
 			CommandBehavioralDoSetAltitude command2 = new CommandBehavioralDoSetAltitude(
 					id, altitude);
-			_actionSet.getActionBehavioral().submit(command2);
+			target.submit(command2);
 			break;
 		case "HEADING":
-			if (line.length < 6)
-				throw new ParseException("\"" + _command
-						+ "\" is an invalid Behavioral command");
-			int courseVal = Integer.parseInt(line[4]);
+			if (line.size() < 6)
+				throw invalid(line);
+			int courseVal = line.parseInt(4);
 			if (courseVal < 0 || courseVal > 359)
-				throw new ParseException("\"" + _command
-						+ "\" is an invalid Behavioral command");
-			AngleNavigational course = new AngleNavigational(courseVal);
+				throw invalid(line, 4);
+			CommandBehavioralDoSetHeading.E_Direction direction = keyword(
+					CommandBehavioralDoSetHeading.E_Direction.class, line, 5);
+			if (direction == null)
+				throw invalid(line, 5);
+			AngleNavigational course = DatatypeCache.angle(courseVal);
 			CommandBehavioralDoSetHeading command3 = new CommandBehavioralDoSetHeading(
-					id, course,
-					CommandBehavioralDoSetHeading.E_Direction.valueOf(line[5]
-							.toUpperCase()));
-			_actionSet.getActionBehavioral().submit(command3);
+					id, course, direction);
+			target.submit(command3);
 			break;
 		default:
-			throw new ParseException("\"" + _command
-					+ "\" is an invalid Behavioral command");
+			throw invalid(line);
 		}
 	}
 
@@ -507,15 +426,14 @@ public class CommandParserBehavioral implements I_Command
 	 * @param line
 	 * @throws ParseException
 	 */
-	private void parseBehavioralDoTailhook(String[] line) throws ParseException
+	private void parseBehavioralDoTailhook(I_CommandTarget target, CommandTokens line) throws ParseException
 	{
-		if (line.length < 4)
-			throw new ParseException("\"" + _command
-					+ "\" is an invalid Behavioral command");
-		Identifier id = new Identifier(line[1]);
+		if (line.size() < 4)
+			throw invalid(line);
+		Identifier id = SymbolTable.intern(line, 1);
 		CommandBehavioralDoTailhook command = new CommandBehavioralDoTailhook(
-				id, line[3].equalsIgnoreCase("UP"));
-		_actionSet.getActionBehavioral().submit(command);
+				id, line.is(3, "UP"));
+		target.submit(command);
 	}
 
 	/**
@@ -524,15 +442,14 @@ public class CommandParserBehavioral implements I_Command
 	 * @param line
 	 * @throws ParseException
 	 */
-	private void parseBehavioralDoCapture(String[] line) throws ParseException
+	private void parseBehavioralDoCapture(I_CommandTarget target, CommandTokens line) throws ParseException
 	{
-		if (line.length < 4)
-			throw new ParseException("\"" + _command
-					+ "\" is an invalid Behavioral command");
-		Identifier id = new Identifier(line[1]);
+		if (line.size() < 4)
+			throw invalid(line);
+		Identifier id = SymbolTable.intern(line, 1);
 		CommandBehavioralDoCaptureOLS command = new CommandBehavioralDoCaptureOLS(
 				id);
-		_actionSet.getActionBehavioral().submit(command);
+		target.submit(command);
 	}
 
 	/**
@@ -540,15 +457,14 @@ public class CommandParserBehavioral implements I_Command
 	 * 
 	 * @param line
 	 */
-	private void parseBehavioralDoBoom(String[] line) throws ParseException
+	private void parseBehavioralDoBoom(I_CommandTarget target, CommandTokens line) throws ParseException
 	{
-		if (line.length < 4)
-			throw new ParseException("\"" + _command
-					+ "\" is an invalid Behavioral command");
-		Identifier id = new Identifier(line[1]);
+		if (line.size() < 4)
+			throw invalid(line);
+		Identifier id = SymbolTable.intern(line, 1);
 		CommandBehavioralDoBoom command = new CommandBehavioralDoBoom(id,
-				line[3].equalsIgnoreCase("EXTEND"));
-		_actionSet.getActionBehavioral().submit(command);
+				line.is(3, "EXTEND"));
+		target.submit(command);
 	}
 
 	/**
@@ -557,15 +473,27 @@ public class CommandParserBehavioral implements I_Command
 	 * @param line
 	 * @throws ParseException
 	 */
-	private void parseBehavioralDoTransfer(String[] line) throws ParseException
+	private void parseBehavioralDoTransfer(I_CommandTarget target, CommandTokens line) throws ParseException
 	{
-		if (line.length < 4)
-			throw new ParseException("\"" + _command
-					+ "\" is an invalid Behavioral command");
-		Identifier id = new Identifier(line[1]);
+		if (line.size() < 4)
+			throw invalid(line);
+		Identifier id = SymbolTable.intern(line, 1);
 		CommandBehavioralDoTransfer command = new CommandBehavioralDoTransfer(
-				id, line[3].equalsIgnoreCase("START"));
-		_actionSet.getActionBehavioral().submit(command);
+				id, line.is(3, "START"));
+		target.submit(command);
 	}
 
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	private static ParseFailure invalid(CommandTokens line)
+	{
+		return fail(E_ParseError.INVALID_COMMAND, "\"", line,
+				"\" is an invalid Behavioral command");
+	}
+
+	// the value of token is out of range
+	private static ParseFailure invalid(CommandTokens line, int token)
+	{
+		return new ParseFailure(E_ParseError.INVALID_VALUE, token, "\"", line,
+				"\" is an invalid Behavioral command");
+	}
 }
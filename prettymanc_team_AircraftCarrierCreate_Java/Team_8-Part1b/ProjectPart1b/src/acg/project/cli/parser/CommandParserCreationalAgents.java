@@ -1,11 +1,7 @@
 package acg.project.cli.parser;
 
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
-import acg.project.action.ActionSet;
-import acg.project.action.ActionCreationalCreate;
 import acg.project.action.command.ParameterAssignment;
 import acg.project.action.command.creational.create.*;
 import acg.project.action.command.creational.define.*;
@@ -13,11 +9,8 @@ import acg.architecture.datatype.Altitude;
 import acg.architecture.datatype.AngleNavigational;
 import acg.architecture.datatype.CoordinateWorld;
 import acg.architecture.datatype.Identifier;
-import acg.architecture.datatype.Latitude;
-import acg.architecture.datatype.Longitude;
 import acg.architecture.datatype.Speed;
 import acg.project.cli.parser.ParseException;
-import acg.project.map.MapTemplate;
 
 //==================================================================================================================================================================================
 /**
@@ -33,98 +26,98 @@ import acg.project.map.MapTemplate;
  * 
  */
 
-public class CommandParserCreationalAgents implements I_Command
+public class CommandParserCreationalAgents extends A_CommandParser
 {
+	/** The most fighters one CREATE FIGHTER ... COUNT line may create. */
+	public static final int MAX_COUNT = 100000;
 
-	protected ActionSet _actionSet;
-	protected String _command;
-
-	// Note: Implicit empty constructor here.
+	// Note: Implicit empty constructor here. The parser keeps no state, one
+	// instance is shared by all commands.
 
 	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
 	/**
-	 * This override method takes an Actionset and String command as its
-	 * parameter and switches on input to parse the command and create the
+	 * This override method takes a command target and the command tokens as
+	 * its parameters and switches on input to parse the command and create the
 	 * correct agent.
 	 * 
-	 * @param actionset
-	 *            - The actionset
+	 * @param target
+	 *            - Where the command is submitted
 	 * @param command
 	 *            - The input string containing the command information.
 	 * @throws ParseException
 	 */
-	public void parseCommand(ActionSet actionset, String command)
+	public void parseCommand(I_CommandTarget target, CommandTokens command)
 			throws ParseException
 	{
-		_actionSet = actionset;
-		_command = command;
-		ActionCreationalCreate acc = actionset.getActionCreationalCreate();
-
-		String[] pcommand = parseString(command);
 
-		if (pcommand[0].equalsIgnoreCase("CREATE"))
+		if (command.is(0, "CREATE"))
 		{
+			if (command.size() < 2)
+				throw fail(E_ParseError.INVALID_COMMAND,
+						"Invalid command > ", command);
 
-			switch (pcommand[1].toUpperCase())
+			switch (command.get(1).toUpperCase())
 			{
 
 			case "CARRIER":
-				CreateCarrier(command, pcommand, acc);
+				CreateCarrier(command, target);
 				break;
 			case "FIGHTER":
-				CreateFighter(command, pcommand, acc);
+				CreateFighter(command, target);
 				break;
 			case "TANKER":
-				CreateTanker(command, pcommand, acc);
+				CreateTanker(command, target);
 				break;
 			case "TRAP":
-				CreateTrap(command, pcommand, acc);
+				CreateTrap(command, target);
 				break;
 			case "BARRIER":
-				CreateBarrier(command, pcommand, acc);
+				CreateBarrier(command, target);
 				break;
 			case "AUX_TANK":
-				CreateAux_Tank(command, pcommand, acc);
+				CreateAux_Tank(command, target);
 				break;
 			case "CATAPULT":
-				CreateCatapult(command, pcommand, acc);
+				CreateCatapult(command, target);
 				break;
 			case "OLS_XMT":
-				CreateOls_XMT(command, pcommand, acc);
+				CreateOls_XMT(command, target);
 				break;
 			case "OLS_RCV":
-				CreateOls_RCV(command, pcommand, acc);
+				CreateOls_RCV(command, target);
 				break;
 			case "BOOM":
-				CreateBoom(command, pcommand, acc, actionset);
+				CreateBoom(command, target);
 				break;
 			case "TAILHOOK":
-				CreateTailHook(command, pcommand, acc);
+				CreateTailHook(command, target);
 				break;
 			default:
-				throw new ParseException("Invalid command > " + command);
+				throw fail(E_ParseError.INVALID_COMMAND,
+						"Invalid command > ", command);
 
 			} // end switch
 		}// end if
 		else
 		{
-			switch (pcommand[0].toUpperCase())
+			switch (command.get(0).toUpperCase())
 			{
 
 			case "UNCREATE":
-				Uncreate(command, pcommand, acc);
+				Uncreate(command, target);
 				break;
 
 			case "DESCRIBE":
-				Describe(command, pcommand, acc);
+				Describe(command, target);
 				break;
 
 			case "LIST":
-				ListAgents(command, pcommand, acc);
+				ListAgents(command, target);
 				break;
 
 			default:
-				throw new ParseException("Invalid command > " + command);
+				throw fail(E_ParseError.INVALID_COMMAND,
+						"Invalid command > ", command);
 			}
 		} // end else
 
@@ -143,38 +136,36 @@ public class CommandParserCreationalAgents implements I_Command
 	 * 
 	 * @throws ParseException
 	 */
-	protected void CreateCarrier(String input, String[] command,
-			ActionCreationalCreate acc) throws ParseException
+	protected void CreateCarrier(CommandTokens command,
+			I_CommandTarget target) throws ParseException
 	{
 		// I tested this regex to work and it does...thank goodness
-		String regex = "CREATE\\s+CARRIER\\s+\\w+\\s+FROM\\s+\\w+\\s+WITH\\s+CATAPULT\\s+\\w+\\s+BARRIER\\s+\\w+\\s+TRAP\\s+\\w+\\s+OLS\\s+\\w+\\s+AT\\s+"
-				+ "COORDINATES\\s+\\d*\\*\\d*'\\d*\\.?\\d*\"/\\d*\\*\\d*'\\d*\\.?\\d*\"\\s+HEADING\\s+\\d{3}\\s+SPEED\\s+\\d+\\s*";
-		Pattern p = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-
-		if (!p.matcher(input).matches())
-			throw new ParseException("Invalid Input > " + input);
+		if (!CommandPatterns.CREATE_CARRIER.matcher(command).matches())
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"Invalid Input > ", command);
 
-		Identifier carrieraid = new Identifier(command[2]);
-		Identifier carriertid = new Identifier(command[4]);
-		Identifier catapultaid = new Identifier(command[7]);
-		Identifier barrieraid = new Identifier(command[9]);
-		Identifier trapaid = new Identifier(command[11]);
-		Identifier olsaid = new Identifier(command[13]);
-		CoordinateWorld coordinates = parseCoordinates(command[16]);
+		Identifier carrieraid = SymbolTable.intern(command, 2);
+		Identifier carriertid = SymbolTable.intern(command, 4);
+		Identifier catapultaid = SymbolTable.intern(command, 7);
+		Identifier barrieraid = SymbolTable.intern(command, 9);
+		Identifier trapaid = SymbolTable.intern(command, 11);
+		Identifier olsaid = SymbolTable.intern(command, 13);
+		CoordinateWorld coordinates = CoordinateScanner.scan(command, 16);
 
-		AngleNavigational course = new AngleNavigational(Double.parseDouble(command[18]));
+		AngleNavigational course = DatatypeCache.angle(command.parseDouble(18));
 
 		int tempspeed;
-		tempspeed = Integer.parseInt(command[20]);
+		tempspeed = command.parseInt(20);
 		if (tempspeed < 0)
-			throw new ParseException("Invalid speed" + command[20]);
-		Speed speed = new Speed(tempspeed);
+			throw fail(E_ParseError.INVALID_VALUE, 20,
+					"Invalid speed", command.get(20));
+		Speed speed = DatatypeCache.speed(tempspeed);
 
 		CommandCreationalCreateCarrier cccc = new CommandCreationalCreateCarrier(
 				carrieraid, carriertid, catapultaid, barrieraid, trapaid,
 				olsaid, coordinates, course, speed);
 
-		acc.submit(cccc);
+		target.submit(cccc);
 	}
 
 	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
@@ -195,175 +186,298 @@ public class CommandParserCreationalAgents implements I_Command
 	 * 
 	 * @throws ParseException
 	 */
-	protected void CreateFighter(String input, String[] command,
-			ActionCreationalCreate acc) throws ParseException
+	protected void CreateFighter(CommandTokens command,
+			I_CommandTarget target) throws ParseException
 	{
-		// This regex has been tested!!
-		String regex = "\\s*CREATE\\s+FIGHTER\\s+\\w+\\s+FROM\\s+\\w+\\s+WITH\\s+OLS\\s+\\w+\\s+BOOM\\s+\\w+\\s+TAILHOOK\\s+\\w+\\s*"
-				+ "\\s*(TANKS(\\s+\\w+\\s*){1,})*\\s*(OVERRIDING(\\s+\\w+\\.\\w+\\s+WITH\\s+\\w+\\s*){1,})*"
-				+ "\\s*(AT\\s+COORDINATES\\s+\\d*\\*\\d*'\\d*\\.?\\d*\"/\\d*\\*\\d*'\\d*\\.?\\d*\"\\s+ALTITUDE\\s+\\d+\\s+HEADING\\s+\\d{3}\\s+SPEED\\s+\\d+)*\\s*";
-		Pattern p = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-		Matcher m = p.matcher(input);
-
-		if (!m.matches())
-			throw new ParseException("Invalid command > " + input);
-
-		Identifier fighteraid = new Identifier(command[2]);
-		Identifier fightertid = new Identifier(command[4]);
-		Identifier olsaid = new Identifier(command[7]);
-		Identifier boomaid = new Identifier(command[9]);
-		Identifier tailhookaid = new Identifier(command[11]);
-		List<Identifier> tankaids = parseTankAids(input);
-		List<ParameterAssignment> parameters = parseFighterParameters(input);
+		if (command.is(3, "COUNT"))
+		{
+			CreateFighters(command, target);
+			return;
+		}
+
+		// The command is recognized in a single left-to-right pass over the
+		// tokens. Every token is examined once, so a long or malformed line
+		// costs no more than its length.
+		int size = command.size();
+		if (size < 12 || !command.isWord(2) || !command.is(3, "FROM")
+				|| !command.isWord(4) || !command.is(5, "WITH")
+				|| !command.is(6, "OLS") || !command.isWord(7)
+				|| !command.is(8, "BOOM") || !command.isWord(9)
+				|| !command.is(10, "TAILHOOK") || !command.isWord(11))
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"Invalid command > ", command);
+
+		Identifier fighteraid = SymbolTable.intern(command, 2);
+		Identifier fightertid = SymbolTable.intern(command, 4);
+		Identifier olsaid = SymbolTable.intern(command, 7);
+		Identifier boomaid = SymbolTable.intern(command, 9);
+		Identifier tailhookaid = SymbolTable.intern(command, 11);
+		List<Identifier> tankaids = new ArrayList<Identifier>();
+		List<ParameterAssignment> parameters = new ArrayList<ParameterAssignment>();
+
+		int i = 12;
+
+		// [TANKS <aidn>+] runs until OVERRIDING, AT or the end
+		if (command.is(i, "TANKS"))
+		{
+			i++;
+			while (i < size && !command.is(i, "OVERRIDING")
+					&& !command.is(i, "AT"))
+			{
+				if (!command.isWord(i))
+					throw fail(E_ParseError.INVALID_COMMAND,
+							"Invalid tank > ", command);
+				tankaids.add(SymbolTable.intern(command, i++));
+			}
+
+			if (tankaids.isEmpty())
+				throw fail(E_ParseError.INVALID_COMMAND,
+						"Invalid command > ", command);
+		}
+
+		// [OVERRIDING (<aidm>.<argname> WITH <string>)+] runs until AT or the
+		// end
+		if (command.is(i, "OVERRIDING"))
+		{
+			i++;
+			do
+			{
+				if (i + 2 >= size || !isArgument(command, i)
+						|| !command.is(i + 1, "WITH")
+						|| !command.isWord(i + 2))
+					throw fail(E_ParseError.INVALID_COMMAND,
+							"Invalid override > ", command);
+
+				parameters.add(new ParameterAssignment(SymbolTable.intern(
+						command, i), command.get(i + 2)));
+				i += 3;
+			} while (i < size && !command.is(i, "AT"));
+		}
 
 		CommandCreationalCreateFighter cccf = null;
-		regex = "AT\\s+COORDINATES\\s+\\d*\\*\\d*'\\d*\\.?\\d*\"/\\d*\\*\\d*'\\d*\\.?\\d*\"\\s+ALTITUDE\\s+\\d+\\s+HEADING\\s+\\d{3}\\s+SPEED\\s+\\d+\\s*";
-		p = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-		m = p.matcher(input);
 
-		// Check to see if the command contains a set of coordinates, altitude,
-		// and heading
-		if (m.find())
+		if (i == size)
 		{
-			// Deal with coordinates
-			regex = "\\d*\\*\\d*'\\d*\\.?\\d*\"/\\d*\\*\\d*'\\d*\\.?\\d*\"";
-			m = Pattern.compile(regex).matcher(input);
-			m.find();
-			CoordinateWorld coordinates = parseCoordinates(m.group());
-
-			// Deal with the altutude
-			regex = "ALTITUDE\\s+\\d+";
-			m = Pattern.compile(regex, Pattern.CASE_INSENSITIVE).matcher(input);
-			m.find();
-			String[] tempSplit = parseString(m.group());
-			int height = Integer.parseInt(tempSplit[1]);
-			if (height < 0)
-				throw new ParseException("Invalid altitude > " + tempSplit[1]);
-			Altitude altitude = new Altitude(height);
-
-			// Deal with the heading
-			regex = "HEADING\\s+\\d{3}";
-			m = Pattern.compile(regex, Pattern.CASE_INSENSITIVE).matcher(input);
-			m.find();
-			tempSplit = parseString(m.group());
-			int angle = Integer.parseInt(tempSplit[1]);
-			if (angle < 0 || angle > 359.99)
-				throw new ParseException("Invalid heading > " + tempSplit[1]);
-			AngleNavigational heading = new AngleNavigational(angle);
-
-			// Now deal with speed
-			regex = "SPEED\\s+\\d+";
-			m = Pattern.compile(regex, Pattern.CASE_INSENSITIVE).matcher(input);
-			m.find();
-			tempSplit = parseString(m.group());
-			int speedint = Integer.parseInt(tempSplit[1]);
-			if (speedint < 0)
-				throw new ParseException("Invalid heading > " + tempSplit[1]);
-			Speed speed = new Speed(speedint);
+			// allocate the commandcreationalcreatefighter. No coordinates...
+			cccf = new CommandCreationalCreateFighter(fighteraid, fightertid,
+					olsaid, boomaid, tailhookaid, tankaids, parameters);
+		} else
+		{
+			// [AT COORDINATES <coordinates> ALTITUDE <altitude> HEADING
+			// <course> SPEED <speed>] must end the command
+			if (!isAirborne(command, i))
+				throw fail(E_ParseError.INVALID_COMMAND,
+						"Invalid command > ", command);
+
+			CoordinateWorld coordinates = CoordinateScanner.scan(command, i + 2);
+
+			Altitude altitude = DatatypeCache.altitude(command.parseInt(i + 4));
+
+			int angle = command.parseInt(i + 6);
+			if (angle > 359)
+				throw fail(E_ParseError.INVALID_VALUE, i + 6,
+						"Invalid heading > ", command.get(i + 6));
+			AngleNavigational heading = DatatypeCache.angle(angle);
+
+			Speed speed = DatatypeCache.speed(command.parseInt(i + 8));
 
 			// allocate the commandcreationalcreatefighter with the coordinates,
 			// altitude, heading, and speed
 			cccf = new CommandCreationalCreateFighter(fighteraid, fightertid,
 					olsaid, boomaid, tailhookaid, tankaids, parameters,
 					coordinates, altitude, heading, speed);
-		} else
-			// allocate the commandcreationalcreatefighter. No coordinates...
-			cccf = new CommandCreationalCreateFighter(fighteraid, fightertid,
-					olsaid, boomaid, tailhookaid, tankaids, parameters);
+		}
 
-		acc.submit(cccf);
+		target.submit(cccf);
 	}
 
 	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
 	/**
-	 * * 0 1 2 3 4 5 6 7 8 9 10 11 12 13 CREATE FIGHTER <aid1> FROM <tid> WITH
-	 * OLS <aid2> BOOM <aid3> TAILHOOK <aid4> [TANKS <aidn>+] 14 15 16 17 18 19
-	 * 20 21 22 23 [OVERRIDING (<aidm>.<argname> WITH <string>)+] [AT
-	 * COORDINATES <coordinates> ALTITUDE <altitude> 24 25 26 27 HEADING
-	 * <course> SPEED <speed>] This method finds any possible parameters in the
-	 * command, parses them out and adds them to a list of ParameterAssignment
-	 * type
+	 *    0     1        2       3     4   5     6     7    8     9     10     11      12      13
+	 * CREATE FIGHTER <prefix> COUNT <n> FROM <tid> WITH OLS <tid2> BOOM <tid3> TAILHOOK <tid4>
+	 *  [TANKS <tidn>+] [AT COORDINATES <coordinates> ALTITUDE <altitude>
+	 * HEADING <course> SPEED <speed>] Creates fighters <prefix>1 to <prefix>n
+	 * from fighter template tid. Fighter <prefix>k gets its own
+	 * optical-landing-system receiver <prefix>k_ols from template tid2, female
+	 * boom <prefix>k_boom from tid3, tailhook <prefix>k_hook from tid4 and one
+	 * auxiliary tank <prefix>k_tank1, <prefix>k_tank2, ... per tank template.
+	 * The airborne state, if given, is the same for every fighter. The line is
+	 * checked once, before anything is submitted; then the secondary agents
+	 * and the fighter are submitted for one fighter after the other. The
+	 * generated aids are not interned: they are named once, here, and
+	 * interning thousands of them would evict the names in use. This
+	 * command populates CommandCreationalCreateOLSReceiver,
+	 * CommandCreationalCreateBoomFemale, CommandCreationalCreateTailhook,
+	 * CommandCreationalCreateAuxiliaryTank and CommandCreationalCreateFighter.
 	 * 
-	 * @param command
-	 * @return the list of parameters
+	 * @throws ParseException
 	 */
-	private List<ParameterAssignment> parseFighterParameters(String command)
+	protected void CreateFighters(CommandTokens command,
+			I_CommandTarget target) throws ParseException
 	{
-		List<ParameterAssignment> paramList = new LinkedList<ParameterAssignment>();
-		String regex = "OVERRIDING(\\s+\\w+\\.\\w+\\s+WITH\\s+\\w+\\s*)+\\s*";
-		Pattern p = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-		Matcher m = p.matcher(command);
-
-		// Check to see if there are parameters even.
-		if (!m.find())
-			return paramList; // No parameters...empty list!
-
-		// Grab the parameters from the command
-		String paramString = m.group();
-
-		// for all sub-parameters in this paramString
-		regex = "\\w+\\.\\w+\\s+WITH\\s+\\w+";
-		p = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-		m = p.matcher(paramString);
-
-		String[] subParamSplit;
-		// While there are parameters still in the paramString keep pulling them
-		// out
-		// and allocating accordingly
-		while (m.find())
+		int size = command.size();
+		if (size < 14 || !command.isWord(2) || !command.is(3, "COUNT")
+				|| !command.isDigits(4) || !command.is(5, "FROM")
+				|| !command.isWord(6) || !command.is(7, "WITH")
+				|| !command.is(8, "OLS") || !command.isWord(9)
+				|| !command.is(10, "BOOM") || !command.isWord(11)
+				|| !command.is(12, "TAILHOOK") || !command.isWord(13))
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"Invalid command > ", command);
+
+		int count = (command.length(4) > 9 ? 0 : command.parseInt(4));
+		if (count < 1 || count > MAX_COUNT)
+			throw fail(E_ParseError.INVALID_VALUE, 4, "Invalid count > ",
+					command.get(4));
+
+		Identifier fightertid = SymbolTable.intern(command, 6);
+		Identifier olstid = SymbolTable.intern(command, 9);
+		Identifier boomtid = SymbolTable.intern(command, 11);
+		Identifier tailhooktid = SymbolTable.intern(command, 13);
+		List<Identifier> tanktids = new ArrayList<Identifier>();
+
+		int i = 14;
+
+		// [TANKS <tidn>+] runs until AT or the end
+		if (command.is(i, "TANKS"))
+		{
+			i++;
+			while (i < size && !command.is(i, "AT"))
+			{
+				if (!command.isWord(i))
+					throw fail(E_ParseError.INVALID_COMMAND,
+							"Invalid tank > ", command);
+				tanktids.add(SymbolTable.intern(command, i++));
+			}
+
+			if (tanktids.isEmpty())
+				throw fail(E_ParseError.INVALID_COMMAND,
+						"Invalid command > ", command);
+		}
+
+		CoordinateWorld coordinates = null;
+		Altitude altitude = null;
+		AngleNavigational heading = null;
+		Speed speed = null;
+
+		if (i < size)
 		{
-			// 0 1 2
-			// Should pull a string like this. "<aidm>.<argname> WITH <string>"
-			subParamSplit = parseString(m.group());
-			Identifier aidm = new Identifier(subParamSplit[0]);
+			if (!isAirborne(command, i))
+				throw fail(E_ParseError.INVALID_COMMAND,
+						"Invalid command > ", command);
+
+			coordinates = CoordinateScanner.scan(command, i + 2);
+			altitude = DatatypeCache.altitude(command.parseInt(i + 4));
 
-			paramList.add(new ParameterAssignment(aidm, subParamSplit[2]));
+			int angle = command.parseInt(i + 6);
+			if (angle > 359)
+				throw fail(E_ParseError.INVALID_VALUE, i + 6,
+						"Invalid heading > ", command.get(i + 6));
+			heading = DatatypeCache.angle(angle);
+
+			speed = DatatypeCache.speed(command.parseInt(i + 8));
 		}
 
-		return paramList;
+		// Note: A fighter carries the female end of a boom.
+		A_CommandCreationalDefine template = target.getTemplate(boomtid);
+		if (!(template instanceof A_CommandCreationalDefineBoom)
+				|| ((A_CommandCreationalDefineBoom) template).isMale())
+			throw fail(E_ParseError.INVALID_TEMPLATE, 11,
+					"Invalid boom template > ", command.get(11));
+
+		StringBuilder aid = new StringBuilder(command.get(2));
+		int prefix = aid.length();
+
+		for (int k = 1; k <= count; k++)
+		{
+			aid.setLength(prefix);
+			aid.append(k);
+			int length = aid.length();
+
+			Identifier fighteraid = new Identifier(aid.toString());
+			Identifier olsaid = generated(aid, length, "_ols");
+			Identifier boomaid = generated(aid, length, "_boom");
+			Identifier tailhookaid = generated(aid, length, "_hook");
+
+			target.submit(new CommandCreationalCreateOLSReceiver(olsaid,
+					olstid));
+			target.submit(new CommandCreationalCreateBoomFemale(boomaid,
+					boomtid));
+			target.submit(new CommandCreationalCreateTailhook(tailhookaid,
+					tailhooktid));
+
+			List<Identifier> tankaids = new ArrayList<Identifier>(
+					tanktids.size());
+			for (int j = 0; j < tanktids.size(); j++)
+			{
+				Identifier tankaid = generated(aid, length, "_tank" + (j + 1));
+				target.submit(new CommandCreationalCreateAuxiliaryTank(
+						tankaid, tanktids.get(j)));
+				tankaids.add(tankaid);
+			}
+
+			List<ParameterAssignment> parameters = new ArrayList<ParameterAssignment>();
+			if (coordinates == null)
+				target.submit(new CommandCreationalCreateFighter(fighteraid,
+						fightertid, olsaid, boomaid, tailhookaid, tankaids,
+						parameters));
+			else
+				target.submit(new CommandCreationalCreateFighter(fighteraid,
+						fightertid, olsaid, boomaid, tailhookaid, tankaids,
+						parameters, coordinates, altitude, heading, speed));
+		}
+	}
+
+	// @return the aid <prefix>k + suffix; aid holds <prefix>k in its first
+	// length characters
+	private static Identifier generated(StringBuilder aid, int length,
+			String suffix)
+	{
+		aid.setLength(length);
+		return new Identifier(aid.append(suffix).toString());
 	}
 
 	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
 	/**
-	 * * * 0 1 2 3 4 5 6 7 8 9 10 11 12 13 CREATE FIGHTER <aid1> FROM <tid> WITH
-	 * OLS <aid2> BOOM <aid3> TAILHOOK <aid4> [TANKS <aidn>+] 14 15 16 17 18 19
-	 * 20 21 22 23 [OVERRIDING (<aidm>.<argname> WITH <string>)+] [AT
-	 * COORDINATES <coordinates> ALTITUDE <altitude> 24 25 26 27 HEADING
-	 * <course> SPEED <speed>] This method finds any possible tank aids in the
-	 * command, parses them out stores them in a List of Identifiers.
-	 * 
-	 * @param command
-	 * @return the list of tank aids
+	 * @return true if the tokens from i on are exactly AT COORDINATES
+	 *         <coordinates> ALTITUDE <altitude> HEADING <course> SPEED <speed>
+	 *         with a three-digit course; the coordinates are checked when they
+	 *         are read
 	 */
-	private List<Identifier> parseTankAids(String command)
+	private static boolean isAirborne(CommandTokens command, int i)
 	{
-		List<Identifier> tankaidList = new LinkedList<Identifier>();
-
-		String regex = "TANKS(\\s+\\w+\\s*){1,}";
-		Pattern p = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-		Matcher m = p.matcher(command);
-
-		// No tank aids..return early
-		if (!m.find())
-			return tankaidList;
+		return command.size() - i == 9 && command.is(i, "AT")
+				&& command.is(i + 1, "COORDINATES")
+				&& command.is(i + 3, "ALTITUDE") && command.isDigits(i + 4)
+				&& command.is(i + 5, "HEADING") && command.isDigits(i + 6)
+				&& command.length(i + 6) == 3 && command.is(i + 7, "SPEED")
+				&& command.isDigits(i + 8);
+	}
 
-		String tankaidString = m.group();
-		tankaidString = tankaidString.trim();
-		regex = "\\s+\\w\\s*";
-		p = Pattern.compile(regex);
-		m = p.matcher(tankaidString);
+	/**
+	 * @return true if token i has the form <aidm>.<argname>, i.e. two words
+	 *         joined by a single dot
+	 */
+	private static boolean isArgument(CommandTokens command, int i)
+	{
+		CharSequence source = command.getSource();
+		int start = command.start(i);
+		int end = command.end(i);
+		int dot = -1;
 
-		String[] tankaidSplit;
-		// While there are tank aids keep grabbing them
-		while (m.find())
+		for (int j = start; j < end; j++)
 		{
-			// Split the substring
-			tankaidSplit = parseString(m.group());
-			// add the tank aid to the list
-			tankaidList.add(new Identifier(tankaidSplit[0]));
+			char c = source.charAt(j);
+			if (c == '.')
+			{
+				if (dot >= 0)
+					return false;
+				dot = j;
+			} else if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+					|| (c >= '0' && c <= '9') || c == '_'))
+				return false;
 		}
-
-		return tankaidList;
+		return dot > start && dot < end - 1;
 	}
 
 	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
@@ -378,94 +492,43 @@ public class CommandParserCreationalAgents implements I_Command
 	 * 
 	 * @throws ParseException
 	 */
-	protected void CreateTanker(String input, String[] command,
-			ActionCreationalCreate acc) throws ParseException
+	protected void CreateTanker(CommandTokens command,
+			I_CommandTarget target) throws ParseException
 	{
-		String regex = "\\s*CREATE\\s+TANKER\\s+\\w+\\s+FROM\\s+\\w+\\s+WITH\\s+BOOM\\s+\\w+\\s+AT\\s+"
-				+ "COORDINATES\\s+\\d*\\*\\d*'\\d*\\.?\\d*\"/\\d*\\*\\d*'\\d*\\.?\\d*\"\\s+ALTITUDE\\s+\\d+\\s+HEADING\\s+\\d{3}\\s+SPEED\\s+\\d+\\s*";
-		Pattern p = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-		if (!p.matcher(input).matches())
-			throw new ParseException("Invalid command > " + input);
+		if (!CommandPatterns.CREATE_TANKER.matcher(command).matches())
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"Invalid command > ", command);
 
 		int temp;
 
-		Identifier aid = new Identifier(command[2]);
-		Identifier tid = new Identifier(command[4]);
-		Identifier aid2 = new Identifier(command[7]);
-		CoordinateWorld coordinates = parseCoordinates(command[10]);
+		Identifier aid = SymbolTable.intern(command, 2);
+		Identifier tid = SymbolTable.intern(command, 4);
+		Identifier aid2 = SymbolTable.intern(command, 7);
+		CoordinateWorld coordinates = CoordinateScanner.scan(command, 10);
 
-		temp = Integer.parseInt(command[12]);
+		temp = command.parseInt(12);
 
 		if (temp < 0)
-			throw new ParseException("Invalid Altitude > " + input);
-		Altitude altitude = new Altitude(temp);
+			throw fail(E_ParseError.INVALID_VALUE, 12,
+					"Invalid Altitude > ", command);
+		Altitude altitude = DatatypeCache.altitude(temp);
 
-		int heading = Integer.parseInt(command[14]);
+		int heading = command.parseInt(14);
 		if (heading < 0 || heading > 359.99)
-			throw new ParseException("Invalid heading > " + command[14]);
-		AngleNavigational course = new AngleNavigational(heading);
+			throw fail(E_ParseError.INVALID_VALUE, 14,
+					"Invalid heading > ", command.get(14));
+		AngleNavigational course = DatatypeCache.angle(heading);
 
-		temp = Integer.parseInt(command[16]);
+		temp = command.parseInt(16);
 		if (temp < 0)
-			throw new ParseException("Invalid speed" + command[16]);
-		Speed speed = new Speed(temp);
+			throw fail(E_ParseError.INVALID_VALUE, 16,
+					"Invalid speed", command.get(16));
+		Speed speed = DatatypeCache.speed(temp);
 
-		acc.submit(new CommandCreationalCreateTanker(aid, tid, aid2,
+		target.submit(new CommandCreationalCreateTanker(aid, tid, aid2,
 				coordinates, altitude, course, speed));
 	}
 
-	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
-	/**
-	 * Helper method for coordinate parsing in createTanker
-	 * 
-	 * coordinates latitude/longitude 45*30'15�/110*30'10� CoordinateWorld
-	 * degrees and minutes are integers on [0,90] and [0,60), respectively;
-	 * seconds is a double on [0,60).
-	 * 
-	 * @param command
-	 * @return a coordinateworld object parsed from the input
-	 * @throws ParseException
-	 */
-	private CoordinateWorld parseCoordinates(String command)
-			throws ParseException
-	{
-		command = command.replace("/", "");
-		command = command.trim();
-		String[] pcommand = command.split("\\*|\"|'");
-
-		String regex = "\\d*\\*\\d*'\\d*\\.?\\d*\"\\d*\\*\\d*'\\d*\\.?\\d*\"";
-		Pattern p = Pattern.compile(regex);
-		if (!p.matcher(command).matches())
-			throw new ParseException("Invalid Coordinates > " + command);
-
-		// Parse the first half for the latitude coordinates
-		int deg = Integer.parseInt(pcommand[0]);
-		int min = Integer.parseInt(pcommand[1]);
-		double sec = Double.parseDouble(pcommand[2]);
-
-		if (!(deg >= 0 && deg <= 90) || !(min >= 0 && min < 60)
-				|| !(sec >= 0 && sec < 60))
-			throw new ParseException("Invalid Latitude Coordinates >" + command);
-
-		Latitude latitude = new Latitude(deg, min, sec);
-
-		// Parse the second half for the longitude coordinates.
-		deg = Integer.parseInt(pcommand[3]);
-		min = Integer.parseInt(pcommand[4]);
-		sec = Double.parseDouble(pcommand[5]);
-
-		if (!(deg >= 0 && deg <= 180) || !(min >= 0 && min < 60)
-				|| !(sec >= 0 && sec < 60))
-			throw new ParseException("Invalid Longitude Coordinates >"
-					+ command);
-
-		Longitude longitude = new Longitude(deg, min, sec);
-
-		CoordinateWorld cw = new CoordinateWorld(latitude, longitude);
-
-		return cw;
-	}
-
 	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
 	/**
 	 * CREATE TRAP <aid> FROM <tid> Creates trap agent aid from trap template
@@ -473,18 +536,17 @@ public class CommandParserCreationalAgents implements I_Command
 	 * 
 	 * @throws ParseException
 	 */
-	protected void CreateTrap(String input, String[] command,
-			ActionCreationalCreate acc) throws ParseException
+	protected void CreateTrap(CommandTokens command,
+			I_CommandTarget target) throws ParseException
 	{
-		String regex = "\\s*CREATE\\s+TRAP\\s+\\w+\\s+FROM\\s+\\w+\\s*";
-		Pattern p = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-		if (!p.matcher(input).matches())
-			throw new ParseException("Invalid command > " + input);
+		if (!CommandPatterns.CREATE_TRAP.matcher(command).matches())
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"Invalid command > ", command);
 
-		Identifier aid = new Identifier(command[2]);
-		Identifier tid = new Identifier(command[4]);
+		Identifier aid = SymbolTable.intern(command, 2);
+		Identifier tid = SymbolTable.intern(command, 4);
 
-		acc.submit(new CommandCreationalCreateTrap(aid, tid));
+		target.submit(new CommandCreationalCreateTrap(aid, tid));
 	}
 
 	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
@@ -494,18 +556,17 @@ public class CommandParserCreationalAgents implements I_Command
 	 * 
 	 * @throws ParseException
 	 */
-	protected void CreateBarrier(String input, String[] command,
-			ActionCreationalCreate acc) throws ParseException
+	protected void CreateBarrier(CommandTokens command,
+			I_CommandTarget target) throws ParseException
 	{
-		String regex = "\\s*CREATE\\s+BARRIER\\s+\\w+\\s+FROM\\s+\\w+\\s*";
-		Pattern p = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-		if (!p.matcher(input).matches())
-			throw new ParseException("Invalid command > " + input);
+		if (!CommandPatterns.CREATE_BARRIER.matcher(command).matches())
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"Invalid command > ", command);
 
-		Identifier aid = new Identifier(command[2]);
-		Identifier tid = new Identifier(command[4]);
+		Identifier aid = SymbolTable.intern(command, 2);
+		Identifier tid = SymbolTable.intern(command, 4);
 
-		acc.submit(new CommandCreationalCreateBarrier(aid, tid));
+		target.submit(new CommandCreationalCreateBarrier(aid, tid));
 	}
 
 	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
@@ -516,18 +577,17 @@ public class CommandParserCreationalAgents implements I_Command
 	 * 
 	 * @throws ParseException
 	 */
-	protected void CreateAux_Tank(String input, String[] command,
-			ActionCreationalCreate acc) throws ParseException
+	protected void CreateAux_Tank(CommandTokens command,
+			I_CommandTarget target) throws ParseException
 	{
-		String regex = "\\s*CREATE\\s+AUX_TANK\\s+\\w+\\s+FROM\\s+\\w+\\s*";
-		Pattern p = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-		if (!p.matcher(input).matches())
-			throw new ParseException("Invalid command > " + input);
+		if (!CommandPatterns.CREATE_AUX_TANK.matcher(command).matches())
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"Invalid command > ", command);
 
-		Identifier aid = new Identifier(command[2]);
-		Identifier tid = new Identifier(command[4]);
+		Identifier aid = SymbolTable.intern(command, 2);
+		Identifier tid = SymbolTable.intern(command, 4);
 
-		acc.submit(new CommandCreationalCreateAuxiliaryTank(aid, tid));
+		target.submit(new CommandCreationalCreateAuxiliaryTank(aid, tid));
 	}
 
 	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
@@ -537,18 +597,17 @@ public class CommandParserCreationalAgents implements I_Command
 	 * 
 	 * @throws ParseException
 	 */
-	protected void CreateCatapult(String input, String[] command,
-			ActionCreationalCreate acc) throws ParseException
+	protected void CreateCatapult(CommandTokens command,
+			I_CommandTarget target) throws ParseException
 	{
-		String regex = "\\s*CREATE\\s+CATAPULT\\s+\\w+\\s+FROM\\s+\\w+\\s*";
-		Pattern p = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-		if (!p.matcher(input).matches())
-			throw new ParseException("Invalid command > " + input);
+		if (!CommandPatterns.CREATE_CATAPULT.matcher(command).matches())
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"Invalid command > ", command);
 
-		Identifier aid = new Identifier(command[2]);
-		Identifier tid = new Identifier(command[4]);
+		Identifier aid = SymbolTable.intern(command, 2);
+		Identifier tid = SymbolTable.intern(command, 4);
 
-		acc.submit(new CommandCreationalCreateCatapult(aid, tid));
+		target.submit(new CommandCreationalCreateCatapult(aid, tid));
 	}
 
 	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
@@ -560,18 +619,17 @@ public class CommandParserCreationalAgents implements I_Command
 	 * 
 	 * @throws ParseException
 	 */
-	protected void CreateOls_XMT(String input, String[] command,
-			ActionCreationalCreate acc) throws ParseException
+	protected void CreateOls_XMT(CommandTokens command,
+			I_CommandTarget target) throws ParseException
 	{
-		String regex = "\\s*CREATE\\s+OLS_XMT\\s+\\w+\\s+FROM\\s+\\w+\\s*";
-		Pattern p = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-		if (!p.matcher(input).matches())
-			throw new ParseException("Invalid command > " + input);
+		if (!CommandPatterns.CREATE_OLS_XMT.matcher(command).matches())
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"Invalid command > ", command);
 
-		Identifier aid = new Identifier(command[2]);
-		Identifier tid = new Identifier(command[4]);
+		Identifier aid = SymbolTable.intern(command, 2);
+		Identifier tid = SymbolTable.intern(command, 4);
 
-		acc.submit(new CommandCreationalCreateOLSTransmitter(aid, tid));
+		target.submit(new CommandCreationalCreateOLSTransmitter(aid, tid));
 	}
 
 	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
@@ -582,18 +640,17 @@ public class CommandParserCreationalAgents implements I_Command
 	 * 
 	 * @throws ParseException
 	 */
-	protected void CreateOls_RCV(String input, String[] command,
-			ActionCreationalCreate acc) throws ParseException
+	protected void CreateOls_RCV(CommandTokens command,
+			I_CommandTarget target) throws ParseException
 	{
-		String regex = "\\s*CREATE\\s+OLS_RCV\\s+\\w+\\s+FROM\\s+\\w+\\s*";
-		Pattern p = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-		if (!p.matcher(input).matches())
-			throw new ParseException("Invalid command > " + input);
+		if (!CommandPatterns.CREATE_OLS_RCV.matcher(command).matches())
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"Invalid command > ", command);
 
-		Identifier aid = new Identifier(command[2]);
-		Identifier tid = new Identifier(command[4]);
+		Identifier aid = SymbolTable.intern(command, 2);
+		Identifier tid = SymbolTable.intern(command, 4);
 
-		acc.submit(new CommandCreationalCreateOLSReceiver(aid, tid));
+		target.submit(new CommandCreationalCreateOLSReceiver(aid, tid));
 	}
 
 	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
@@ -606,26 +663,26 @@ public class CommandParserCreationalAgents implements I_Command
 	 * @param CommandCreationalDefineBoom
 	 * @throws ParseException
 	 */
-	protected void CreateBoom(String input, String[] command,
-			ActionCreationalCreate acc, ActionSet actionset)
-			throws ParseException
+	protected void CreateBoom(CommandTokens command,
+			I_CommandTarget target) throws ParseException
 	{
-		String regex = "\\s*CREATE\\s+BOOM\\s+\\w+\\s+FROM\\s+\\w+\\s*";
-		Pattern p = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-		if (!p.matcher(input).matches())
-			throw new ParseException("Invalid command > " + input);
+		if (!CommandPatterns.CREATE_BOOM.matcher(command).matches())
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"Invalid command > ", command);
 
-		Identifier aid = new Identifier(command[2]);
-		Identifier tid = new Identifier(command[4]);
+		Identifier aid = SymbolTable.intern(command, 2);
+		Identifier tid = SymbolTable.intern(command, 4);
 
-		MapTemplate mapt = actionset.getMapTemplates();
-		// Typecasting?? I can't find any other reasonable way not too
-		A_CommandCreationalDefineBoom ccdb = (A_CommandCreationalDefineBoom) mapt.getCommand(tid);
+		A_CommandCreationalDefine template = target.getTemplate(tid);
+		if (!(template instanceof A_CommandCreationalDefineBoom))
+			throw fail(E_ParseError.INVALID_TEMPLATE,
+					"Invalid boom template > ", command);
+		A_CommandCreationalDefineBoom ccdb = (A_CommandCreationalDefineBoom) template;
 
 		if (ccdb.isMale())
-			acc.submit(new CommandCreationalCreateBoomMale(aid, tid));
+			target.submit(new CommandCreationalCreateBoomMale(aid, tid));
 		else
-			acc.submit(new CommandCreationalCreateBoomFemale(aid, tid));
+			target.submit(new CommandCreationalCreateBoomFemale(aid, tid));
 	}
 
 	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
@@ -635,18 +692,17 @@ public class CommandParserCreationalAgents implements I_Command
 	 * 
 	 * @throws ParseException
 	 */
-	protected void CreateTailHook(String input, String[] command,
-			ActionCreationalCreate acc) throws ParseException
+	protected void CreateTailHook(CommandTokens command,
+			I_CommandTarget target) throws ParseException
 	{
-		String regex = "\\s*CREATE\\s+TAILHOOK\\s+\\w+\\s+FROM\\s+\\w+\\s*";
-		Pattern p = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-		if (!p.matcher(input).matches())
-			throw new ParseException("Invalid command > " + input);
+		if (!CommandPatterns.CREATE_TAILHOOK.matcher(command).matches())
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"Invalid command > ", command);
 
-		Identifier aid = new Identifier(command[2]);
-		Identifier tid = new Identifier(command[4]);
+		Identifier aid = SymbolTable.intern(command, 2);
+		Identifier tid = SymbolTable.intern(command, 4);
 		
-		acc.submit( new CommandCreationalCreateTailhook(aid, tid));
+		target.submit( new CommandCreationalCreateTailhook(aid, tid));
 	}
 
 	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
@@ -657,17 +713,16 @@ public class CommandParserCreationalAgents implements I_Command
 	 * 
 	 * @throws ParseException
 	 */
-	protected void Uncreate(String input, String[] command,
-			ActionCreationalCreate acc) throws ParseException
+	protected void Uncreate(CommandTokens command,
+			I_CommandTarget target) throws ParseException
 	{
-		String regex = "\\s*UNCREATE\\s+\\w+\\s*";
-		Pattern p = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-		if (!p.matcher(input).matches())
-			throw new ParseException("Invalid command > " + input);
+		if (!CommandPatterns.UNCREATE.matcher(command).matches())
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"Invalid command > ", command);
 
-		Identifier aid = new Identifier(command[1]);
+		Identifier aid = SymbolTable.intern(command, 1);
 		
-		acc.submit( new CommandCreationalUncreate(aid));
+		target.submit( new CommandCreationalUncreate(aid));
 	}
 
 	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
@@ -677,16 +732,15 @@ public class CommandParserCreationalAgents implements I_Command
 	 * 
 	 * @throws ParseException
 	 */
-	protected void Describe(String input, String[] command,
-			ActionCreationalCreate acc) throws ParseException
+	protected void Describe(CommandTokens command,
+			I_CommandTarget target) throws ParseException
 	{
-		String regex = "\\s*DESCRIBE\\s+\\w+\\s*";
-		Pattern p = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-		if (!p.matcher(input).matches())
-			throw new ParseException("Invalid command > " + input);
+		if (!CommandPatterns.DESCRIBE.matcher(command).matches())
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"Invalid command > ", command);
 
-		Identifier aid = new Identifier(command[1]);
-		acc.submit( new CommandCreationalDescribe(aid));
+		Identifier aid = SymbolTable.intern(command, 1);
+		target.submit( new CommandCreationalDescribe(aid));
 	}
 
 	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
@@ -696,15 +750,14 @@ public class CommandParserCreationalAgents implements I_Command
 	 * 
 	 * @throws ParseException
 	 */
-	protected void ListAgents(String input, String[] command,
-			ActionCreationalCreate acc) throws ParseException
+	protected void ListAgents(CommandTokens command,
+			I_CommandTarget target) throws ParseException
 	{
-		String regex = "\\s*LIST\\s+AGENTS\\s*";
-		Pattern p = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-		if (!p.matcher(input).matches())
-			throw new ParseException("Invalid command >" + input);
+		if (!CommandPatterns.LIST_AGENTS.matcher(command).matches())
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"Invalid command >", command);
 
-		acc.submit( new CommandCreationalListAgents());
+		target.submit( new CommandCreationalListAgents());
 	}
 
 	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
@@ -717,26 +770,5 @@ public class CommandParserCreationalAgents implements I_Command
 	 * private String getString(String[] array){ String res = ""; for( String s:
 	 * array) res+= s.toString() + " "; return res; }
 	 */
-
-	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
-	/**
-	 * parseString returns a string which is split into an array...the string is
-	 * split by spaces any extra spaces are trimmed
-	 */
-	protected String[] parseString(String command)
-	{
-		// replace any multiple spaces with a single space
-		command = command.replaceAll("\\s{2,}", " ");
-		// Trim any whitespaces before and after.
-		command = command.trim();
-		// split on one or more spaces
-		String[] res = command.split("\\s");
-
-		// Remove any leading and trailing whitespaces
-		for (int i = 0; i < res.length; i++)
-			res[i] = res[i].trim();
-
-		return res;
-	}
 } // end CommandParserCreationalAgents
 
@@ -1,7 +1,5 @@
 package acg.project.cli.parser;
 
-import acg.project.action.ActionSet;
-import acg.project.action.ActionCreationalDefine;
 import acg.project.action.command.creational.define.*;
 import acg.project.cli.parser.ParseException;
 import acg.architecture.datatype.*;
@@ -12,24 +10,23 @@ import acg.architecture.datatype.*;
  * @author Evan Nilson
  * 
  */
-public class CommandParserCreationalTemplate implements I_Command
+public class CommandParserCreationalTemplate extends A_CommandParser
 {
-	private AngleNavigational MIN_AZIMUTH = new AngleNavigational(0);
-	private Acceleration MIN_ACCELERATION = new Acceleration(0);
-	private Altitude MIN_ALTITUDE = new Altitude(0);
-	private Distance MIN_DISTANCE = new Distance(0);
-	private AttitudePitch MIN_ELEVATION = new AttitudePitch(0);
-	private Flow MIN_FLOW = new Flow(0);
-	private Percent MIN_PERCENT = new Percent(0);
-	private Speed MIN_SPEED = new Speed(0);
-	private Weight MIN_WEIGHT = new Weight(0);
-	private Time MIN_TIME = new Time(0);
+	private static final AngleNavigational MIN_AZIMUTH = new AngleNavigational(0);
+	private static final Acceleration MIN_ACCELERATION = new Acceleration(0);
+	private static final Altitude MIN_ALTITUDE = new Altitude(0);
+	private static final Distance MIN_DISTANCE = new Distance(0);
+	private static final AttitudePitch MIN_ELEVATION = new AttitudePitch(0);
+	private static final Flow MIN_FLOW = new Flow(0);
+	private static final int MIN_PERCENT = 0;
+	private static final Speed MIN_SPEED = new Speed(0);
+	private static final Weight MIN_WEIGHT = new Weight(0);
+	private static final Time MIN_TIME = new Time(0);
 	
-	private Percent MAX_PERCENT = new Percent(100);
+	private static final int MAX_PERCENT = 100;
 	
-	protected ActionSet _actionset;
-
-	protected String _command;
+	// Note: Implicit empty constructor here. The parser keeps no state, one
+	// instance is shared by all commands.
 
 	/**
 	 * Parses a command, and passes it to the appropriate method. Implemented
@@ -37,22 +34,17 @@ public class CommandParserCreationalTemplate implements I_Command
 	 * 
 	 * @throws ParseException
 	 */
-	public void parseCommand(ActionSet actionset, String command)
+	public void parseCommand(I_CommandTarget target, CommandTokens command)
 			throws ParseException
 	{
 
-		_actionset = actionset;
-		_command = command;
-
-		String[] syntax = command.split(" ");
-
-		for (String s : syntax)
-		{
-			s.trim(); // clean up extra whitespaces
-		}// end loop
+		CommandTokens syntax = command;
+		if (syntax.size() < 2)
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"Invalid Command > ", command);
 
-		String firstCommand = syntax[0].toUpperCase();
-		String secCommand = syntax[1].toUpperCase();
+		String firstCommand = syntax.get(0).toUpperCase();
+		String secCommand = syntax.get(1).toUpperCase();
 
 		switch (firstCommand)
 		{
@@ -60,80 +52,100 @@ public class CommandParserCreationalTemplate implements I_Command
 			switch (secCommand)
 			{
 			case "TRAP":
-				defineTrap(syntax);
+				defineTrap(target, syntax);
 				break;
 			case "CATAPULT":
-				defineCatapult(syntax);
+				defineCatapult(target, syntax);
 				break;
 			case "OLS_XMT":
-				defineXMT(syntax);
+				defineXMT(target, syntax);
 				break;
 			case "OLS_RCV":
-				defineRCV(syntax);
+				defineRCV(target, syntax);
 				break;
 			case "CARRIER":
-				defineCarrier(syntax);
+				defineCarrier(target, syntax);
 				break;
 			case "FIGHTER":
-				defineFighter(syntax);
+				defineFighter(target, syntax);
 				break;
 			case "TANKER":
-				defineTanker(syntax);
+				defineTanker(target, syntax);
 				break;
 			case "BOOM":
-				String thirdCommand = syntax[2].toUpperCase();
+				if (syntax.size() < 3)
+					throw fail(E_ParseError.INVALID_COMMAND,
+							"Invalid Command > ", command);
+				String thirdCommand = syntax.get(2).toUpperCase();
 				switch (thirdCommand)
 				{
 				case "MALE":
-					defineBoomMale(syntax);
+					defineBoomMale(target, syntax);
 					break;
 				case "FEMALE":
-					defineBoomFemale(syntax);
+					defineBoomFemale(target, syntax);
 					break;
 				default:
-					throw new ParseException("Invalid Command > " + command);
+					throw fail(E_ParseError.INVALID_COMMAND,
+							"Invalid Command > ", command);
 				}// end switch
+				break;
 			case "TAILHOOK":
-				defineTailhook(syntax);
+				defineTailhook(target, syntax);
 				break;
 			case "BARRIER":
-				defineBarrier(syntax);
+				defineBarrier(target, syntax);
 				break;
 			case "AUX_TANK":
-				defineAuxTank(syntax);
+				defineAuxTank(target, syntax);
 				break;
 			default:
-				throw new ParseException("Invalid Command > " + command);
+				throw fail(E_ParseError.INVALID_COMMAND,
+						"Invalid Command > ", command);
 			}// end switch
+			break;
 		case "UNDEFINE":
-			undefine(syntax);
+			undefine(target, syntax);
 			break;
 		case "SHOW":
-			showTemplates(syntax);
+			showTemplates(target, syntax);
 			break;
 		case "LIST":
-			listTemplates();
+			listTemplates(target);
 			break;
 		default:
-			throw new ParseException("Invalid Command > " + command);
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"Invalid Command > ", command);
 		}
 
 	}// end parseCommand
 
 	/**
-	 * Parses the <origin> parameters for a command and returns a
-	 * CoordinateCartesianRelative object.
+	 * Parses the <origin> parameters for a command, token i in the form
+	 * <x>:<y>, and returns a CoordinateCartesianRelative object.
 	 * 
 	 * @return CoordinateCartesianRelative
+	 * @throws ParseException
+	 *             if token i is not two integers separated by a colon
 	 */
-	protected CoordinateCartesianRelative parseOrigin(String desc)
+	protected CoordinateCartesianRelative parseOrigin(CommandTokens desc, int i)
+			throws ParseException
 	{
-		String[] origin = desc.split(":");
-		origin[0] = origin[0].replaceAll("\\+", ""); 
-		origin[1] = origin[1].replaceAll("\\+", "");
-		int x = Integer.parseInt(origin[0]);
-		int y = Integer.parseInt(origin[1]);
-		return new CoordinateCartesianRelative(x, y);
+		String origin = desc.get(i);
+		int colon = origin.indexOf(':');
+		if (colon < 0 || origin.indexOf(':', colon + 1) >= 0)
+			throw fail(E_ParseError.INVALID_VALUE, i,
+					"Invalid Value for origin > ", origin);
+		try
+		{
+			int x = Integer.parseInt(origin.substring(0, colon));
+			int y = Integer.parseInt(origin.substring(colon + 1));
+			return new CoordinateCartesianRelative(x, y);
+		} catch (NumberFormatException exception)
+		{
+			throw fail(E_ParseError.INVALID_VALUE, i,
+					"Invalid Value for origin > ", origin);
+		}
 	}// end parseOrigin
 
 	/**
@@ -146,42 +158,49 @@ public class CommandParserCreationalTemplate implements I_Command
 	 * 
 	 * @throws ParseException
 	 */
-	protected void defineTrap(String[] desc) throws ParseException
+	protected void defineTrap(I_CommandTarget target, CommandTokens desc) throws ParseException
 	{
 		// Make sure we have the right command
-		if (desc.length != 16 || !desc[3].equalsIgnoreCase("ORIGIN")
-				|| !desc[5].equalsIgnoreCase("AZIMUTH")
-				|| !desc[7].equalsIgnoreCase("WIDTH")
-				|| !desc[9].equalsIgnoreCase("LIMIT")
-				|| !desc[10].equalsIgnoreCase("WEIGHT")
-				|| !desc[12].equalsIgnoreCase("SPEED")
-				|| !desc[14].equalsIgnoreCase("MISS"))
-			throw new ParseException("Invalid Command > " + getString(desc));
-
-		ActionCreationalDefine acd = _actionset.getActionCreationalDefine();
-
-		Identifier tid = new Identifier(desc[2]);
-		CoordinateCartesianRelative origin = parseOrigin(desc[4]);
-		AngleNavigational azimuth = new AngleNavigational(
-				Double.parseDouble(desc[6]));
+		if (desc.size() != 16 || !desc.is(3, "ORIGIN")
+				|| !desc.is(5, "AZIMUTH")
+				|| !desc.is(7, "WIDTH")
+				|| !desc.is(9, "LIMIT")
+				|| !desc.is(10, "WEIGHT")
+				|| !desc.is(12, "SPEED")
+				|| !desc.is(14, "MISS"))
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"Invalid Command > ", desc);
+
+		Identifier tid = SymbolTable.intern(desc, 2);
+		CoordinateCartesianRelative origin = parseOrigin(desc, 4);
+		AngleNavigational azimuth = DatatypeCache.angle(
+				desc.parseDouble(6));
 		if (azimuth.compareTo(MIN_AZIMUTH) < 0)
-			throw new ParseException("Invalid Value for azimuth > " + azimuth);
-		Distance width = new Distance(Double.parseDouble(desc[8]));
+			throw fail(E_ParseError.INVALID_VALUE, 6,
+					"Invalid Value for azimuth > ", azimuth);
+		Distance width = new Distance(desc.parseDouble(8));
 		if (width.compareTo(MIN_DISTANCE) < 0)
-			throw new ParseException("Invalid Value for width > " + width);
-		Weight weight = new Weight(Integer.parseInt(desc[11]));
+			throw fail(E_ParseError.INVALID_VALUE, 8,
+					"Invalid Value for width > ", width);
+		Weight weight = DatatypeCache.weight(desc.parseInt(11));
 		if (weight.compareTo(MIN_WEIGHT) < 0)
-			throw new ParseException("Invalid Value for weight > " + weight);
-		Speed speed = new Speed(Integer.parseInt(desc[13]));
+			throw fail(E_ParseError.INVALID_VALUE, 11,
+					"Invalid Value for weight > ", weight);
+		Speed speed = DatatypeCache.speed(desc.parseInt(13));
 		if (speed.compareTo(MIN_SPEED) < 0)
-			throw new ParseException("Invalid Value for speed > " + speed);
-		Percent miss = new Percent(Integer.parseInt(desc[15]));
-		if (miss.compareTo(MIN_PERCENT) < 0 || miss.compareTo(MAX_PERCENT) > 1)
-			throw new ParseException("Invalid Value for miss > " + miss);
+			throw fail(E_ParseError.INVALID_VALUE, 13,
+					"Invalid Value for speed > ", speed);
+		// Note: Percent itself refuses values outside 0..100, so the range is
+		// checked first.
+		int percent = desc.parseInt(15);
+		if (percent < MIN_PERCENT || percent > MAX_PERCENT)
+			throw fail(E_ParseError.INVALID_VALUE, 15,
+					"Invalid Value for miss > ", desc.get(15));
+		Percent miss = DatatypeCache.percent(percent);
 
 		CommandCreationalDefineTrap defTrap = new CommandCreationalDefineTrap(
 				tid, origin, azimuth, width, weight, speed, miss);
-		acd.submit(defTrap);
+		target.submit(defTrap);
 	}// end defineTrap
 
 	/**
@@ -196,43 +215,49 @@ public class CommandParserCreationalTemplate implements I_Command
 	 * 
 	 * @throws ParseException
 	 */
-	protected void defineCatapult(String[] desc) throws ParseException
+	protected void defineCatapult(I_CommandTarget target, CommandTokens desc) throws ParseException
 		{
-		if(desc.length != 18 || !desc[3].equalsIgnoreCase("ORIGIN") 
-				|| !desc[5].equalsIgnoreCase("AZIMUTH") 
-				|| !desc[7].equalsIgnoreCase("LENGTH") 
-				|| !desc[9].equalsIgnoreCase("ACCELERATION")
-				|| !desc[11].equalsIgnoreCase("LIMIT") 
-				|| !desc[12].equalsIgnoreCase("WEIGHT") 
-				|| !desc[14].equalsIgnoreCase("SPEED") 
-				|| !desc[16].equalsIgnoreCase("RESET"))
-					throw new ParseException("Invalid Command > " + getString(desc));
+		if(desc.size() != 18 || !desc.is(3, "ORIGIN") 
+				|| !desc.is(5, "AZIMUTH") 
+				|| !desc.is(7, "LENGTH") 
+				|| !desc.is(9, "ACCELERATION")
+				|| !desc.is(11, "LIMIT") 
+				|| !desc.is(12, "WEIGHT") 
+				|| !desc.is(14, "SPEED") 
+				|| !desc.is(16, "RESET"))
+					throw fail(E_ParseError.INVALID_COMMAND,
+							"Invalid Command > ", desc);
 		
-		ActionCreationalDefine acd = _actionset.getActionCreationalDefine();
 		
-		Identifier tid = new Identifier(desc[2]);
-		CoordinateCartesianRelative origin = parseOrigin(desc[4]);
-		AngleNavigational azimuth = new AngleNavigational(Double.parseDouble(desc[6]));
+		Identifier tid = SymbolTable.intern(desc, 2);
+		CoordinateCartesianRelative origin = parseOrigin(desc, 4);
+		AngleNavigational azimuth = DatatypeCache.angle(desc.parseDouble(6));
 		if(azimuth.compareTo(MIN_AZIMUTH) < 0)
-			throw new ParseException("Invalid Value for azimuth > " + azimuth);
-		Distance length = new Distance(Double.parseDouble(desc[8]));
+			throw fail(E_ParseError.INVALID_VALUE, 6,
+					"Invalid Value for azimuth > ", azimuth);
+		Distance length = new Distance(desc.parseDouble(8));
 		if(length.compareTo(MIN_DISTANCE) < 0)
-			throw new ParseException("Invalid Value for length > " + length);
-		Acceleration acc = new Acceleration(Double.parseDouble(desc[10]));
+			throw fail(E_ParseError.INVALID_VALUE, 8,
+					"Invalid Value for length > ", length);
+		Acceleration acc = new Acceleration(desc.parseDouble(10));
 		if(acc.compareTo(MIN_ACCELERATION) < 0)
-			throw new ParseException("Invalid Value for acceleration > " + acc);
-		Weight limWeight = new Weight(Integer.parseInt(desc[13]));
+			throw fail(E_ParseError.INVALID_VALUE, 10,
+					"Invalid Value for acceleration > ", acc);
+		Weight limWeight = DatatypeCache.weight(desc.parseInt(13));
 		if(limWeight.compareTo(MIN_WEIGHT) < 0)
-			throw new ParseException("Invalid Value for limit weight > " + limWeight);
-		Speed speed = new Speed(Integer.parseInt(desc[15]));
+			throw fail(E_ParseError.INVALID_VALUE, 13,
+					"Invalid Value for limit weight > ", limWeight);
+		Speed speed = DatatypeCache.speed(desc.parseInt(15));
 		if(speed.compareTo(MIN_SPEED) < 0)
-			throw new ParseException("Invalid Value for speed > " + speed);
-		Time reset = new Time(Double.parseDouble(desc[17]));
+			throw fail(E_ParseError.INVALID_VALUE, 15,
+					"Invalid Value for speed > ", speed);
+		Time reset = new Time(desc.parseDouble(17));
 		if(reset.compareTo(MIN_TIME) < 0)
-			throw new ParseException("Invalid Value for reset > " + reset);
+			throw fail(E_ParseError.INVALID_VALUE, 17,
+					"Invalid Value for reset > ", reset);
 		
 		CommandCreationalDefineCatapult defCat = new CommandCreationalDefineCatapult(tid, origin, azimuth, length, acc, limWeight, speed, reset);
-		acd.submit(defCat);
+		target.submit(defCat);
 		}//end defineCatapult
 
 	/**
@@ -246,36 +271,38 @@ public class CommandParserCreationalTemplate implements I_Command
 	 * 
 	 * @throws ParseException
 	 */
-	protected void defineXMT(String[] desc) throws ParseException
+	protected void defineXMT(I_CommandTarget target, CommandTokens desc) throws ParseException
 	{
-		if (desc.length != 13 || !desc[3].equalsIgnoreCase("ORIGIN")
-				|| !desc[5].equalsIgnoreCase("AZIMUTH")
-				|| !desc[7].equalsIgnoreCase("ELEVATION")
-				|| !desc[9].equalsIgnoreCase("RANGE")
-				|| !desc[11].equalsIgnoreCase("DIAMETER"))
-			throw new ParseException("Invalid Command > " + getString(desc));
-
-		ActionCreationalDefine acd = _actionset.getActionCreationalDefine();
-
-		Identifier tid = new Identifier(desc[2]);
-		CoordinateCartesianRelative origin = parseOrigin(desc[4]);
-		AngleNavigational azimuth = new AngleNavigational(
-				Double.parseDouble(desc[6]));
+		if (desc.size() != 13 || !desc.is(3, "ORIGIN")
+				|| !desc.is(5, "AZIMUTH")
+				|| !desc.is(7, "ELEVATION")
+				|| !desc.is(9, "RANGE")
+				|| !desc.is(11, "DIAMETER"))
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"Invalid Command > ", desc);
+
+		Identifier tid = SymbolTable.intern(desc, 2);
+		CoordinateCartesianRelative origin = parseOrigin(desc, 4);
+		AngleNavigational azimuth = DatatypeCache.angle(
+				desc.parseDouble(6));
 		if (azimuth.compareTo(MIN_AZIMUTH) < 0)
-			throw new ParseException("Invalid Value for azimuth > " + azimuth);
-		AttitudePitch elevation = new AttitudePitch(Double.parseDouble(desc[8]));
+			throw fail(E_ParseError.INVALID_VALUE, 6,
+					"Invalid Value for azimuth > ", azimuth);
+		AttitudePitch elevation = new AttitudePitch(desc.parseDouble(8));
 		if (elevation.compareTo(MIN_ELEVATION) < 0)
-			throw new ParseException("Invalid Value for elevation > "
-					+ elevation);
-		Distance range = new Distance(Double.parseDouble(desc[10]));
+			throw fail(E_ParseError.INVALID_VALUE, 8,
+					"Invalid Value for elevation > ", elevation);
+		Distance range = new Distance(desc.parseDouble(10));
 		if (range.compareTo(MIN_DISTANCE) < 0)
-			throw new ParseException("Invalid Value for range > " + range);
-		Distance diameter = new Distance(Double.parseDouble(desc[12]));
+			throw fail(E_ParseError.INVALID_VALUE, 10,
+					"Invalid Value for range > ", range);
+		Distance diameter = new Distance(desc.parseDouble(12));
 		if (diameter.compareTo(MIN_DISTANCE) < 0)
-			throw new ParseException("Invalid Value for diameter > " + diameter);
+			throw fail(E_ParseError.INVALID_VALUE, 12,
+					"Invalid Value for diameter > ", diameter);
 		CommandCreationalDefineOLSTransmitter defTrans = new CommandCreationalDefineOLSTransmitter(
 				tid, origin, azimuth, elevation, range, diameter);
-		acd.submit(defTrans);
+		target.submit(defTrans);
 	}// end defineXMT
 
 	/**
@@ -285,21 +312,21 @@ public class CommandParserCreationalTemplate implements I_Command
 	 * 
 	 * @throws ParseException
 	 */
-	protected void defineRCV(String[] desc) throws ParseException
+	protected void defineRCV(I_CommandTarget target, CommandTokens desc) throws ParseException
 	{
-		if (desc.length != 5 || !desc[3].equalsIgnoreCase("DIAMETER"))
-			throw new ParseException("Invalid Command > " + getString(desc));
+		if (desc.size() != 5 || !desc.is(3, "DIAMETER"))
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"Invalid Command > ", desc);
 
-		ActionCreationalDefine acd = _actionset.getActionCreationalDefine();
-
-		Identifier tid = new Identifier(desc[2]);
-		Distance distance = new Distance(Double.parseDouble(desc[4]));
+		Identifier tid = SymbolTable.intern(desc, 2);
+		Distance distance = new Distance(desc.parseDouble(4));
 		if (distance.compareTo(MIN_DISTANCE) < 0)
-			throw new ParseException("Invalid Value for diameter > " + distance);
+			throw fail(E_ParseError.INVALID_VALUE, 4,
+					"Invalid Value for diameter > ", distance);
 
 		CommandCreationalDefineOLSReceiver defRec = new CommandCreationalDefineOLSReceiver(
 				tid, distance);
-		acd.submit(defRec);
+		target.submit(defRec);
 	}// end defineRCV
 
 	/**
@@ -313,31 +340,35 @@ public class CommandParserCreationalTemplate implements I_Command
 	 * 
 	 * @throws ParseException
 	 */
-	protected void defineCarrier(String[] desc) throws ParseException
+	protected void defineCarrier(I_CommandTarget target, CommandTokens desc) throws ParseException
 		{
-		if(desc.length != 15 || !desc[3].equalsIgnoreCase("SPEED") || !desc[4].equalsIgnoreCase("MAX") || !desc[6].equalsIgnoreCase("DELTA") || !desc[7].equalsIgnoreCase("INCREASE")
-				|| !desc[9].equalsIgnoreCase("DECREASE") || !desc[11].equalsIgnoreCase("TURN") || !desc[13].equalsIgnoreCase("LAYOUT"))
-			throw new ParseException("Invalid Command > " + getString(desc));
+		if(desc.size() != 15 || !desc.is(3, "SPEED") || !desc.is(4, "MAX") || !desc.is(6, "DELTA") || !desc.is(7, "INCREASE")
+				|| !desc.is(9, "DECREASE") || !desc.is(11, "TURN") || !desc.is(13, "LAYOUT"))
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"Invalid Command > ", desc);
 		
-		ActionCreationalDefine acd = _actionset.getActionCreationalDefine();
 		
-		Identifier tid = new Identifier(desc[2]);
-		Speed speedMax = new Speed(Integer.parseInt(desc[5]));
+		Identifier tid = SymbolTable.intern(desc, 2);
+		Speed speedMax = DatatypeCache.speed(desc.parseInt(5));
 		if(speedMax.compareTo(MIN_SPEED) < 0)
-			throw new ParseException("Invalid Value for max speed > " + speedMax);
-		Speed deltaIncrease = new Speed(Integer.parseInt(desc[8]));
+			throw fail(E_ParseError.INVALID_VALUE, 5,
+					"Invalid Value for max speed > ", speedMax);
+		Speed deltaIncrease = DatatypeCache.speed(desc.parseInt(8));
 		if(deltaIncrease.compareTo(MIN_SPEED) < 0)
-			throw new ParseException("Invalid Value for speed delta increase > " + deltaIncrease);
-		Speed deltaDecrease = new Speed(Integer.parseInt(desc[10]));
+			throw fail(E_ParseError.INVALID_VALUE, 8,
+					"Invalid Value for speed delta increase > ", deltaIncrease);
+		Speed deltaDecrease = DatatypeCache.speed(desc.parseInt(10));
 		if(deltaDecrease.compareTo(MIN_SPEED) < 0)
-			throw new ParseException("Invalid Value for speed delta decrease > " + deltaDecrease);
-		AngleNavigational turn = new AngleNavigational(Double.parseDouble(desc[12]));
+			throw fail(E_ParseError.INVALID_VALUE, 10,
+					"Invalid Value for speed delta decrease > ", deltaDecrease);
+		AngleNavigational turn = DatatypeCache.angle(desc.parseDouble(12));
 		if(turn.compareTo(MIN_AZIMUTH) < 0)
-			throw new ParseException("Invalid Value for turn > " + turn);
-		String layout = desc[14];
+			throw fail(E_ParseError.INVALID_VALUE, 12,
+					"Invalid Value for turn > ", turn);
+		String layout = desc.get(14);
 		
 		CommandCreationalDefineCarrier defCar = new CommandCreationalDefineCarrier(tid, speedMax, deltaIncrease, deltaIncrease, turn, layout);
-		acd.submit(defCar);
+		target.submit(defCar);
 		}//end defineCarrier
 
 	/**
@@ -356,69 +387,72 @@ public class CommandParserCreationalTemplate implements I_Command
 	 * 
 	 * @throws ParseException
 	 */
-	protected void defineFighter(String[] desc) throws ParseException
+	protected void defineFighter(I_CommandTarget target, CommandTokens desc) throws ParseException
 	{
-		if (desc.length != 27 || !desc[3].equalsIgnoreCase("SPEED")
-				|| !desc[4].equalsIgnoreCase("MIN")
-				|| !desc[6].equalsIgnoreCase("MAX")
-				|| !desc[8].equalsIgnoreCase("DELTA")
-				|| !desc[9].equalsIgnoreCase("INCREASE")
-				|| !desc[11].equalsIgnoreCase("DECREASE")
-				|| !desc[13].equalsIgnoreCase("TURN")
-				|| !desc[15].equalsIgnoreCase("CLIMB")
-				|| !desc[17].equalsIgnoreCase("DESCENT")
-				|| !desc[19].equalsIgnoreCase("EMPTY")
-				|| !desc[20].equalsIgnoreCase("WEIGHT")
-				|| !desc[22].equalsIgnoreCase("FUEL")
-				|| !desc[23].equalsIgnoreCase("INITIAL")
-				|| !desc[25].equalsIgnoreCase("DELTA"))
-			throw new ParseException("Invalid Command > " + getString(desc));
-
-		ActionCreationalDefine acd = _actionset.getActionCreationalDefine();
-
-		Identifier tid = new Identifier(desc[2]);
-		Speed speedMin = new Speed(Integer.parseInt(desc[5]));
+		if (desc.size() != 27 || !desc.is(3, "SPEED")
+				|| !desc.is(4, "MIN")
+				|| !desc.is(6, "MAX")
+				|| !desc.is(8, "DELTA")
+				|| !desc.is(9, "INCREASE")
+				|| !desc.is(11, "DECREASE")
+				|| !desc.is(13, "TURN")
+				|| !desc.is(15, "CLIMB")
+				|| !desc.is(17, "DESCENT")
+				|| !desc.is(19, "EMPTY")
+				|| !desc.is(20, "WEIGHT")
+				|| !desc.is(22, "FUEL")
+				|| !desc.is(23, "INITIAL")
+				|| !desc.is(25, "DELTA"))
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"Invalid Command > ", desc);
+
+		Identifier tid = SymbolTable.intern(desc, 2);
+		Speed speedMin = DatatypeCache.speed(desc.parseInt(5));
 		if (speedMin.compareTo(MIN_SPEED) < 0)
-			throw new ParseException("Invalid Value for min speed > "
-					+ speedMin);
-		Speed speedMax = new Speed(Integer.parseInt(desc[7]));
+			throw fail(E_ParseError.INVALID_VALUE, 5,
+					"Invalid Value for min speed > ", speedMin);
+		Speed speedMax = DatatypeCache.speed(desc.parseInt(7));
 		if (speedMax.compareTo(MIN_SPEED) < 0)
-			throw new ParseException("Invalid Value for max speed > "
-					+ speedMax);
-		Speed dIncrease = new Speed(Integer.parseInt(desc[10]));
+			throw fail(E_ParseError.INVALID_VALUE, 7,
+					"Invalid Value for max speed > ", speedMax);
+		Speed dIncrease = DatatypeCache.speed(desc.parseInt(10));
 		if (dIncrease.compareTo(MIN_SPEED) < 0)
-			throw new ParseException(
-					"Invalid Value for speed delta increase > " + dIncrease);
-		Speed dDecrease = new Speed(Integer.parseInt(desc[12]));
+			throw fail(E_ParseError.INVALID_VALUE, 10,
+					"Invalid Value for speed delta increase > ", dIncrease);
+		Speed dDecrease = DatatypeCache.speed(desc.parseInt(12));
 		if (dDecrease.compareTo(MIN_SPEED) < 0)
-			throw new ParseException(
-					"Invalid Value for speed delta decrease > " + dDecrease);
-		AngleNavigational turn = new AngleNavigational(
-				Double.parseDouble(desc[14]));
+			throw fail(E_ParseError.INVALID_VALUE, 12,
+					"Invalid Value for speed delta decrease > ", dDecrease);
+		AngleNavigational turn = DatatypeCache.angle(
+				desc.parseDouble(14));
 		if (turn.compareTo(MIN_AZIMUTH) < 0)
-			throw new ParseException("Invalid Value for turn > " + turn);
-		Altitude climb = new Altitude(Double.parseDouble(desc[16]));
+			throw fail(E_ParseError.INVALID_VALUE, 14,
+					"Invalid Value for turn > ", turn);
+		Altitude climb = DatatypeCache.altitude(desc.parseDouble(16));
 		if (climb.compareTo(MIN_ALTITUDE) < 0)
-			throw new ParseException("Invalid Value for climb > " + climb);
-		Altitude descent = new Altitude(Double.parseDouble(desc[18]));
+			throw fail(E_ParseError.INVALID_VALUE, 16,
+					"Invalid Value for climb > ", climb);
+		Altitude descent = DatatypeCache.altitude(desc.parseDouble(18));
 		if (descent.compareTo(MIN_ALTITUDE) < 0)
-			throw new ParseException("Invalid Value for descent > " + descent);
-		Weight empWeight = new Weight(Integer.parseInt(desc[21]));
+			throw fail(E_ParseError.INVALID_VALUE, 18,
+					"Invalid Value for descent > ", descent);
+		Weight empWeight = DatatypeCache.weight(desc.parseInt(21));
 		if (empWeight.compareTo(MIN_WEIGHT) < 0)
-			throw new ParseException("Invalid Value for empty weight > "
-					+ empWeight);
-		Weight fuelInit = new Weight(Integer.parseInt(desc[24]));
+			throw fail(E_ParseError.INVALID_VALUE, 21,
+					"Invalid Value for empty weight > ", empWeight);
+		Weight fuelInit = DatatypeCache.weight(desc.parseInt(24));
 		if (fuelInit.compareTo(MIN_WEIGHT) < 0)
-			throw new ParseException("Invalid Value for fuel initial > "
-					+ fuelInit);
-		Weight dFuel = new Weight(Integer.parseInt(desc[26]));
+			throw fail(E_ParseError.INVALID_VALUE, 24,
+					"Invalid Value for fuel initial > ", fuelInit);
+		Weight dFuel = DatatypeCache.weight(desc.parseInt(26));
 		if (dFuel.compareTo(MIN_WEIGHT) < 0)
-			throw new ParseException("Invalid Value for fuel delta > " + dFuel);
+			throw fail(E_ParseError.INVALID_VALUE, 26,
+					"Invalid Value for fuel delta > ", dFuel);
 
 		CommandCreationalDefineFighter defFighter = new CommandCreationalDefineFighter(
 				tid, speedMin, speedMax, dIncrease, dDecrease, turn, climb,
 				descent, empWeight, fuelInit, dFuel);
-		acd.submit(defFighter);
+		target.submit(defFighter);
 	}// end defineFighter
 
 	/**
@@ -434,57 +468,59 @@ public class CommandParserCreationalTemplate implements I_Command
 	 * 
 	 * @throws ParseException
 	 */
-	protected void defineTanker(String[] desc) throws ParseException
+	protected void defineTanker(I_CommandTarget target, CommandTokens desc) throws ParseException
 	{
-		if (desc.length != 21 || !desc[3].equalsIgnoreCase("SPEED")
-				|| !desc[4].equalsIgnoreCase("MIN")
-				|| !desc[6].equalsIgnoreCase("MAX")
-				|| !desc[8].equalsIgnoreCase("DELTA")
-				|| !desc[9].equalsIgnoreCase("INCREASE")
-				|| !desc[11].equalsIgnoreCase("DECREASE")
-				|| !desc[13].equalsIgnoreCase("TURN")
-				|| !desc[15].equalsIgnoreCase("CLIMB")
-				|| !desc[17].equalsIgnoreCase("DESCENT")
-				|| !desc[19].equalsIgnoreCase("TANK"))
-			throw new ParseException("Invalid Command > " + getString(desc));
-
-		ActionCreationalDefine acd = _actionset.getActionCreationalDefine();
-
-		Identifier tid = new Identifier(desc[2]);
-		Speed speedMin = new Speed(Integer.parseInt(desc[5]));
+		if (desc.size() != 21 || !desc.is(3, "SPEED")
+				|| !desc.is(4, "MIN")
+				|| !desc.is(6, "MAX")
+				|| !desc.is(8, "DELTA")
+				|| !desc.is(9, "INCREASE")
+				|| !desc.is(11, "DECREASE")
+				|| !desc.is(13, "TURN")
+				|| !desc.is(15, "CLIMB")
+				|| !desc.is(17, "DESCENT")
+				|| !desc.is(19, "TANK"))
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"Invalid Command > ", desc);
+
+		Identifier tid = SymbolTable.intern(desc, 2);
+		Speed speedMin = DatatypeCache.speed(desc.parseInt(5));
 		if (speedMin.compareTo(MIN_SPEED) < 0)
-			throw new ParseException("Invalid Value for min speed > "
-					+ speedMin);
-		Speed speedMax = new Speed(Integer.parseInt(desc[7]));
+			throw fail(E_ParseError.INVALID_VALUE, 5,
+					"Invalid Value for min speed > ", speedMin);
+		Speed speedMax = DatatypeCache.speed(desc.parseInt(7));
 		if (speedMax.compareTo(MIN_SPEED) < 0)
-			throw new ParseException("Invalid Value for max speed > "
-					+ speedMax);
-		Speed speedIncrease = new Speed(Integer.parseInt(desc[10]));
+			throw fail(E_ParseError.INVALID_VALUE, 7,
+					"Invalid Value for max speed > ", speedMax);
+		Speed speedIncrease = DatatypeCache.speed(desc.parseInt(10));
 		if (speedIncrease.compareTo(MIN_SPEED) < 0)
-			throw new ParseException(
-					"Invalid Value for speed delta increase > " + speedIncrease);
-		Speed speedDecrease = new Speed(Integer.parseInt(desc[12]));
+			throw fail(E_ParseError.INVALID_VALUE, 10,
+					"Invalid Value for speed delta increase > ", speedIncrease);
+		Speed speedDecrease = DatatypeCache.speed(desc.parseInt(12));
 		if (speedDecrease.compareTo(MIN_SPEED) < 0)
-			throw new ParseException(
-					"Invalid Value for speed delta decrease > " + speedDecrease);
-		AngleNavigational turn = new AngleNavigational(
-				Double.parseDouble(desc[14]));
+			throw fail(E_ParseError.INVALID_VALUE, 12,
+					"Invalid Value for speed delta decrease > ", speedDecrease);
+		AngleNavigational turn = DatatypeCache.angle(
+				desc.parseDouble(14));
 		if (turn.compareTo(MIN_AZIMUTH) < 0)
-			throw new ParseException("Invalid Value for turn > " + turn);
-		Altitude climb = new Altitude(Double.parseDouble(desc[16]));
+			throw fail(E_ParseError.INVALID_VALUE, 14,
+					"Invalid Value for turn > ", turn);
+		Altitude climb = DatatypeCache.altitude(desc.parseDouble(16));
 		if (climb.compareTo(MIN_ALTITUDE) < 0)
-			throw new ParseException("Invalid Value for climb > " + climb);
-		Altitude descent = new Altitude(Double.parseDouble(desc[18]));
+			throw fail(E_ParseError.INVALID_VALUE, 16,
+					"Invalid Value for climb > ", climb);
+		Altitude descent = DatatypeCache.altitude(desc.parseDouble(18));
 		if (descent.compareTo(MIN_ALTITUDE) < 0)
-			throw new ParseException("Invalid Value for descent > " + descent);
-		Weight weight = new Weight(Integer.parseInt(desc[20]));
+			throw fail(E_ParseError.INVALID_VALUE, 18,
+					"Invalid Value for descent > ", descent);
+		Weight weight = DatatypeCache.weight(desc.parseInt(20));
 		if (weight.compareTo(MIN_WEIGHT) < 0)
-			throw new ParseException("Invalid Value for tank weight > "
-					+ weight);
+			throw fail(E_ParseError.INVALID_VALUE, 20,
+					"Invalid Value for tank weight > ", weight);
 		CommandCreationalDefineTanker defTanker = new CommandCreationalDefineTanker(
 				tid, speedMin, speedMax, speedIncrease, speedDecrease, turn,
 				climb, descent, weight);
-		acd.submit(defTanker);
+		target.submit(defTanker);
 	}// end defineTanker
 
 	/**
@@ -497,26 +533,29 @@ public class CommandParserCreationalTemplate implements I_Command
 	 * 
 	 * @throws ParseException
 	 */
-	protected void defineBoomMale(String[] desc) throws ParseException
+	protected void defineBoomMale(I_CommandTarget target, CommandTokens desc) throws ParseException
 		{
-		if(desc.length !=  10 || !desc[4].equalsIgnoreCase("LENGTH") || !desc[6].equalsIgnoreCase("DIAMETER") || !desc[8].equalsIgnoreCase("FLOW"))
-			throw new ParseException("Invalid Command > " + getString(desc));
+		if(desc.size() !=  10 || !desc.is(4, "LENGTH") || !desc.is(6, "DIAMETER") || !desc.is(8, "FLOW"))
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"Invalid Command > ", desc);
 		
-		ActionCreationalDefine acd = _actionset.getActionCreationalDefine();
 		
-		Identifier tid = new Identifier(desc[3]);
-		Distance length = new Distance(Double.parseDouble(desc[5]));
+		Identifier tid = SymbolTable.intern(desc, 3);
+		Distance length = new Distance(desc.parseDouble(5));
 		if(length.compareTo(MIN_DISTANCE) < 0)
-			throw new ParseException("Invalid Value for length > " + length);
-		Distance diameter = new Distance(Double.parseDouble(desc[7]));
+			throw fail(E_ParseError.INVALID_VALUE, 5,
+					"Invalid Value for length > ", length);
+		Distance diameter = new Distance(desc.parseDouble(7));
 		if(diameter.compareTo(MIN_DISTANCE) < 0)
-			throw new ParseException("Invalid Value for diameter > " + diameter);
-		Flow flow = new Flow(Double.parseDouble(desc[9]));
+			throw fail(E_ParseError.INVALID_VALUE, 7,
+					"Invalid Value for diameter > ", diameter);
+		Flow flow = new Flow(desc.parseDouble(9));
 		if(flow.compareTo(MIN_FLOW) < 0)
-			throw new ParseException("Invalid Value for flow > " + flow);
+			throw fail(E_ParseError.INVALID_VALUE, 9,
+					"Invalid Value for flow > ", flow);
 		
 		CommandCreationalDefineBoomMale defBoomMale = new CommandCreationalDefineBoomMale(tid, length, diameter, flow);
-		acd.submit(defBoomMale);
+		target.submit(defBoomMale);
 		}//end defineBoomMale
 
 	/**
@@ -530,32 +569,34 @@ public class CommandParserCreationalTemplate implements I_Command
 	 * 
 	 * @throws ParseException
 	 */
-	protected void defineBoomFemale(String[] desc) throws ParseException
+	protected void defineBoomFemale(I_CommandTarget target, CommandTokens desc) throws ParseException
 	{
-		if (desc.length != 12 || !desc[4].equalsIgnoreCase("LENGTH")
-				|| !desc[6].equalsIgnoreCase("DIAMETER")
-				|| !desc[8].equalsIgnoreCase("ELEVATION")
-				|| !desc[10].equalsIgnoreCase("FLOW"))
-			throw new ParseException("Invalid Command > " + getString(desc));
-
-		ActionCreationalDefine acd = _actionset.getActionCreationalDefine();
-
-		Identifier tid = new Identifier(desc[3]);
-		Distance length = new Distance(Double.parseDouble(desc[5]));
+		if (desc.size() != 12 || !desc.is(4, "LENGTH")
+				|| !desc.is(6, "DIAMETER")
+				|| !desc.is(8, "ELEVATION")
+				|| !desc.is(10, "FLOW"))
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"Invalid Command > ", desc);
+
+		Identifier tid = SymbolTable.intern(desc, 3);
+		Distance length = new Distance(desc.parseDouble(5));
 		if (length.compareTo(MIN_DISTANCE) < 0)
-			throw new ParseException("Invalid Value for length > " + length);
-		Distance diameter = new Distance(Double.parseDouble(desc[7]));
+			throw fail(E_ParseError.INVALID_VALUE, 5,
+					"Invalid Value for length > ", length);
+		Distance diameter = new Distance(desc.parseDouble(7));
 		if (diameter.compareTo(MIN_DISTANCE) < 0)
-			throw new ParseException("Invalid Value for diameter > " + diameter);
-		AttitudePitch elevation = new AttitudePitch(Double.parseDouble(desc[9]));
+			throw fail(E_ParseError.INVALID_VALUE, 7,
+					"Invalid Value for diameter > ", diameter);
+		AttitudePitch elevation = new AttitudePitch(desc.parseDouble(9));
 		if (elevation.compareTo(MIN_ELEVATION) < 0)
-			throw new ParseException("Invalid Value for elevation > "
-					+ elevation);
-		Flow flow = new Flow(Double.parseDouble(desc[11]));
+			throw fail(E_ParseError.INVALID_VALUE, 9,
+					"Invalid Value for elevation > ", elevation);
+		Flow flow = new Flow(desc.parseDouble(11));
 		if (flow.compareTo(MIN_FLOW) < 0)
-			throw new ParseException("Invalid Value for flow > " + flow);
+			throw fail(E_ParseError.INVALID_VALUE, 11,
+					"Invalid Value for flow > ", flow);
 		CommandCreationalDefineBoomFemale defBoomFemale = new CommandCreationalDefineBoomFemale(tid, length, diameter, elevation, flow);
-		acd.submit(defBoomFemale);
+		target.submit(defBoomFemale);
 	}// end defineBoomFemale
 
 	/**
@@ -566,21 +607,21 @@ public class CommandParserCreationalTemplate implements I_Command
 	 * 
 	 * @throws ParseException
 	 */
-	protected void defineTailhook(String[] desc) throws ParseException
+	protected void defineTailhook(I_CommandTarget target, CommandTokens desc) throws ParseException
 	{
-		if (desc.length != 5 || !desc[3].equalsIgnoreCase("TIME"))
-			throw new ParseException("Invalid Command > " + getString(desc));
+		if (desc.size() != 5 || !desc.is(3, "TIME"))
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"Invalid Command > ", desc);
 
-		ActionCreationalDefine acd = _actionset.getActionCreationalDefine();
-
-		Identifier tid = new Identifier(desc[2]);
-		Time time = new Time(Double.parseDouble(desc[4]));
+		Identifier tid = SymbolTable.intern(desc, 2);
+		Time time = new Time(desc.parseDouble(4));
 		if (time.compareTo(MIN_TIME) < 0)
-			throw new ParseException("Invalid Value for time > " + time);
+			throw fail(E_ParseError.INVALID_VALUE, 4,
+					"Invalid Value for time > ", time);
 
 		CommandCreationalDefineTailhook defTailhook = new CommandCreationalDefineTailhook(
 				tid, time);
-		acd.submit(defTailhook);
+		target.submit(defTailhook);
 	}// end defineTailhook
 
 	/**
@@ -593,26 +634,29 @@ public class CommandParserCreationalTemplate implements I_Command
 	 * 
 	 * @throws ParseException
 	 */
-	protected void defineBarrier(String[] desc) throws ParseException
+	protected void defineBarrier(I_CommandTarget target, CommandTokens desc) throws ParseException
 		{
-		if(desc.length != 11 || !desc[3].equalsIgnoreCase("ORIGIN") || !desc[5].equalsIgnoreCase("AZIMUTH") || !desc[7].equalsIgnoreCase("WIDTH") || !desc[9].equalsIgnoreCase("TIME"))
-			throw new ParseException("Invalid Command > " + getString(desc));
+		if(desc.size() != 11 || !desc.is(3, "ORIGIN") || !desc.is(5, "AZIMUTH") || !desc.is(7, "WIDTH") || !desc.is(9, "TIME"))
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"Invalid Command > ", desc);
 		
-		ActionCreationalDefine acd = _actionset.getActionCreationalDefine();
 		
-		Identifier tid = new Identifier(desc[2]);
-		CoordinateCartesianRelative origin = parseOrigin(desc[3]);
-		AngleNavigational azimuth = new AngleNavigational(Double.parseDouble(desc[6]));
+		Identifier tid = SymbolTable.intern(desc, 2);
+		CoordinateCartesianRelative origin = parseOrigin(desc, 4);
+		AngleNavigational azimuth = DatatypeCache.angle(desc.parseDouble(6));
 		if(azimuth.compareTo(MIN_AZIMUTH) < 0)
-			throw new ParseException("Invalid Value for azimuth > " + azimuth);
-		Distance width = new Distance(Double.parseDouble(desc[8]));
+			throw fail(E_ParseError.INVALID_VALUE, 6,
+					"Invalid Value for azimuth > ", azimuth);
+		Distance width = new Distance(desc.parseDouble(8));
 		if(width.compareTo(MIN_DISTANCE) < 0)
-			throw new ParseException("Invalid Value for width > " + width);
-		Time time = new Time(Double.parseDouble(desc[10]));
+			throw fail(E_ParseError.INVALID_VALUE, 8,
+					"Invalid Value for width > ", width);
+		Time time = new Time(desc.parseDouble(10));
 		if(time.compareTo(MIN_TIME) < 0)
-			throw new ParseException("Invalid Value for time > " + time);
+			throw fail(E_ParseError.INVALID_VALUE, 10,
+					"Invalid Value for time > ", time);
 		CommandCreationalDefineBarrier defBarrier = new CommandCreationalDefineBarrier(tid, origin, azimuth, width, time);
-		acd.submit(defBarrier);
+		target.submit(defBarrier);
 		}//end defineBarrier
 
 	/**
@@ -623,21 +667,21 @@ public class CommandParserCreationalTemplate implements I_Command
 	 * 
 	 * @throws ParseException
 	 */
-	protected void defineAuxTank(String[] desc) throws ParseException
+	protected void defineAuxTank(I_CommandTarget target, CommandTokens desc) throws ParseException
 	{
-		if (desc.length != 5 || !desc[3].equalsIgnoreCase("AMOUNT"))
-			throw new ParseException("Invalid Command > " + getString(desc));
-
-		ActionCreationalDefine acd = _actionset.getActionCreationalDefine();
+		if (desc.size() != 5 || !desc.is(3, "AMOUNT"))
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"Invalid Command > ", desc);
 
-		Identifier tid = new Identifier(desc[2]);
-		Weight amount = new Weight(Integer.parseInt(desc[4]));
+		Identifier tid = SymbolTable.intern(desc, 2);
+		Weight amount = DatatypeCache.weight(desc.parseInt(4));
 		if (amount.compareTo(MIN_WEIGHT) < 0)
-			throw new ParseException("Invalid Value for amount > " + amount);
+			throw fail(E_ParseError.INVALID_VALUE, 4,
+					"Invalid Value for amount > ", amount);
 
 		CommandCreationalDefineAuxiliaryTank defAuxTank = new CommandCreationalDefineAuxiliaryTank(
 				tid, amount);
-		acd.submit(defAuxTank);
+		target.submit(defAuxTank);
 	}// end defineAuxTank
 
 	/**
@@ -646,12 +690,15 @@ public class CommandParserCreationalTemplate implements I_Command
 	 * Undefines template tid. This command populates CommandCreationalUndefine.
 	 * 
 	 */
-	protected void undefine(String[] desc)
+	protected void undefine(I_CommandTarget target, CommandTokens desc)
+			throws ParseException
 	{
-		ActionCreationalDefine acd = _actionset.getActionCreationalDefine();
-		Identifier tid = new Identifier(desc[1]);
+		if (desc.size() != 2)
+			throw fail(E_ParseError.INVALID_COMMAND, "Invalid Command > ",
+					desc);
+		Identifier tid = SymbolTable.intern(desc, 1);
 		CommandCreationalUndefine undefine = new CommandCreationalUndefine(tid);
-		acd.submit(undefine);
+		target.submit(undefine);
 	}// end undefine
 
 	/**
@@ -661,12 +708,15 @@ public class CommandParserCreationalTemplate implements I_Command
 	 * CommandCreationalShowTemplate.
 	 * 
 	 */
-	protected void showTemplates(String[] desc)
+	protected void showTemplates(I_CommandTarget target, CommandTokens desc)
+			throws ParseException
 	{
-		ActionCreationalDefine acd = _actionset.getActionCreationalDefine();
-		Identifier tid = new Identifier(desc[2]);
+		if (desc.size() != 3)
+			throw fail(E_ParseError.INVALID_COMMAND, "Invalid Command > ",
+					desc);
+		Identifier tid = SymbolTable.intern(desc, 2);
 		CommandCreationalShowTemplate showTemplate = new CommandCreationalShowTemplate(tid);
-		acd.submit(showTemplate);
+		target.submit(showTemplate);
 	}// end showTemplates
 
 	/**
@@ -676,21 +726,10 @@ public class CommandParserCreationalTemplate implements I_Command
 	 * CommandCreationalListTemplates.
 	 * 
 	 */
-	protected void listTemplates()
+	protected void listTemplates(I_CommandTarget target)
 		{
-		ActionCreationalDefine acd = _actionset.getActionCreationalDefine();
 		
-		acd.submit(new CommandCreationalListTemplates());
+		target.submit(new CommandCreationalListTemplates());
 		}//end listTemplates
-	
-	public String getString(String[] desc)
-	{
-		String s = "";
-		for(String word : desc)
-		{
-			s += (word + " ");
-		}
-		return s;
-	}
 
 }// end class
\ No newline at end of file
@@ -1,14 +1,10 @@
 package acg.project.cli.parser;
 
 import java.io.File;
-import java.util.regex.Pattern;
+import java.io.IOException;
 
-import acg.architecture.datatype.Rate;
-import acg.project.action.ActionMiscellaneous;
-import acg.project.action.ActionSet;
 import acg.project.action.command.miscellaneous.CommandMiscDoClockUpdate;
 import acg.project.action.command.miscellaneous.CommandMiscDoExit;
-import acg.project.action.command.miscellaneous.CommandMiscDoRun;
 import acg.project.action.command.miscellaneous.CommandMiscDoSetClockRate;
 import acg.project.action.command.miscellaneous.CommandMiscDoSetClockRunning;
 import acg.project.action.command.miscellaneous.CommandMiscDoShowClock;
@@ -21,64 +17,59 @@ import acg.project.action.command.miscellaneous.CommandMiscDoWait;
  * submit it to ActionSet::getActionMisc().submit() from your parser.
  * @author Colton Prettyman
  */
-public class CommandParserMisc implements I_Command{
+public class CommandParserMisc extends A_CommandParser{
 
 	//-----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
 	/**
-	 * This override method takes an Actionset and String command as its parameter and 
+	 * This override method takes a command target and the command tokens as its parameters and 
 	 * switches on input to parse the command and create the correct agent.
-	 * @param actionset - The actionset
+	 * @param target - Where the command is submitted
 	 * @param command - The input string containing the command information. 
 	 * @throws ParseException
 	 */
 	@Override
-	public void parseCommand(ActionSet actionset, String command)
+	public void parseCommand(I_CommandTarget target, CommandTokens command)
 			throws ParseException {
 		
-	ActionMiscellaneous actionmisc = actionset.getActionMisc();
 		
-		
-		String[] pcommand = parseString(command);
-		
-		if( pcommand[0].equalsIgnoreCase("@Clock")) {
+		if( command.is(0, "@Clock")) {
 			
 			// Check if just @CLOCK
-			String regex = "\\s*@CLOCK\\s*";
-			Pattern p = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
 			boolean done = false;
-			if( done = p.matcher(command).matches() ) 
-				outputClock(command,pcommand,actionmisc);
+			if( done = CommandPatterns.CLOCK.matcher(command).matches() ) 
+				outputClock(command,target);
 			
 			//Check if PAUSE|RESUME|UPDATE
-			regex = "\\s*@CLOCK\\s+(PAUSE|RESUME|UPDATE)\\s*";
-		    p = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-			if( !done && (done = p.matcher(command).matches()) )
-				instructClock(command,pcommand,actionmisc);
+			if( !done && (done = CommandPatterns.CLOCK_INSTRUCTION.matcher(command).matches()) )
+				instructClock(command,target);
 			
 			//Check if <rate>
-			regex = "\\s*@CLOCK\\s+\\d+\\s*";
-		    p = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-			if( !done && (done = p.matcher(command).matches()) )
-				setClock(command,pcommand,actionmisc);
+			if( !done && (done = CommandPatterns.CLOCK_RATE.matcher(command).matches()) )
+				setClock(command,target);
 			
 			// Bad command!!
 			if( ! done )
-			throw new ParseException("Invalid command > " + command);
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"Invalid command > ", command);
 		}// end if
 		else 
 		{
-			switch(pcommand[0].toUpperCase() ) {
+			switch(command.get(0).toUpperCase() ) {
 			
-				case "@RUN" : run(command, pcommand, actionmisc);
+				case "@RUN" : run(command, target);
+					break;
+				
+				case "@FOLLOW" : follow(command, target);
 					break;
 				
-				case "@EXIT" : exit(actionmisc);
+				case "@EXIT" : exit(target);
 					break;
 				
-				case "@WAIT" : wait(command, pcommand, actionmisc);
+				case "@WAIT" : wait(command, target);
 					break;
 				
-				default : throw new ParseException("Invalid command > " + command);
+				default : throw fail(E_ParseError.INVALID_COMMAND,
+						"Invalid command > ", command);
 			}
 		} // end else
 	}
@@ -88,11 +79,10 @@ public class CommandParserMisc implements I_Command{
 	 * Outputs the clock rate to the command-line interface as clock = <rate>, or clock = paused if it is not running.
 	 * This command populates CommandMiscDoShowClock.
 	 * @param command
-	 * @param pcommand
-	 * @param actionmisc
+	 * @param target
 	 */
-		protected void outputClock(String command, String[] pcommand, ActionMiscellaneous actionmisc) {
-		actionmisc.submit(new CommandMiscDoShowClock() );
+		protected void outputClock(CommandTokens command, I_CommandTarget target) {
+		target.submit(new CommandMiscDoShowClock() );
 	}
 		
 	/**
@@ -101,21 +91,21 @@ public class CommandParserMisc implements I_Command{
 	 * clock is paused.
 	 * This command populates CommandDoSetClockRunning or CommandDoClockUpdate.
 	 * @param command
-	 * @param pcommand
-	 * @param actionmisc
+	 * @param target
 	 * @throws ParseException 
 	 */
-		protected void instructClock(String command, String[] pcommand, ActionMiscellaneous actionmisc) throws ParseException {
+		protected void instructClock(CommandTokens command, I_CommandTarget target) throws ParseException {
 		
-			switch( pcommand[1].toUpperCase() ) {
+			switch( command.get(1).toUpperCase() ) {
 			
-				case "PAUSE" :  actionmisc.submit(new CommandMiscDoSetClockRunning(false));
+				case "PAUSE" :  target.submit(new CommandMiscDoSetClockRunning(false));
 					break;
-				case "RESUME" : actionmisc.submit( new CommandMiscDoSetClockRunning(true));
+				case "RESUME" : target.submit( new CommandMiscDoSetClockRunning(true));
 					break;
-				case "UPDATE" : actionmisc.submit( new CommandMiscDoClockUpdate());
+				case "UPDATE" : target.submit( new CommandMiscDoClockUpdate());
 					break;
-				default : throw new ParseException("Invalid command > " + command );
+				default : throw fail(E_ParseError.INVALID_COMMAND,
+						"Invalid command > ", command);
 			}
 	}
 
@@ -124,42 +114,98 @@ public class CommandParserMisc implements I_Command{
 	 * Sets the system clock speed to rate ticks per second.
 	 * This command populates CommandDoSetClockRate.
 	 * @param command
-	 * @param pcommand
-	 * @param actionmisc
+	 * @param target
 	 * @throws ParseException 
 	 */
-		protected void setClock(String command, String[] pcommand, ActionMiscellaneous actionmisc) throws ParseException {
-		int rate = Integer.parseInt(pcommand[1]);
-		if( rate < 0 )
-			throw new ParseException("Invalid input > " + command);
+		protected void setClock(CommandTokens command, I_CommandTarget target) throws ParseException {
+		int rate = command.parseInt(1);
+		// Note: A Rate is at least 1.
+		if( rate < 1 )
+			throw fail(E_ParseError.INVALID_COMMAND, 1,
+					"Invalid input > ", command);
 		
-		actionmisc.submit( new CommandMiscDoSetClockRate( new Rate(rate)) ) ;
+		target.submit( new CommandMiscDoSetClockRate( DatatypeCache.rate(rate)) ) ;
 	}
 
 	/**
-	 * @RUN <string>
+	 * @RUN <string> [VALIDATE]
 	 * Loads a text file with commands of the form here, one per line, and executes them in order. string is any filename with path and 
-	 * extension.This command populates CommandMiscDoRun.
+	 * extension. This command populates CommandMiscDoRunScript, which streams the file through CommandScriptLoader when it is executed.
+	 * With VALIDATE, the whole file is parsed first and nothing is run unless every line is valid.
 	 * @param command
-	 * @param pcommand
-	 * @param actionmisc
+	 * @param target
 	 * @throws ParseException 
 	 */
-		protected void run(String command, String[] pcommand, ActionMiscellaneous actionmisc) throws ParseException {
-	   if(! new File( pcommand[1]).isFile() )
-		   throw new ParseException("Invalid filename > " + command);
+		protected void run(CommandTokens command, I_CommandTarget target) throws ParseException {
+	   if( command.size() < 2 )
+		   throw fail(E_ParseError.INVALID_COMMAND,
+				"Invalid command > ", command);
+	   String filename = command.get(1);
+	   File file = new File( filename);
+	   if(! file.isFile() )
+		   throw fail(E_ParseError.INVALID_FILENAME,
+				"Invalid filename > ", command);
+		
+	   boolean validate = command.is(2, "VALIDATE");
+	   if( command.size() > (validate ? 3 : 2) )
+		   throw fail(E_ParseError.INVALID_COMMAND,
+				"Invalid command > ", command);
+		
+	   target.submit( new CommandMiscDoRunScript(file, validate, target));
+	}
 		
-		actionmisc.submit( new CommandMiscDoRun(pcommand[1]));
+	/**
+	 * @FOLLOW <string> [STOP]
+	 * Runs the commands of a text file like @RUN, then keeps watching it and runs every line appended to it, until
+	 * @FOLLOW <string> STOP. The file is followed by a FileFollower on a thread of its own, which survives the file
+	 * being rotated. Not valid in a script, and only valid for an I_ThreadSafeCommandTarget, as the follower thread
+	 * submits to it while others do.
+	 * @param command
+	 * @param target
+	 * @throws ParseException 
+	 */
+		protected void follow(CommandTokens command, I_CommandTarget target) throws ParseException {
+	   boolean stop = command.is(2, "STOP");
+	   if( command.size() < 2 || command.size() > (stop ? 3 : 2) || CommandScriptLoader.isScript(target) )
+		   throw fail(E_ParseError.INVALID_COMMAND,
+				"Invalid command > ", command);
+	   
+	   File file = new File( command.get(1));
+	   if( stop ) {
+		   if(! FileFollower.stop(file) )
+			   throw fail(E_ParseError.INVALID_FILENAME,
+					"Not followed > ", command);
+		   return;
+	   }
+	   
+	   if(! file.isFile() )
+		   throw fail(E_ParseError.INVALID_FILENAME,
+				"Invalid filename > ", command);
+	   
+	   // Note: The cache only passes the commands of the line on.
+	   I_CommandTarget shared = CommandCache.passedThrough(target);
+	   if(! (shared instanceof I_ThreadSafeCommandTarget) )
+		   throw fail(E_ParseError.INVALID_COMMAND,
+				"Target not thread-safe > ", command);
+	   
+	   try {
+		   if( FileFollower.follow(file, (I_ThreadSafeCommandTarget) shared) == null )
+			   throw fail(E_ParseError.INVALID_FILENAME,
+					"Already followed > ", command);
+	   } catch (IOException exception) {
+		   throw fail(E_ParseError.INVALID_FILENAME,
+				"Invalid filename > ", command);
+	   }
 	}
 		
 	/**
 	 * @EXIT
 	 * Exits the system.
 	 * This command populates CommandMiscDoExit.
-	 * @param actionmisc
+	 * @param target
 	 */
-		protected void exit( ActionMiscellaneous actionmisc) {
-			actionmisc.submit(new CommandMiscDoExit() );
+		protected void exit( I_CommandTarget target) {
+			target.submit(new CommandMiscDoExit() );
 	}
 
 	/**
@@ -167,44 +213,21 @@ public class CommandParserMisc implements I_Command{
 	 * Waits rate ticks before executing the next behavioral command. This command is not valid until after COMMIT.
 	 * This command populates CommandMiscDoWait.
 	 * @param command
-	 * @param pcommand
-	 * @param actionmisc
+	 * @param target
 	 * @throws ParseException 
 	 */
-		protected void wait(String command, String[] pcommand, ActionMiscellaneous actionmisc) throws ParseException {
-			String regex = "\\s*@WAIT\\s+\\d+\\s*";
-			Pattern p = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-			if( ! p.matcher(command).matches() )
-				throw new ParseException("Invalid input > " + command);
+		protected void wait(CommandTokens command, I_CommandTarget target) throws ParseException {
+			if( ! CommandPatterns.WAIT.matcher(command).matches() )
+				throw fail(E_ParseError.INVALID_COMMAND,
+						"Invalid input > ", command);
 			
-			int rate = Integer.parseInt(pcommand[1]);
+			int rate = command.parseInt(1);
 			
-			if( rate < 0)
-				throw new ParseException("Invalid rate > " + pcommand[1]);
+			if( rate < 1)
+				throw fail(E_ParseError.INVALID_VALUE, 1,
+						"Invalid rate > ", command.get(1));
 			
-			actionmisc.submit(new CommandMiscDoWait( new Rate( rate ) ));
+			target.submit(new CommandMiscDoWait( DatatypeCache.rate( rate ) ));
 	}
 
-		//-----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
-		/**
-		 * parseString -- This method is duplicated in other command parser class. 
-		 * Maybe an inheretance heirarchy would'be been better then an interface.
-		 * returns a string which is split into an array...the string is split by spaces
-		 * any extra spaces are trimmed
-		 */
-		protected String[] parseString(String command){
-			// replace any multiple spaces with a single space
-			command = command.replaceAll("\\s{2,}", " ");
-			// Trim any whitespaces before and after.
-			command = command.trim();
-			// split on one or more spaces
-			String[] res = command.split("\\s");
-			
-			// Remove any leading and trailing whitespaces
-			for( int i=0; i < res.length; i++)
-				res[i] = res[i].trim();
-			
-			return res;
-		}
-
 }
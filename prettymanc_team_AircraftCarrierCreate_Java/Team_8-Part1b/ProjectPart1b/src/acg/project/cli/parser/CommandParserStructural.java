@@ -1,11 +1,9 @@
 package acg.project.cli.parser;
 
-import acg.project.action.ActionSet;
-import acg.project.action.ActionStructural;
 import acg.project.action.command.structural.*;
 import acg.project.cli.parser.ParseException;
 import acg.architecture.datatype.*;
-import java.util.*;
+import java.io.PrintStream;
 
 
 /**
@@ -15,13 +13,23 @@ import java.util.*;
  * 
  * @author Evan Nilson
  */
-public class CommandParserStructural implements I_Command
+public class CommandParserStructural extends A_CommandParser
 {
 
-	protected ActionSet _actionset;
+	// Note: Implicit empty constructor here. The parser keeps no state, one
+	// instance is shared by all commands.
 	
-	protected String _command;
+	private static volatile PrintStream _progress = System.out;
 	
+	/**
+	 * Sets where POPULATE commands longer than one chunk report how many
+	 * agents they have submitted; null reports nothing. The default is
+	 * System.out, where the structural actions print the world.
+	 */
+	public static void setProgress(PrintStream progress)
+	{
+		_progress = progress;
+	}
 	
 	/**
 	 * Parses a command, and passes it to the appropriate method.
@@ -29,40 +37,39 @@ public class CommandParserStructural implements I_Command
 	 * 
 	 * @throws ParseException
 	 */
-	public void parseCommand(ActionSet actionset, String command) throws ParseException
+	public void parseCommand(I_CommandTarget target, CommandTokens command) throws ParseException
 	{
 	
-	_actionset = actionset;
-	_command = command;
-	
-	String[] syntax = command.split(" ");
-	
-	for(String s : syntax)
-	{
-	s.trim(); //clean up extra whitespaces
-	}//end loop
+	CommandTokens syntax = command;
 
-	String firstCommand = syntax[0].toUpperCase();
+	String firstCommand = syntax.get(0).toUpperCase();
 	
 	switch (firstCommand)
 	{
 		case "POPULATE":
-			String secondCommand = syntax[1].toUpperCase();
+			if (syntax.size() < 2)
+				throw fail(E_ParseError.INVALID_COMMAND,
+						"Invalid Command > ", command);
+			String secondCommand = syntax.get(1).toUpperCase();
 			switch (secondCommand)
 			{
 				case "CARRIER":
-					populateCarrier(syntax);
+					populateCarrier(target, syntax);
 					break;
 				case "WORLD":
-					populateWorld(syntax);
+					populateWorld(target, syntax);
 					break;
+				default:
+					throw fail(E_ParseError.INVALID_COMMAND,
+							"Invalid Command > ", command);
 			}//end switch
 			break;
 		case "COMMIT":
-			commit();
+			commit(target);
 			break;
 		default:
-			throw new ParseException("Invalid Command > " + command);
+			throw fail(E_ParseError.INVALID_COMMAND,
+					"Invalid Command > ", command);
 	}//end switch
 	}//end parseCommand
 	
@@ -73,50 +80,43 @@ public class CommandParserStructural implements I_Command
 	 * Populates carrier agent aid1 with fighter agents aidn.
 	 * The syntax of FIGHTER need not correspond to the number of identifiers.
 	 * Only fighters created without an initial airborne state may be added.
-	 * This command populates CommandStructuralPopulateCarrier.
+	 * An aidn may be a range like f[1..5000]; FROM <filename> reads the
+	 * identifiers from a file instead. Long lists are submitted as several
+	 * CommandStructuralPopulateCarrier commands of Population.CHUNK_SIZE, at
+	 * most Population.MAX_AGENTS identifiers in all.
 	 * @throws ParseException
 	 */
-	protected void populateCarrier(String[] desc) throws ParseException
+	protected void populateCarrier(I_CommandTarget target, CommandTokens desc) throws ParseException
 	{
-	if(desc.length < 6 || !desc[3].equalsIgnoreCase("WITH") || !(desc[4].equalsIgnoreCase("FIGHTERS") || desc[4].equalsIgnoreCase("FIGHTER")))
-		throw new ParseException("Invalid Command > " + getString(desc));
+	if(desc.size() < 6 || !desc.is(3, "WITH") || !(desc.is(4, "FIGHTERS") || desc.is(4, "FIGHTER")))
+		throw fail(E_ParseError.INVALID_COMMAND, "Invalid Command > ", desc);
 	
-	ActionStructural actStruct = _actionset.getActionStructural();
-	
-	Identifier carrierID = new Identifier(desc[2]);
-	List<Identifier> fighterIDs = new ArrayList<Identifier>();
-	for(int i = 5; i < desc.length && !desc[i].startsWith("//"); i++)
-	{
-		fighterIDs.add(new Identifier(desc[i]));
-	}
-	
-	CommandStructuralPopulateCarrier popCarrier = new CommandStructuralPopulateCarrier(carrierID, fighterIDs);
-	actStruct.submit(popCarrier);
+	Identifier carrierID = SymbolTable.intern(desc, 2);
+	Population.populate(target, carrierID, desc, 5, _progress);
 	}//end method
 	
 	/**
 	 * POPULATEWORLDWITH<aidn>+
+	 * POPULATEWORLDFROM<filename>
 	 * 
 	 * Populates the world with fighter, tanker, and carrier agents aidn.
-	 * This command populates CommandStructuralPopulateWorld.
+	 * An aidn may be a range like f[1..5000]; the second form reads the
+	 * identifiers from a file. Long lists are submitted as several
+	 * CommandStructuralPopulateWorld commands of Population.CHUNK_SIZE, at
+	 * most Population.MAX_AGENTS identifiers in all.
 	 * @throws ParseException
 	 */
-	protected void populateWorld(String[] desc) throws ParseException
+	protected void populateWorld(I_CommandTarget target, CommandTokens desc) throws ParseException
 	{
-	if(desc.length < 4 || !desc[2].equalsIgnoreCase("WITH"))
-		throw new ParseException("Invalid Command > " + getString(desc));
-	
-		ActionStructural actStruct = _actionset.getActionStructural();
-	
-	List<Identifier> idList = new ArrayList<Identifier>();
-	
-	for(int i = 3; i < desc.length && !desc[i].startsWith("//"); i++)
+	if(desc.size() == 4 && desc.is(2, "FROM"))
 	{
-		idList.add(new Identifier(desc[i]));
+		Population.populate(target, null, desc, 2, _progress);
+		return;
 	}
+	if(desc.size() < 4 || !desc.is(2, "WITH"))
+		throw fail(E_ParseError.INVALID_COMMAND, "Invalid Command > ", desc);
 	
-	CommandStructuralPopulateWorld popWorld = new CommandStructuralPopulateWorld(idList);
-	actStruct.submit(popWorld);
+	Population.populate(target, null, desc, 3, _progress);
 	}//end method
 	
 	
@@ -127,20 +127,9 @@ public class CommandParserStructural implements I_Command
 	 * This command populates CommandStructuralCommit.
 	 * 
 	 */
-	protected void commit()
+	protected void commit(I_CommandTarget target)
 	{
-		ActionStructural actStruct = _actionset.getActionStructural();
 		CommandStructuralCommit commit = new CommandStructuralCommit();
-		actStruct.submit(commit);
-	}
-	
-	public String getString(String[] desc)
-	{
-		String s = "";
-		for(String word : desc)
-		{
-			s += (word + " ");
-		}
-		return s;
+		target.submit(commit);
 	}
 }//class
\ No newline at end of file
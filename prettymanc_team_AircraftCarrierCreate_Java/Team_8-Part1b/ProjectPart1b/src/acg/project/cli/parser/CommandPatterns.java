@@ -0,0 +1,79 @@
+package acg.project.cli.parser;
+
+import java.util.regex.Pattern;
+
+//==================================================================================================================================================================================
+/**
+ * Registry of every regular expression used by the command parsers.
+ *
+ * Each pattern is compiled exactly once when this class is loaded. Pattern
+ * objects are immutable and safe to share between threads, so the parsers
+ * only ever create a Matcher per use and never call Pattern.compile while a
+ * command is being parsed.
+ *
+ */
+public final class CommandPatterns
+{
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	// Shared fragments
+
+	/** a coordinates token; CoordinateScanner reads and checks its form */
+	private static final String COORDINATES_REGEX = "\\S+";
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	// CommandParserCreationalAgents
+
+	public static final Pattern CREATE_CARRIER = compile("CREATE\\s+CARRIER\\s+\\w+\\s+FROM\\s+\\w+\\s+WITH\\s+CATAPULT\\s+\\w+\\s+BARRIER\\s+\\w+\\s+TRAP\\s+\\w+\\s+OLS\\s+\\w+\\s+AT\\s+"
+			+ "COORDINATES\\s+"
+			+ COORDINATES_REGEX
+			+ "\\s+HEADING\\s+\\d{3}\\s+SPEED\\s+\\d+\\s*");
+
+	public static final Pattern CREATE_TANKER = compile("\\s*CREATE\\s+TANKER\\s+\\w+\\s+FROM\\s+\\w+\\s+WITH\\s+BOOM\\s+\\w+\\s+AT\\s+"
+			+ "COORDINATES\\s+"
+			+ COORDINATES_REGEX
+			+ "\\s+ALTITUDE\\s+\\d+\\s+HEADING\\s+\\d{3}\\s+SPEED\\s+\\d+\\s*");
+
+	public static final Pattern CREATE_TRAP = secondary("TRAP");
+	public static final Pattern CREATE_BARRIER = secondary("BARRIER");
+	public static final Pattern CREATE_AUX_TANK = secondary("AUX_TANK");
+	public static final Pattern CREATE_CATAPULT = secondary("CATAPULT");
+	public static final Pattern CREATE_OLS_XMT = secondary("OLS_XMT");
+	public static final Pattern CREATE_OLS_RCV = secondary("OLS_RCV");
+	public static final Pattern CREATE_BOOM = secondary("BOOM");
+	public static final Pattern CREATE_TAILHOOK = secondary("TAILHOOK");
+
+	public static final Pattern UNCREATE = compile("\\s*UNCREATE\\s+\\w+\\s*");
+	public static final Pattern DESCRIBE = compile("\\s*DESCRIBE\\s+\\w+\\s*");
+	public static final Pattern LIST_AGENTS = compile("\\s*LIST\\s+AGENTS\\s*");
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	// CommandParserMisc
+
+	public static final Pattern CLOCK = compile("\\s*@CLOCK\\s*");
+	public static final Pattern CLOCK_INSTRUCTION = compile("\\s*@CLOCK\\s+(PAUSE|RESUME|UPDATE)\\s*");
+	public static final Pattern CLOCK_RATE = compile("\\s*@CLOCK\\s+\\d+\\s*");
+	public static final Pattern WAIT = compile("\\s*@WAIT\\s+\\d+\\s*");
+
+	// Note: No instances, this is only a holder.
+	private CommandPatterns()
+	{
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Compiles a keyword pattern. Command keywords are case insensitive.
+	 */
+	private static Pattern compile(String regex)
+	{
+		return Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * CREATE <kind> <aid> FROM <tid> -- the form shared by all secondary agents.
+	 */
+	private static Pattern secondary(String kind)
+	{
+		return compile("\\s*CREATE\\s+" + kind + "\\s+\\w+\\s+FROM\\s+\\w+\\s*");
+	}
+}
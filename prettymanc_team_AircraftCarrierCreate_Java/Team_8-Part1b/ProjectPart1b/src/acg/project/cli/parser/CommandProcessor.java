@@ -0,0 +1,382 @@
+package acg.project.cli.parser;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+
+import acg.architecture.datatype.Identifier;
+import acg.project.action.command.A_Command;
+import acg.project.action.command.creational.define.A_CommandCreationalDefine;
+import acg.project.action.command.creational.define.CommandCreationalUndefine;
+
+//==================================================================================================================================================================================
+/**
+ * Parses a stream of command lines into a stream of ParsedItems: subscribes
+ * to a publisher of lines and publishes, in order, the commands of every line
+ * and a diagnostic for every line it rejects.
+ *
+ * Lines are only requested while the subscriber has demand for items and
+ * everything parsed so far has been sent. A subscriber that stops requesting
+ * (e.g. a TargetSubscriber whose target is busy) thus stops the producer of
+ * the lines, with at most LINE_BATCH lines parsed ahead.
+ *
+ * There is one subscriber; a second one is refused with onError. Parsing
+ * happens on the thread that delivers the line, items are sent from whichever
+ * thread makes progress possible, one at a time.
+ *
+ * The processor remembers the templates of the last MAX_TEMPLATES DEFINE and
+ * UNDEFINE lines it has parsed, so a CREATE BOOM later in the stream finds its
+ * template even if the subscriber has not executed the DEFINE yet. Templates
+ * defined before, or so long ago that they have been forgotten, are looked up
+ * in the given target.
+ *
+ * A line the parsers fail on with a RuntimeException is published as a
+ * rejected item like any invalid line, and the stream goes on. An @RUN line
+ * yields one command, which runs its script when the subscriber's target
+ * executes it, so the script's lines do not pass through here. An @FOLLOW
+ * line is rejected: its follower would submit from a thread of its own,
+ * around the demand of the subscriber.
+ */
+public final class CommandProcessor implements I_Subscriber<String>,
+		I_Publisher<ParsedItem>
+{
+	/** The most lines requested from the publisher ahead of the subscriber. */
+	public static final int LINE_BATCH = 64;
+
+	/** The most templates remembered from the stream itself. */
+	public static final int MAX_TEMPLATES = 1024;
+
+	private final CommandParser _parser = new CommandParser(new Capture());
+
+	private final I_CommandTarget _templates;
+
+	// Everything below is guarded by this
+	private final Map<Identifier, A_CommandCreationalDefine> _defined = new LinkedHashMap<Identifier, A_CommandCreationalDefine>()
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(
+				Map.Entry<Identifier, A_CommandCreationalDefine> eldest)
+		{
+			return size() > MAX_TEMPLATES;
+		}
+	};
+
+	private final Queue<ParsedItem> _pending = new ArrayDeque<ParsedItem>();
+
+	private I_Subscription _upstream;
+
+	private I_Subscriber<? super ParsedItem> _downstream;
+
+	// items requested by the subscriber and not yet sent
+	private long _demand;
+
+	// lines requested from the publisher and not yet received
+	private long _requested;
+
+	private boolean _upstreamDone;
+
+	private Throwable _error;
+
+	private boolean _terminated;
+
+	// one thread sends at a time
+	private boolean _draining;
+
+	// the line being parsed, for the items it yields
+	private String _line;
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Constructor.
+	 *
+	 * @param templates
+	 *            - where templates defined before the stream are looked up, or
+	 *            null for none
+	 */
+	public CommandProcessor(I_CommandTarget templates)
+	{
+		_templates = templates;
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	@Override
+	public void subscribe(I_Subscriber<? super ParsedItem> subscriber)
+	{
+		synchronized (this)
+		{
+			if (_downstream == null)
+			{
+				_downstream = subscriber;
+				subscriber = null;
+			}
+		}
+
+		if (subscriber != null)
+		{
+			subscriber.onSubscribe(new Refused());
+			subscriber.onError(new IllegalStateException(
+					"command processor has a subscriber"));
+			return;
+		}
+		_downstream.onSubscribe(new Subscription());
+		drain();
+	}
+
+	@Override
+	public void onSubscribe(I_Subscription subscription)
+	{
+		boolean accepted;
+		synchronized (this)
+		{
+			accepted = (_upstream == null && !_terminated);
+			if (accepted)
+				_upstream = subscription;
+		}
+
+		// Note: Only one publisher; a second one is turned away.
+		if (!accepted)
+			subscription.cancel();
+		else
+			drain();
+	}
+
+	@Override
+	public void onNext(String line)
+	{
+		synchronized (this)
+		{
+			if (_upstreamDone)
+				return;
+			_requested--;
+			_line = line;
+			try
+			{
+				ParseResult result = _parser.parse(line);
+				if (!result.isValid())
+					_pending.add(ParsedItem.rejected(line, result));
+			} catch (RuntimeException exception)
+			{
+				// Note: Only this line is lost; the commands of its
+				// statements before the failure have been added already.
+				_pending.add(ParsedItem.rejected(line, ParseResult.rejected(
+						null, new ParseException("Invalid command > " + line
+								+ " (" + exception + ")"))));
+			} finally
+			{
+				_line = null;
+			}
+		}
+		drain();
+	}
+
+	@Override
+	public void onError(Throwable throwable)
+	{
+		synchronized (this)
+		{
+			if (_upstreamDone)
+				return;
+			_upstreamDone = true;
+			_error = throwable;
+		}
+		drain();
+	}
+
+	@Override
+	public void onComplete()
+	{
+		synchronized (this)
+		{
+			if (_upstreamDone)
+				return;
+			_upstreamDone = true;
+		}
+		drain();
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * @return the number of items parsed and not yet sent
+	 */
+	public synchronized int size()
+	{
+		return _pending.size();
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		return "pending=" + _pending.size() + " demand=" + _demand
+				+ " linesRequested=" + _requested
+				+ (_upstreamDone ? " upstream done" : "");
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	// Note: Sends what the demand allows, asks for lines when everything has
+	// been sent, and completes the subscriber once the lines are done. The
+	// calls out are made without the lock, so that the subscriber may request
+	// more and the publisher may deliver from within them. Such reentrant
+	// calls return at once; the state is looked at again after every call
+	// out, so the loop here picks their work up.
+	private void drain()
+	{
+		synchronized (this)
+		{
+			if (_draining)
+				return;
+			_draining = true;
+		}
+
+		while (true)
+		{
+			I_Subscriber<? super ParsedItem> downstream;
+			ParsedItem item = null;
+			long lines = 0;
+			boolean terminate = false;
+			Throwable error = null;
+
+			synchronized (this)
+			{
+				downstream = _downstream;
+				if (downstream == null || _terminated)
+				{
+					_draining = false;
+					return;
+				}
+
+				if (!_pending.isEmpty())
+				{
+					if (_demand > 0)
+					{
+						item = _pending.poll();
+						if (_demand != Long.MAX_VALUE)
+							_demand--;
+					}
+				} else if (_upstreamDone)
+				{
+					_terminated = true;
+					terminate = true;
+					error = _error;
+				} else if (_demand > 0 && _upstream != null
+						&& _requested <= LINE_BATCH / 2)
+				{
+					lines = LINE_BATCH - _requested;
+					_requested = LINE_BATCH;
+				}
+
+				if (item == null && !terminate && lines == 0)
+				{
+					_draining = false;
+					return;
+				}
+			}
+
+			if (item != null)
+				downstream.onNext(item);
+			else if (terminate)
+			{
+				if (error != null)
+					downstream.onError(error);
+				else
+					downstream.onComplete();
+			} else if (lines > 0)
+				_upstream.request(lines);
+		}
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * The subscriber's side: demand and cancellation.
+	 */
+	private final class Subscription implements I_Subscription
+	{
+		@Override
+		public void request(long n)
+		{
+			I_Subscription upstream = null;
+			synchronized (CommandProcessor.this)
+			{
+				if (n > 0)
+					_demand = (_demand + n < 0 ? Long.MAX_VALUE : _demand + n);
+				else if (!_terminated)
+				{
+					// Note: The subscriber broke the protocol; it gets an
+					// error and nothing more.
+					_upstreamDone = true;
+					_error = new IllegalArgumentException(
+							"non-positive request > " + n);
+					_pending.clear();
+					upstream = _upstream;
+				}
+			}
+			if (upstream != null)
+				upstream.cancel();
+			drain();
+		}
+
+		@Override
+		public void cancel()
+		{
+			I_Subscription upstream;
+			synchronized (CommandProcessor.this)
+			{
+				if (_terminated)
+					return;
+				_terminated = true;
+				_upstreamDone = true;
+				_pending.clear();
+				upstream = _upstream;
+			}
+			if (upstream != null)
+				upstream.cancel();
+		}
+	}
+
+	/**
+	 * The subscription of a refused subscriber, which does nothing.
+	 */
+	private static final class Refused implements I_Subscription
+	{
+		@Override
+		public void request(long n)
+		{
+		}
+
+		@Override
+		public void cancel()
+		{
+		}
+	}
+
+	/**
+	 * Collects the commands of the line being parsed. Only called from
+	 * onNext, with the processor's lock held.
+	 */
+	private final class Capture implements I_CommandTarget
+	{
+		@Override
+		public void submit(A_Command<?> command)
+		{
+			_pending.add(ParsedItem.command(_line, command));
+
+			// Undefine is an A_CommandCreationalDefine too, so it goes first
+			if (command instanceof CommandCreationalUndefine)
+				_defined.put(((CommandCreationalUndefine) command).getID_(),
+						null);
+			else if (command instanceof A_CommandCreationalDefine)
+				_defined.put(((A_CommandCreationalDefine) command).getID_(),
+						(A_CommandCreationalDefine) command);
+		}
+
+		@Override
+		public A_CommandCreationalDefine getTemplate(Identifier tid)
+		{
+			if (_defined.containsKey(tid))
+				return _defined.get(tid);
+			return (_templates == null ? null : _templates.getTemplate(tid));
+		}
+	}
+}
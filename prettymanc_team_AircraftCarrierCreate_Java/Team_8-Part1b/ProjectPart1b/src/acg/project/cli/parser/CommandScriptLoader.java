@@ -0,0 +1,727 @@
+package acg.project.cli.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import acg.architecture.datatype.Identifier;
+import acg.project.action.command.A_Command;
+import acg.project.action.command.creational.define.A_CommandCreationalDefine;
+import acg.project.action.command.creational.define.CommandCreationalUndefine;
+
+//==================================================================================================================================================================================
+/**
+ * Streams an @RUN script into a command target. @RUN itself only submits a
+ * CommandMiscDoRunScript; the script is loaded when the ActionSet executes
+ * that command at its tick, as the ActionSet's own @RUN did.
+ *
+ * The file is memory-mapped and split into lines on its bytes. A line is a
+ * view onto the mapping; it only becomes a String where a parser asks for a
+ * token. A worker thread parses ahead and hands the resulting commands over in
+ * batches while the calling thread submits the earlier ones. Every command is
+ * submitted by the calling thread in the order of the lines, so an @WAIT holds
+ * back exactly the commands after it, as if the script had been typed in.
+ *
+ * An @RUN in the script is submitted in its place like any other command, and
+ * runs its script when it is executed in turn.
+ *
+ * Like the ActionSet's own @RUN, each line is echoed as "F> line", a line that
+ * does not parse is reported as "invalid command: ..." and loading goes on
+ * with the next line. Bytes are read as ISO-8859-1, which leaves the ASCII of
+ * the command language unchanged.
+ *
+ * loadValidated() is the all-or-nothing alternative: the script is parsed in
+ * chunks across all cores, and only if every line is valid are the commands
+ * submitted, again in line order. Otherwise nothing is submitted and every
+ * invalid line is reported at once, with its line number.
+ */
+public final class CommandScriptLoader
+{
+	// Commands handed over at a time, and batches the worker may be ahead
+	private static final int BATCH_SIZE = 256;
+
+	private static final int BATCHES_AHEAD = 4;
+
+	// Bytes of script per chunk of loadValidated(); chunks end at a line end
+	private static final int CHUNK_BYTES = 64 * 1024;
+
+	// Note: Its threads are daemons, so it never holds up exit.
+	private static final ForkJoinPool POOL = new ForkJoinPool();
+
+	// Note: Compared by identity; marks the end of the script.
+	private static final List<Object> END = Collections.unmodifiableList(new ArrayList<Object>());
+
+	// Note: Compared by identity; a template the script has undefined.
+	private static final Object UNDEFINED = new Object();
+
+	private final I_CommandTarget _target;
+
+	private final PrintStream _echo;
+
+	private final PrintStream _errors;
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Constructor. Lines are echoed to System.out and errors go to System.err.
+	 *
+	 * @param target
+	 *            - where the commands of the script are submitted
+	 */
+	public CommandScriptLoader(I_CommandTarget target)
+	{
+		this(target, System.out, System.err);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param target
+	 *            - where the commands of the script are submitted
+	 * @param echo
+	 *            - where the lines are echoed, or null for none
+	 * @param errors
+	 *            - where rejected lines are reported, or null for none
+	 */
+	public CommandScriptLoader(I_CommandTarget target, PrintStream echo,
+			PrintStream errors)
+	{
+		_target = target;
+		_echo = echo;
+		_errors = errors;
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Parses the script and submits its commands in order. Returns once the
+	 * last command has been submitted.
+	 *
+	 * @param file
+	 *            - the script
+	 * @throws IOException
+	 *             if the file cannot be mapped
+	 */
+	public void load(File file) throws IOException
+	{
+		ByteBuffer script = map(file);
+
+		BlockingQueue<List<Object>> batches = new ArrayBlockingQueue<List<Object>>(
+				BATCHES_AHEAD);
+		Collector collector = new Collector(_target, batches);
+
+		Thread worker = new Thread(new Parser(collector, script,
+				file.getName()), "@RUN " + file.getName());
+		worker.setDaemon(true);
+		worker.start();
+
+		boolean done = false;
+		try
+		{
+			for (List<Object> batch = take(batches); batch != END; batch = take(batches))
+				for (Object entry : batch)
+					deliver(entry);
+			done = true;
+		} finally
+		{
+			// the worker would block on a full queue forever
+			if (!done)
+				worker.interrupt();
+		}
+
+		// the worker stopped at a line the parsers threw on
+		Throwable failure = collector._failure;
+		if (failure instanceof RuntimeException)
+			throw (RuntimeException) failure;
+		if (failure instanceof Error)
+			throw (Error) failure;
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Parses the whole script in parallel and submits its commands in order,
+	 * but only if every line is valid.
+	 *
+	 * Lines are parsed independently, except where a line looks a template up
+	 * (CREATE BOOM) that its own chunk does not define: such a line is parsed
+	 * again in order once the chunks before it are known.
+	 *
+	 * @param file
+	 *            - the script
+	 * @throws IOException
+	 *             if the file cannot be mapped
+	 * @throws ParseException
+	 *             listing every invalid line; nothing has been submitted
+	 */
+	public void loadValidated(File file) throws IOException, ParseException
+	{
+		ByteBuffer script = map(file);
+		String name = file.getName();
+
+		// cut the script into chunks at line ends, numbering lines on the way
+		int limit = script.limit();
+		int[] starts = new int[limit / CHUNK_BYTES + 2];
+		int[] lines = new int[starts.length];
+		int chunks = (limit > 0 ? 1 : 0);
+		lines[0] = 1;
+		int line = 1;
+		for (int i = 0, cut = CHUNK_BYTES; i < limit; i++)
+			if (script.get(i) == '\n')
+			{
+				line++;
+				if (i + 1 >= cut && i + 1 < limit)
+				{
+					starts[chunks] = i + 1;
+					lines[chunks++] = line;
+					cut = i + 1 + CHUNK_BYTES;
+				}
+			}
+		starts[chunks] = limit;
+
+		Collector[] parts = new Collector[chunks];
+		POOL.invoke(new ChunkTask(script, name, starts, lines, parts, 0, chunks));
+
+		// in line order: parse the deferred lines, now that the templates
+		// before them are known
+		Collector ordered = new Collector(_target, null);
+		for (Collector part : parts)
+			for (Object entry : part._batch)
+			{
+				if (entry instanceof A_Command)
+					ordered.submit((A_Command<?>) entry);
+				else if (entry instanceof Deferred)
+				{
+					Deferred deferred = (Deferred) entry;
+					ordered.parse(deferred._text, deferred._file,
+							deferred._line);
+				} else
+					ordered.add(entry);
+			}
+
+		StringBuilder report = null;
+		int rejected = 0;
+		for (Object entry : ordered._batch)
+			if (entry instanceof Rejected)
+			{
+				if (report == null)
+					report = new StringBuilder();
+				report.append('\n').append(entry);
+				rejected++;
+			}
+		if (report != null)
+			throw new ParseException(name + " has " + rejected
+					+ " invalid line(s), nothing was run" + report);
+
+		for (Object entry : ordered._batch)
+			deliver(entry);
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * @return true if target collects the lines of a script being loaded,
+	 *         i.e. a command is parsed as a line of a script
+	 */
+	static boolean isScript(I_CommandTarget target)
+	{
+		return target instanceof Collector;
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	private void deliver(Object entry)
+	{
+		if (entry instanceof A_Command)
+			_target.submit((A_Command<?>) entry);
+		else if (entry instanceof Rejected)
+		{
+			if (_errors != null)
+				_errors.println("invalid command: "
+						+ ((Rejected) entry)._exception);
+		} else if (_echo != null)
+			_echo.println("F> " + entry);
+	}
+
+	private static List<Object> take(BlockingQueue<List<Object>> batches)
+			throws InterruptedIOException
+	{
+		try
+		{
+			return batches.take();
+		} catch (InterruptedException exception)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("@RUN interrupted");
+		}
+	}
+
+	private static ByteBuffer map(File file) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.READ))
+		{
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE)
+				throw new IOException("script too large > " + file);
+
+			// Note: The mapping stays valid after the channel is closed.
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		}
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * The target the worker parses into. Commands, echoed lines and rejected
+	 * lines are collected in order and passed to the calling thread a batch at
+	 * a time.
+	 *
+	 * Templates defined or undefined earlier in the script are tracked here,
+	 * because the real target has not seen those commands yet when a later
+	 * line (CREATE BOOM) looks them up.
+	 *
+	 * Without a queue, everything is kept in one batch; that is how the
+	 * chunks of loadValidated() are collected.
+	 */
+	private static final class Collector implements I_CommandTarget
+	{
+		private final I_CommandTarget _target;
+
+		private final BlockingQueue<List<Object>> _batches;
+
+		// Templates by symbol id of the generation _generation; UNDEFINED
+		// hides a template the script has undefined, null leaves the lookup
+		// to the target
+		private Definition[] _templates = new Definition[0];
+
+		// every definition, to key them again in a new generation
+		private final List<Definition> _definitions = new ArrayList<Definition>();
+
+		private int _generation = -1;
+
+		private List<Object> _batch = new ArrayList<Object>(BATCH_SIZE);
+
+		private volatile Throwable _failure;
+
+		public Collector(I_CommandTarget target,
+				BlockingQueue<List<Object>> batches)
+		{
+			_target = target;
+			_batches = batches;
+		}
+
+		@Override
+		public void submit(A_Command<?> command)
+		{
+			// a nested @RUN runs into the real target, not into this
+			if (command instanceof CommandMiscDoRunScript)
+				command = ((CommandMiscDoRunScript) command).on(_target);
+
+			if (command instanceof CommandCreationalUndefine)
+				putTemplate(((CommandCreationalUndefine) command).getID_(),
+						UNDEFINED);
+			else if (command instanceof A_CommandCreationalDefine)
+				putTemplate(((A_CommandCreationalDefine) command).getID_(),
+						command);
+
+			add(command);
+		}
+
+		@Override
+		public A_CommandCreationalDefine getTemplate(Identifier tid)
+		{
+			int id = id(tid);
+			Definition definition = (id < _templates.length ? _templates[id]
+					: null);
+			if (definition == null)
+				return _target.getTemplate(tid);
+			return (definition._template == UNDEFINED ? null
+					: (A_CommandCreationalDefine) definition._template);
+		}
+
+		private void putTemplate(Identifier tid, Object template)
+		{
+			int id = id(tid);
+			Definition definition = (id < _templates.length ? _templates[id]
+					: null);
+			if (definition == null)
+			{
+				definition = new Definition(tid);
+				_definitions.add(definition);
+				place(id, definition);
+			}
+			definition._template = template;
+		}
+
+		// @return the symbol id of tid, in the generation the templates are
+		// keyed by
+		private int id(Identifier tid)
+		{
+			while (true)
+			{
+				int generation = SymbolTable.getGeneration();
+				if (generation != _generation)
+				{
+					_templates = new Definition[_templates.length];
+					for (Definition definition : _definitions)
+						place(SymbolTable.id(definition._tid), definition);
+					_generation = generation;
+				}
+
+				// Note: Interning may start another generation meanwhile.
+				int id = SymbolTable.id(tid);
+				if (SymbolTable.getGeneration() == generation)
+					return id;
+			}
+		}
+
+		private void place(int id, Definition definition)
+		{
+			if (id >= _templates.length)
+				_templates = Arrays.copyOf(_templates,
+						Math.max(id + 1, _templates.length * 2));
+			_templates[id] = definition;
+		}
+
+		// Splits a part of the script into lines and parses each one. Stops
+		// early if the calling thread has given up.
+		void scan(ByteBuffer script, int from, int to, int line, String file)
+		{
+			int start = from;
+
+			for (int i = from; i <= to
+					&& !Thread.currentThread().isInterrupted(); i++)
+			{
+				byte b = (i < to ? script.get(i) : (byte) '\n');
+				if (b != '\n' && b != '\r')
+					continue;
+
+				if (!isBlank(script, start, i))
+				{
+					ScriptLine text = new ScriptLine(script, start, i);
+					add(text);
+					parse(text, file, line);
+				}
+				if (b == '\n')
+					line++;
+				start = i + 1;
+			}
+		}
+
+		// Parses one line. A line that needs a template this collector
+		// cannot resolve yet is taken back and deferred. A line the parsers
+		// fail on is rejected like any other bad line.
+		void parse(ScriptLine text, String file, int line)
+		{
+			int mark = _batch.size();
+			try
+			{
+				ParseResult result = CommandParser.parse(this, text);
+				if (!result.isValid())
+					add(new Rejected(file, line, result.getException()));
+			} catch (Unresolved unresolved)
+			{
+				_batch.subList(mark, _batch.size()).clear();
+				add(new Deferred(text, file, line));
+			} catch (RuntimeException exception)
+			{
+				add(new Rejected(file, line, new ParseException(
+						"Invalid command > " + text + " (" + exception + ")")));
+			}
+		}
+
+		void finish()
+		{
+			flush();
+			try
+			{
+				_batches.put(END);
+			} catch (InterruptedException exception)
+			{
+				// the calling thread has given up and no longer takes
+			}
+		}
+
+		void add(Object entry)
+		{
+			_batch.add(entry);
+			if (_batch.size() >= BATCH_SIZE)
+				flush();
+		}
+
+		private void flush()
+		{
+			if (_batches == null || _batch.isEmpty())
+				return;
+
+			try
+			{
+				_batches.put(_batch);
+			} catch (InterruptedException exception)
+			{
+				// the calling thread has given up; scan() stops at the next
+				// line
+				Thread.currentThread().interrupt();
+			}
+			_batch = new ArrayList<Object>(BATCH_SIZE);
+		}
+
+		// As String.trim().isEmpty() would decide
+		private static boolean isBlank(ByteBuffer script, int start, int end)
+		{
+			for (int i = start; i < end; i++)
+				if ((script.get(i) & 0xFF) > ' ')
+					return false;
+			return true;
+		}
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * The worker. An Error ends the script at that line and is rethrown by
+	 * load().
+	 */
+	private static final class Parser implements Runnable
+	{
+		private final Collector _collector;
+
+		private final ByteBuffer _script;
+
+		private final String _file;
+
+		public Parser(Collector collector, ByteBuffer script, String file)
+		{
+			_collector = collector;
+			_script = script;
+			_file = file;
+		}
+
+		@Override
+		public void run()
+		{
+			try
+			{
+				_collector.scan(_script, 0, _script.limit(), 1, _file);
+			} catch (Throwable failure)
+			{
+				_collector._failure = failure;
+			} finally
+			{
+				_collector.finish();
+			}
+		}
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Parses the chunks from lo to hi, splitting the range until one chunk is
+	 * left. Every chunk gets its own collector, which only knows the templates
+	 * of its own chunk; any other template lookup is deferred.
+	 */
+	private static final class ChunkTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final ByteBuffer _script;
+
+		private final String _file;
+
+		private final int[] _starts;
+
+		private final int[] _lines;
+
+		private final Collector[] _parts;
+
+		private final int _lo;
+
+		private final int _hi;
+
+		public ChunkTask(ByteBuffer script, String file, int[] starts,
+				int[] lines, Collector[] parts, int lo, int hi)
+		{
+			_script = script;
+			_file = file;
+			_starts = starts;
+			_lines = lines;
+			_parts = parts;
+			_lo = lo;
+			_hi = hi;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (_hi - _lo > 1)
+			{
+				int mid = (_lo + _hi) >>> 1;
+				invokeAll(new ChunkTask(_script, _file, _starts, _lines,
+						_parts, _lo, mid), new ChunkTask(_script, _file,
+						_starts, _lines, _parts, mid, _hi));
+				return;
+			}
+			if (_hi == _lo)
+				return;
+
+			Collector part = new Collector(UNRESOLVED, null);
+			part.scan(_script, _starts[_lo], _starts[_lo + 1], _lines[_lo],
+					_file);
+			_parts[_lo] = part;
+		}
+	}
+
+	// Delegate of the chunk collectors: any template it is asked for is
+	// defined, if at all, in an earlier chunk
+	private static final I_CommandTarget UNRESOLVED = new I_CommandTarget()
+	{
+		@Override
+		public void submit(A_Command<?> command)
+		{
+			// Note: A chunk collector keeps what it collects, and a nested
+			// @RUN bound to this is bound again when the chunk is submitted
+			// in order, so nothing ever reaches here.
+			throw new IllegalStateException("chunk collectors never submit > "
+					+ command);
+		}
+
+		@Override
+		public A_CommandCreationalDefine getTemplate(Identifier tid)
+		{
+			throw Unresolved.INSTANCE;
+		}
+	};
+
+	// Note: Thrown through the parsers as control flow, so it has no stack
+	// trace and only one instance.
+	private static final class Unresolved extends RuntimeException
+	{
+		private static final long serialVersionUID = 1L;
+
+		static final Unresolved INSTANCE = new Unresolved();
+
+		private Unresolved()
+		{
+			super("template lookup deferred", null, false, false);
+		}
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * A line that did not parse.
+	 */
+	private static final class Rejected
+	{
+		private final String _file;
+
+		private final int _line;
+
+		private final ParseException _exception;
+
+		public Rejected(String file, int line, ParseException exception)
+		{
+			_file = file;
+			_line = line;
+			_exception = exception;
+		}
+
+		@Override
+		public String toString()
+		{
+			return _file + ":" + _line + ": " + _exception.getMessage();
+		}
+	}
+
+	/**
+	 * A template the script has defined or undefined.
+	 */
+	private static final class Definition
+	{
+		private final Identifier _tid;
+
+		// the define command, or UNDEFINED
+		private Object _template;
+
+		public Definition(Identifier tid)
+		{
+			_tid = tid;
+		}
+	}
+
+	/**
+	 * A line of a chunk that has to be parsed again in order.
+	 */
+	private static final class Deferred
+	{
+		private final ScriptLine _text;
+
+		private final String _file;
+
+		private final int _line;
+
+		public Deferred(ScriptLine text, String file, int line)
+		{
+			_text = text;
+			_file = file;
+			_line = line;
+		}
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * One line of a mapped script, read in place. Only absolute reads are made
+	 * on the buffer, so the worker and the echo may share it.
+	 */
+	private static final class ScriptLine implements CharSequence
+	{
+		private final ByteBuffer _script;
+
+		private final int _start;
+
+		private final int _end;
+
+		public ScriptLine(ByteBuffer script, int start, int end)
+		{
+			_script = script;
+			_start = start;
+			_end = end;
+		}
+
+		@Override
+		public int length()
+		{
+			return _end - _start;
+		}
+
+		@Override
+		public char charAt(int index)
+		{
+			if (index < 0 || index >= length())
+				throw new IndexOutOfBoundsException("index " + index);
+			return (char) (_script.get(_start + index) & 0xFF);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end)
+		{
+			if (start < 0 || end > length() || start > end)
+				throw new IndexOutOfBoundsException("[" + start + "," + end + ")");
+			return new ScriptLine(_script, _start + start, _start + end);
+		}
+
+		@Override
+		public String toString()
+		{
+			byte[] bytes = new byte[length()];
+			for (int i = 0; i < bytes.length; i++)
+				bytes[i] = _script.get(_start + i);
+			return new String(bytes, StandardCharsets.ISO_8859_1);
+		}
+	}
+}
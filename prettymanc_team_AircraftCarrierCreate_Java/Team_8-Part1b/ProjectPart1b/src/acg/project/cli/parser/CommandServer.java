@@ -0,0 +1,499 @@
+package acg.project.cli.parser;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import acg.architecture.datatype.Identifier;
+import acg.project.action.command.A_Command;
+import acg.project.action.command.creational.define.A_CommandCreationalDefine;
+
+//==================================================================================================================================================================================
+/**
+ * Accepts command sessions over TCP on the loopback interface, so several
+ * operator consoles and controllers can drive one simulation at once.
+ *
+ * The protocol is line based, in ISO-8859-1. Every line a client sends is
+ * parsed as if typed on the console and answered with one line: "ok", or
+ * "error: " and why it was rejected or the target failed on it; the session
+ * goes on either way. Answers are flushed whenever the client has nothing
+ * more buffered, so a client may send many lines before it reads.
+ *
+ * Every session is served by a thread of its own, with a CommandParser of its
+ * own, and all of them submit to one I_ThreadSafeCommandTarget, e.g. a
+ * SubmissionQueue in front of the ActionSet. A session is one itself, so an
+ * @FOLLOW sent over it is followed into the same target. Per session, the
+ * lines, rejections, commands and the time from receiving a line until its
+ * commands were submitted are counted.
+ * A session that has ended is dropped; only its counters are kept, added up
+ * with those of the other ended sessions.
+ */
+public final class CommandServer implements AutoCloseable
+{
+	private static final int INPUT_BUFFER = 1 << 16;
+
+	// Note: Compared by identity; the answer to a valid line.
+	private static final String OK = "ok";
+
+	private final I_ThreadSafeCommandTarget _target;
+
+	private final PrintStream _errors;
+
+	private final ServerSocket _server;
+
+	private final ExecutorService _sessionThreads;
+
+	private final Thread _acceptor;
+
+	private final List<Session> _sessions = new CopyOnWriteArrayList<Session>();
+
+	private final AtomicInteger _sessionCount = new AtomicInteger();
+
+	// guarded by this; the counters of the sessions that have ended
+	private int _ended;
+
+	private long _endedLines;
+
+	private long _endedRejected;
+
+	private long _endedCommands;
+
+	private long _endedTotalLatency;
+
+	private long _endedMaxLatency;
+
+	private volatile boolean _closed;
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Constructor. The server listens on the loopback interface from here on.
+	 *
+	 * @param target
+	 *            - where all sessions submit
+	 * @param port
+	 *            - the port, or 0 for any free one (see getPort())
+	 * @param errors
+	 *            - where failed sessions are reported, or null for none
+	 * @throws IOException
+	 *             if the port cannot be bound
+	 */
+	public CommandServer(I_ThreadSafeCommandTarget target, int port,
+			PrintStream errors)
+			throws IOException
+	{
+		_target = target;
+		_errors = errors;
+		_server = new ServerSocket();
+		_server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+				port));
+
+		_sessionThreads = Executors.newCachedThreadPool(new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable runnable)
+			{
+				Thread thread = new Thread(runnable, "command session");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		_acceptor = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				accept();
+			}
+		}, "command server " + getPort());
+		_acceptor.setDaemon(true);
+		_acceptor.start();
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * @return the port the server listens on
+	 */
+	public int getPort()
+	{
+		return _server.getLocalPort();
+	}
+
+	/**
+	 * @return the open sessions, in the order they connected
+	 */
+	public List<Session> getSessions()
+	{
+		return new ArrayList<Session>(_sessions);
+	}
+
+	/**
+	 * @return the number of sessions that have ended
+	 */
+	public synchronized int getEndedSessions()
+	{
+		return _ended;
+	}
+
+	/**
+	 * @return the number of lines received, over all sessions
+	 */
+	public synchronized long getLines()
+	{
+		long lines = _endedLines;
+		for (Session session : _sessions)
+			lines += session.getLines();
+		return lines;
+	}
+
+	/**
+	 * @return the number of lines rejected, over all sessions
+	 */
+	public synchronized long getRejected()
+	{
+		long rejected = _endedRejected;
+		for (Session session : _sessions)
+			rejected += session.getRejected();
+		return rejected;
+	}
+
+	/**
+	 * @return the number of commands submitted, over all sessions
+	 */
+	public synchronized long getCommands()
+	{
+		long commands = _endedCommands;
+		for (Session session : _sessions)
+			commands += session.getCommands();
+		return commands;
+	}
+
+	/**
+	 * @return the mean nanoseconds from receiving a line until it was parsed
+	 *         and submitted, over all sessions, or 0 before the first line
+	 */
+	public synchronized long getMeanLatency()
+	{
+		long lines = _endedLines;
+		long total = _endedTotalLatency;
+		for (Session session : _sessions)
+			synchronized (session)
+			{
+				lines += session._lines;
+				total += session._totalLatency;
+			}
+		return (lines == 0 ? 0 : total / lines);
+	}
+
+	/**
+	 * @return the longest such time of any session, in nanoseconds
+	 */
+	public synchronized long getMaxLatency()
+	{
+		long max = _endedMaxLatency;
+		for (Session session : _sessions)
+			max = Math.max(max, session.getMaxLatency());
+		return max;
+	}
+
+	/**
+	 * Stops accepting, disconnects every session and waits for their threads.
+	 * Commands already submitted stay submitted.
+	 */
+	@Override
+	public void close()
+	{
+		if (_closed)
+			return;
+		_closed = true;
+
+		closeQuietly(_server);
+		for (Session session : _sessions)
+			closeQuietly(session._socket);
+		_sessionThreads.shutdown();
+
+		boolean interrupted = false;
+		while (true)
+		{
+			try
+			{
+				_acceptor.join();
+				_sessionThreads.awaitTermination(Long.MAX_VALUE,
+						TimeUnit.NANOSECONDS);
+				break;
+			} catch (InterruptedException exception)
+			{
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		return "port=" + getPort() + " sessions=" + _sessions.size()
+				+ " ended=" + _ended + " lines=" + getLines() + " rejected="
+				+ getRejected() + " commands=" + getCommands()
+				+ " meanLatency=" + getMeanLatency() / 1000 + "us maxLatency="
+				+ getMaxLatency() / 1000 + "us";
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	private void accept()
+	{
+		while (!_closed)
+		{
+			Socket socket;
+			try
+			{
+				socket = _server.accept();
+			} catch (IOException exception)
+			{
+				if (!_closed && _errors != null)
+					_errors.println("command server failed: " + exception);
+				return;
+			}
+
+			Session session = new Session(_sessionCount.incrementAndGet(),
+					socket);
+			_sessions.add(session);
+			try
+			{
+				_sessionThreads.execute(session);
+			} catch (RejectedExecutionException exception)
+			{
+				// Note: close() has shut the session threads down meanwhile.
+				closeQuietly(socket);
+				ended(session);
+				return;
+			}
+			// Note: close() may have missed a session accepted just before.
+			if (_closed)
+				closeQuietly(socket);
+		}
+	}
+
+	// Drops a session that has ended and keeps its counters
+	private synchronized void ended(Session session)
+	{
+		_sessions.remove(session);
+		synchronized (session)
+		{
+			_ended++;
+			_endedLines += session._lines;
+			_endedRejected += session._rejected;
+			_endedCommands += session._commands;
+			_endedTotalLatency += session._totalLatency;
+			_endedMaxLatency = Math.max(_endedMaxLatency, session._maxLatency);
+		}
+	}
+
+	private static void closeQuietly(AutoCloseable closeable)
+	{
+		try
+		{
+			closeable.close();
+		} catch (Exception exception)
+		{
+			// Note: Nothing to be done; it is closed either way.
+		}
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * One connected client and its counters. The counters may be read from
+	 * any thread while the session runs.
+	 */
+	public final class Session implements Runnable,
+			I_ThreadSafeCommandTarget
+	{
+		private final int _id;
+
+		private final Socket _socket;
+
+		private final CommandParser _parser = new CommandParser(this);
+
+		// guarded by this
+		private long _lines;
+
+		private long _rejected;
+
+		private long _commands;
+
+		private long _totalLatency;
+
+		private long _maxLatency;
+
+		private volatile boolean _open = true;
+
+		private Session(int id, Socket socket)
+		{
+			_id = id;
+			_socket = socket;
+		}
+
+		@Override
+		public void run()
+		{
+			try (Socket socket = _socket;
+					BufferedReader in = new BufferedReader(new InputStreamReader(
+							socket.getInputStream(), StandardCharsets.ISO_8859_1),
+							INPUT_BUFFER);
+					Writer out = new BufferedWriter(new OutputStreamWriter(
+							socket.getOutputStream(), StandardCharsets.ISO_8859_1)))
+			{
+				socket.setTcpNoDelay(true);
+				for (String line = in.readLine(); line != null; line = in
+						.readLine())
+				{
+					long start = System.nanoTime();
+					String answer;
+					try
+					{
+						ParseResult result = _parser.parse(line);
+						answer = (result.isValid() ? OK : "error: "
+								+ result.getMessage());
+					} catch (RuntimeException exception)
+					{
+						// Note: The target failed on the line, e.g. a full
+						// SubmissionQueue that rejects; the session goes on.
+						answer = "error: " + exception;
+					}
+					long latency = System.nanoTime() - start;
+
+					synchronized (this)
+					{
+						_lines++;
+						if (answer != OK)
+							_rejected++;
+						_totalLatency += latency;
+						_maxLatency = Math.max(_maxLatency, latency);
+					}
+
+					out.write(answer);
+					out.write('\n');
+					if (!in.ready())
+						out.flush();
+				}
+			} catch (SocketException exception)
+			{
+				// Note: The client went away or the server was closed.
+			} catch (IOException | RuntimeException exception)
+			{
+				if (_errors != null)
+					_errors.println("session " + _id + " failed: " + exception);
+			} finally
+			{
+				_open = false;
+				ended(this);
+			}
+		}
+
+		/**
+		 * Passes the command on to the shared target and counts it once the
+		 * target has taken it.
+		 */
+		@Override
+		public void submit(A_Command<?> command)
+		{
+			_target.submit(command);
+			synchronized (this)
+			{
+				_commands++;
+			}
+		}
+
+		@Override
+		public A_CommandCreationalDefine getTemplate(Identifier tid)
+		{
+			return _target.getTemplate(tid);
+		}
+
+		/**
+		 * @return the number of the session, from 1 in the order of connection
+		 */
+		public int getId()
+		{
+			return _id;
+		}
+
+		/**
+		 * @return true until the client has disconnected
+		 */
+		public boolean isOpen()
+		{
+			return _open;
+		}
+
+		/**
+		 * @return the number of lines received
+		 */
+		public synchronized long getLines()
+		{
+			return _lines;
+		}
+
+		/**
+		 * @return the number of lines rejected
+		 */
+		public synchronized long getRejected()
+		{
+			return _rejected;
+		}
+
+		/**
+		 * @return the number of commands submitted
+		 */
+		public synchronized long getCommands()
+		{
+			return _commands;
+		}
+
+		/**
+		 * @return the mean nanoseconds from receiving a line until it was
+		 *         parsed and submitted, or 0 before the first line
+		 */
+		public synchronized long getMeanLatency()
+		{
+			return (_lines == 0 ? 0 : _totalLatency / _lines);
+		}
+
+		/**
+		 * @return the longest such time, in nanoseconds
+		 */
+		public synchronized long getMaxLatency()
+		{
+			return _maxLatency;
+		}
+
+		@Override
+		public synchronized String toString()
+		{
+			return "session " + _id + (_open ? "" : " (closed)") + ": lines="
+					+ _lines + " rejected=" + _rejected + " commands="
+					+ _commands + " meanLatency=" + getMeanLatency() / 1000
+					+ "us maxLatency=" + _maxLatency / 1000 + "us";
+		}
+	}
+}
@@ -0,0 +1,282 @@
+package acg.project.cli.parser;
+
+//==================================================================================================================================================================================
+/**
+ * One command statement as produced by CommandLexer.
+ *
+ * The tokens are not copied out of the input line; each token is a pair of
+ * offsets into the original CharSequence. The statement itself is a
+ * CharSequence spanning from the first to the last token, so it can be handed
+ * straight to a Matcher without building a new String.
+ *
+ * Strings are only created when a parser explicitly asks for one through
+ * get(int) or toString().
+ */
+public final class CommandTokens implements CharSequence
+{
+	private final CharSequence _source;
+
+	private final int[] _starts;
+
+	private final int[] _ends;
+
+	private final int _count;
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Constructor. The arrays are owned by this object from now on.
+	 *
+	 * @param source
+	 *            - the complete input line
+	 * @param starts
+	 *            - start offset of every token
+	 * @param ends
+	 *            - end offset (exclusive) of every token
+	 * @param count
+	 *            - the number of valid entries in starts and ends
+	 */
+	CommandTokens(CharSequence source, int[] starts, int[] ends, int count)
+	{
+		_source = source;
+		_starts = starts;
+		_ends = ends;
+		_count = count;
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * @return the number of tokens in the statement
+	 */
+	public int size()
+	{
+		return _count;
+	}
+
+	/**
+	 * @return the line this statement was scanned from
+	 */
+	public CharSequence getSource()
+	{
+		return _source;
+	}
+
+	/**
+	 * @return the offset of token i in the source line
+	 */
+	public int start(int i)
+	{
+		return _starts[check(i)];
+	}
+
+	/**
+	 * @return the offset just past token i in the source line
+	 */
+	public int end(int i)
+	{
+		return _ends[check(i)];
+	}
+
+	/**
+	 * @return the length of token i
+	 */
+	public int length(int i)
+	{
+		return _ends[check(i)] - _starts[i];
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * @return token i as a String
+	 */
+	public String get(int i)
+	{
+		check(i);
+		if (_source instanceof String)
+			return ((String) _source).substring(_starts[i], _ends[i]);
+		return _source.subSequence(_starts[i], _ends[i]).toString();
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Compares token i against a keyword without creating a String.
+	 *
+	 * @return true if token i equals keyword, ignoring case
+	 */
+	public boolean is(int i, String keyword)
+	{
+		if (i < 0 || i >= _count)
+			return false;
+
+		int start = _starts[i];
+		int length = _ends[i] - start;
+		if (length != keyword.length())
+			return false;
+
+		if (_source instanceof String)
+			return ((String) _source).regionMatches(true, start, keyword, 0,
+					length);
+
+		for (int j = 0; j < length; j++)
+			if (Character.toUpperCase(_source.charAt(start + j)) != Character
+					.toUpperCase(keyword.charAt(j)))
+				return false;
+		return true;
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * @return true if token i starts with prefix, ignoring case
+	 */
+	public boolean startsWith(int i, String prefix)
+	{
+		if (i < 0 || i >= _count || length(i) < prefix.length())
+			return false;
+
+		int start = _starts[i];
+		for (int j = 0; j < prefix.length(); j++)
+			if (Character.toUpperCase(_source.charAt(start + j)) != Character
+					.toUpperCase(prefix.charAt(j)))
+				return false;
+		return true;
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * @return true if token i consists of word characters only, as \w+ in a
+	 *         regular expression
+	 */
+	public boolean isWord(int i)
+	{
+		if (i < 0 || i >= _count)
+			return false;
+
+		for (int j = _starts[i]; j < _ends[i]; j++)
+		{
+			char c = _source.charAt(j);
+			if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+					|| (c >= '0' && c <= '9') || c == '_'))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if token i consists of decimal digits only, as \d+ in a
+	 *         regular expression
+	 */
+	public boolean isDigits(int i)
+	{
+		if (i < 0 || i >= _count)
+			return false;
+
+		for (int j = _starts[i]; j < _ends[i]; j++)
+		{
+			char c = _source.charAt(j);
+			if (c < '0' || c > '9')
+				return false;
+		}
+		return true;
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Parses token i as a decimal integer directly from the source line. The
+	 * accepted syntax is the same as Integer.parseInt.
+	 *
+	 * @return the value of token i
+	 * @throws NumberFormatException
+	 *             if token i is not an integer
+	 */
+	public int parseInt(int i)
+	{
+		int start = _starts[check(i)];
+		int end = _ends[i];
+
+		boolean negative = false;
+		if (start < end)
+		{
+			char sign = _source.charAt(start);
+			if (sign == '-' || sign == '+')
+			{
+				negative = (sign == '-');
+				start++;
+			}
+		}
+		if (start == end)
+			throw new NumberFormatException("For input string: \"" + get(i)
+					+ "\"");
+
+		// accumulate negatively so that Integer.MIN_VALUE is representable
+		int limit = (negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE);
+		int result = 0;
+		for (int j = start; j < end; j++)
+		{
+			int digit = Character.digit(_source.charAt(j), 10);
+			if (digit < 0 || result < limit / 10)
+				throw new NumberFormatException("For input string: \""
+						+ get(i) + "\"");
+			result *= 10;
+			if (result < limit + digit)
+				throw new NumberFormatException("For input string: \""
+						+ get(i) + "\"");
+			result -= digit;
+		}
+		return (negative ? result : -result);
+	}
+
+	/**
+	 * Parses token i as a double. The syntax is the same as
+	 * Double.parseDouble.
+	 *
+	 * @return the value of token i
+	 * @throws NumberFormatException
+	 *             if token i is not a number
+	 */
+	public double parseDouble(int i)
+	{
+		return Double.parseDouble(get(i));
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	// CharSequence -- the text of the statement from its first to its last token
+
+	@Override
+	public int length()
+	{
+		return (_count == 0 ? 0 : _ends[_count - 1] - _starts[0]);
+	}
+
+	@Override
+	public char charAt(int index)
+	{
+		if (index < 0 || index >= length())
+			throw new IndexOutOfBoundsException("index " + index);
+		return _source.charAt(_starts[0] + index);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end)
+	{
+		if (start < 0 || end > length() || start > end)
+			throw new IndexOutOfBoundsException("[" + start + "," + end + ")");
+		return _source.subSequence(_starts[0] + start, _starts[0] + end);
+	}
+
+	/**
+	 * @return the text of the statement, as it appeared in the source line
+	 */
+	@Override
+	public String toString()
+	{
+		if (_count == 0)
+			return "";
+		return _source.subSequence(_starts[0], _ends[_count - 1]).toString();
+	}
+
+	private int check(int i)
+	{
+		if (i < 0 || i >= _count)
+			throw new ArrayIndexOutOfBoundsException(i);
+		return i;
+	}
+}
@@ -0,0 +1,198 @@
+package acg.project.cli.parser;
+
+import acg.architecture.datatype.CoordinateWorld;
+import acg.architecture.datatype.Latitude;
+import acg.architecture.datatype.Longitude;
+
+//==================================================================================================================================================================================
+/**
+ * Reads a coordinates token straight from the command line, for every parser
+ * that takes coordinates (CREATE CARRIER, TANKER and airborne FIGHTER, @DO
+ * FORCE COORDINATES). No Strings are cut out of the token.
+ *
+ * Two forms are accepted:
+ *
+ * 45*30'15"/110*30'10" - degrees, minutes and seconds; degrees and minutes are
+ * integers, seconds a decimal number on [0,60)
+ *
+ * 45.504167/110.502778 - decimal degrees, for generated scripts
+ *
+ * Latitude is on [0,90] and longitude on [0,180] in both forms.
+ */
+public final class CoordinateScanner
+{
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4,
+			1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15 };
+
+	private static final int VALID = 0;
+
+	private static final int MALFORMED = 1;
+
+	private static final int OUT_OF_RANGE = 2;
+
+	// Note: No instances, the scanner keeps no state.
+	private CoordinateScanner()
+	{
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Reads token i of a statement as coordinates.
+	 *
+	 * @param tokens
+	 *            - the statement
+	 * @param i
+	 *            - the index of the coordinates token
+	 * @return the coordinates
+	 * @throws ParseException
+	 *             if the token is not valid coordinates
+	 */
+	public static CoordinateWorld scan(CommandTokens tokens, int i)
+			throws ParseException
+	{
+		CharSequence line = tokens.getSource();
+		int start = tokens.start(i);
+		int end = tokens.end(i);
+
+		int slash = indexOf(line, '/', start, end);
+		if (slash < 0)
+			throw invalid(tokens, i, "Invalid Coordinates > ");
+
+		double latitude;
+		double longitude;
+		if (indexOf(line, '*', start, end) < 0)
+		{
+			latitude = decimal(line, start, slash);
+			longitude = decimal(line, slash + 1, end);
+			if (Double.isNaN(latitude) || Double.isNaN(longitude))
+				throw invalid(tokens, i, "Invalid Coordinates > ");
+		} else
+		{
+			int latitudeForm = check(line, start, slash, 90);
+			int longitudeForm = check(line, slash + 1, end, 180);
+			if (latitudeForm == MALFORMED || longitudeForm == MALFORMED)
+				throw invalid(tokens, i, "Invalid Coordinates > ");
+			if (latitudeForm == OUT_OF_RANGE)
+				throw invalid(tokens, i, "Invalid Latitude Coordinates >");
+			if (longitudeForm == OUT_OF_RANGE)
+				throw invalid(tokens, i, "Invalid Longitude Coordinates >");
+
+			return new CoordinateWorld(dmsLatitude(line, start, slash),
+					dmsLongitude(line, slash + 1, end));
+		}
+
+		if (!(latitude >= 0 && latitude <= 90))
+			throw invalid(tokens, i, "Invalid Latitude Coordinates >");
+		if (!(longitude >= 0 && longitude <= 180))
+			throw invalid(tokens, i, "Invalid Longitude Coordinates >");
+
+		return new CoordinateWorld(new Latitude(latitude), new Longitude(
+				longitude));
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	// Checks one D*M'S" half; the values are read again by dmsLatitude() and
+	// dmsLongitude() once both halves are known to be good.
+	// @return VALID, MALFORMED or OUT_OF_RANGE
+	private static int check(CharSequence line, int from, int to,
+			int maxDegrees)
+	{
+		int star = indexOf(line, '*', from, to);
+		int tick = indexOf(line, '\'', star + 1, to);
+		if (star < 0 || tick < 0 || to - 1 <= tick
+				|| line.charAt(to - 1) != '"')
+			return MALFORMED;
+
+		int degrees = integer(line, from, star);
+		int minutes = integer(line, star + 1, tick);
+		double seconds = decimal(line, tick + 1, to - 1);
+		if (degrees < 0 || minutes < 0 || Double.isNaN(seconds))
+			return MALFORMED;
+
+		if (degrees > maxDegrees || minutes >= 60 || seconds >= 60)
+			return OUT_OF_RANGE;
+		return VALID;
+	}
+
+	private static Latitude dmsLatitude(CharSequence line, int from, int to)
+	{
+		int star = indexOf(line, '*', from, to);
+		int tick = indexOf(line, '\'', star + 1, to);
+		return new Latitude(integer(line, from, star), integer(line,
+				star + 1, tick), decimal(line, tick + 1, to - 1));
+	}
+
+	private static Longitude dmsLongitude(CharSequence line, int from, int to)
+	{
+		int star = indexOf(line, '*', from, to);
+		int tick = indexOf(line, '\'', star + 1, to);
+		return new Longitude(integer(line, from, star), integer(line,
+				star + 1, tick), decimal(line, tick + 1, to - 1));
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	// @return the non-negative integer in [from,to), or -1 if there is none
+	private static int integer(CharSequence line, int from, int to)
+	{
+		if (from >= to || to - from > 9)
+			return -1;
+
+		int value = 0;
+		for (int i = from; i < to; i++)
+		{
+			char c = line.charAt(i);
+			if (c < '0' || c > '9')
+				return -1;
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+
+	// @return the non-negative decimal number in [from,to) as digits with an
+	// optional fraction, or NaN if there is none
+	private static double decimal(CharSequence line, int from, int to)
+	{
+		long mantissa = 0;
+		int digits = 0;
+		int fraction = -1;
+
+		for (int i = from; i < to; i++)
+		{
+			char c = line.charAt(i);
+			if (c == '.' && fraction < 0)
+				fraction = 0;
+			else if (c >= '0' && c <= '9')
+			{
+				mantissa = mantissa * 10 + (c - '0');
+				digits++;
+				if (fraction >= 0)
+					fraction++;
+				if (digits == POWERS_OF_TEN.length)
+					return Double.parseDouble(line.subSequence(from, to)
+							.toString());
+			} else
+				return Double.NaN;
+		}
+		if (digits == 0)
+			return Double.NaN;
+
+		// Note: Both operands are exact, so the quotient is rounded once,
+		// exactly as Double.parseDouble would round it.
+		return (fraction > 0 ? mantissa / POWERS_OF_TEN[fraction] : mantissa);
+	}
+
+	private static int indexOf(CharSequence line, char c, int from, int to)
+	{
+		for (int i = from; i < to; i++)
+			if (line.charAt(i) == c)
+				return i;
+		return -1;
+	}
+
+	private static ParseFailure invalid(CommandTokens tokens, int i,
+			String message)
+	{
+		return new ParseFailure(E_ParseError.INVALID_COORDINATES, i, message,
+				tokens.get(i), "");
+	}
+}
@@ -0,0 +1,159 @@
+package acg.project.cli.parser;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import acg.architecture.datatype.Altitude;
+import acg.architecture.datatype.AngleNavigational;
+import acg.architecture.datatype.Percent;
+import acg.architecture.datatype.Rate;
+import acg.architecture.datatype.Speed;
+import acg.architecture.datatype.Weight;
+
+//==================================================================================================================================================================================
+/**
+ * Canonical instances of the datatypes the parsers build from numeric tokens
+ * (identifiers are interned by SymbolTable). The datatypes are immutable, so
+ * one instance per value can be shared by every command that uses it.
+ *
+ * Each numeric type keeps a fixed table of whole values on a grid (every
+ * heading, every speed up to 1023 knots, every altitude in hundreds of feet up
+ * to 100000 feet, ...); entries are created on first use. Values off the grid
+ * are created fresh every time.
+ *
+ * All methods are thread-safe.
+ */
+public final class DatatypeCache
+{
+	private static final Table<AngleNavigational> ANGLES = new Table<AngleNavigational>(
+			1, 360)
+	{
+		@Override
+		protected AngleNavigational create(double value)
+		{
+			return new AngleNavigational(value);
+		}
+	};
+
+	private static final Table<Speed> SPEEDS = new Table<Speed>(1, 1023)
+	{
+		@Override
+		protected Speed create(double value)
+		{
+			return new Speed(value);
+		}
+	};
+
+	private static final Table<Altitude> ALTITUDES = new Table<Altitude>(100,
+			100000)
+	{
+		@Override
+		protected Altitude create(double value)
+		{
+			return new Altitude(value);
+		}
+	};
+
+	private static final Table<Weight> WEIGHTS = new Table<Weight>(100, 100000)
+	{
+		@Override
+		protected Weight create(double value)
+		{
+			return new Weight(value);
+		}
+	};
+
+	private static final Table<Percent> PERCENTS = new Table<Percent>(1, 100)
+	{
+		@Override
+		protected Percent create(double value)
+		{
+			return new Percent(value);
+		}
+	};
+
+	private static final Table<Rate> RATES = new Table<Rate>(1, 1000)
+	{
+		@Override
+		protected Rate create(double value)
+		{
+			return new Rate((int) value);
+		}
+	};
+
+	// Note: No instances, all state is shared.
+	private DatatypeCache()
+	{
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	public static AngleNavigational angle(double degrees)
+	{
+		return ANGLES.get(degrees);
+	}
+
+	public static Speed speed(double knots)
+	{
+		return SPEEDS.get(knots);
+	}
+
+	public static Altitude altitude(double feet)
+	{
+		return ALTITUDES.get(feet);
+	}
+
+	public static Weight weight(double pounds)
+	{
+		return WEIGHTS.get(pounds);
+	}
+
+	public static Percent percent(double percent)
+	{
+		return PERCENTS.get(percent);
+	}
+
+	public static Rate rate(int rate)
+	{
+		return RATES.get(rate);
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * The instances of one datatype for the values 0, step, 2*step, ... max.
+	 */
+	private static abstract class Table<T>
+	{
+		private final int _step;
+
+		private final AtomicReferenceArray<T> _values;
+
+		protected Table(int step, int max)
+		{
+			_step = step;
+			_values = new AtomicReferenceArray<T>(max / step + 1);
+		}
+
+		protected abstract T create(double value);
+
+		public T get(double value)
+		{
+			// Note: -0.0 has its sign bit set and is left off the grid.
+			int whole = (int) value;
+			if (whole != value || whole % _step != 0
+					|| Double.doubleToRawLongBits(value) < 0)
+				return create(value);
+
+			int index = whole / _step;
+			if (index >= _values.length())
+				return create(value);
+
+			T instance = _values.get(index);
+			if (instance == null)
+			{
+				instance = create(value);
+				if (!_values.compareAndSet(index, null, instance))
+					instance = _values.get(index);
+			}
+			return instance;
+		}
+	}
+}
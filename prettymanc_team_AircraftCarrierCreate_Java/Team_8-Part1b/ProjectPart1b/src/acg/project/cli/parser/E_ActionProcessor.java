@@ -0,0 +1,52 @@
+package acg.project.cli.parser;
+
+import acg.project.action.command.A_Command;
+import acg.project.action.command.behavioral.A_CommandBehavioral;
+import acg.project.action.command.creational.define.A_CommandCreationalDefine;
+import acg.project.action.command.creational.define.CommandCreationalListTemplates;
+import acg.project.action.command.creational.define.CommandCreationalShowTemplate;
+import acg.project.action.command.miscellaneous.A_CommandMisc;
+import acg.project.action.command.structural.A_CommandStructural;
+
+//==================================================================================================================================================================================
+/**
+ * The action processors of an ActionSet, i.e. where a parsed command is
+ * executed.
+ */
+public enum E_ActionProcessor
+{
+	/** ActionCreationalDefine: templates (DEFINE, UNDEFINE, SHOW, LIST). */
+	DEFINE,
+
+	/** ActionCreationalCreate: agents (CREATE, UNCREATE, DESCRIBE, LIST). */
+	CREATE,
+
+	/** ActionStructural: POPULATE and COMMIT. */
+	STRUCTURAL,
+
+	/** ActionBehavioral: DO, @DO, GET and SET. */
+	BEHAVIORAL,
+
+	/** ActionMiscellaneous: @CLOCK, @RUN, @WAIT and @EXIT. */
+	MISCELLANEOUS;
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * @return the processor that executes the command
+	 */
+	public static E_ActionProcessor of(A_Command<?> command)
+	{
+		// behavioral commands are by far the most common, so test them first
+		if (command instanceof A_CommandBehavioral)
+			return BEHAVIORAL;
+		if (command instanceof A_CommandMisc)
+			return MISCELLANEOUS;
+		if (command instanceof A_CommandStructural)
+			return STRUCTURAL;
+		if (command instanceof A_CommandCreationalDefine
+				|| command instanceof CommandCreationalShowTemplate
+				|| command instanceof CommandCreationalListTemplates)
+			return DEFINE;
+		return CREATE;
+	}
+}
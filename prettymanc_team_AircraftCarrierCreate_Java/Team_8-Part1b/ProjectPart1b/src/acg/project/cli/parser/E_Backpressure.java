@@ -0,0 +1,18 @@
+package acg.project.cli.parser;
+
+//==================================================================================================================================================================================
+/**
+ * What a SubmissionQueue does with a command when it is full, i.e. when the
+ * simulation has fallen behind the input.
+ */
+public enum E_Backpressure
+{
+	/** The submitting thread waits until there is room. Nothing is lost. */
+	BLOCK,
+
+	/** The command is discarded and counted; the submitter goes on. */
+	DROP,
+
+	/** The submitter gets a RejectedExecutionException. */
+	REJECT
+}
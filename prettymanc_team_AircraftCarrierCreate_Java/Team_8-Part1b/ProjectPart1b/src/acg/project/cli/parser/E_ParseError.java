@@ -0,0 +1,26 @@
+package acg.project.cli.parser;
+
+//==================================================================================================================================================================================
+/**
+ * Why a statement was rejected, as reported by ParseResult.
+ */
+public enum E_ParseError
+{
+	/** The statement does not have the form of any command. */
+	INVALID_COMMAND,
+
+	/** A value is out of range or not allowed here. */
+	INVALID_VALUE,
+
+	/** A number could not be read. */
+	INVALID_NUMBER,
+
+	/** Coordinates are malformed or out of range. */
+	INVALID_COORDINATES,
+
+	/** A template is unknown or of the wrong kind. */
+	INVALID_TEMPLATE,
+
+	/** A file named by the command does not exist. */
+	INVALID_FILENAME
+}
@@ -0,0 +1,455 @@
+package acg.project.cli.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+//==================================================================================================================================================================================
+/**
+ * Follows a growing command file for @FOLLOW, like tail -F: the lines already
+ * in the file are run first, then every line appended to it as it arrives.
+ *
+ * The file is read from where the last read stopped, never from the start
+ * again, and a line is only parsed once its line end has been written. A
+ * WatchService on the file's directory wakes the follower when the file
+ * changes; without changes it sleeps, and looks at the file every POLL_MILLIS
+ * only in case the platform's watch service missed an event.
+ *
+ * The follower survives the file being rotated. When the file is replaced
+ * (renamed away and created anew, or deleted and created anew), the rest of
+ * the old file is read to its end and the new file is followed from its
+ * start. When the file is truncated in place, it is followed from its start.
+ *
+ * Like @RUN, each line is echoed as "F> line", and a line that does not parse
+ * is reported as "invalid command: ..." without stopping the follower. Bytes
+ * are read as ISO-8859-1.
+ *
+ * Every follower parses and submits on a thread of its own, so the target
+ * must be an I_ThreadSafeCommandTarget, e.g. a SubmissionQueue in front of
+ * the ActionSet.
+ */
+public final class FileFollower implements AutoCloseable
+{
+	/** The most milliseconds a follower sleeps without looking at the file. */
+	public static final long POLL_MILLIS = 1000;
+
+	// Bytes read at a time
+	private static final int READ_BUFFER = 1 << 16;
+
+	// The followers of @FOLLOW, by absolute path
+	private static final ConcurrentMap<Path, FileFollower> FOLLOWERS = new ConcurrentHashMap<Path, FileFollower>();
+
+	private final Path _file;
+
+	private final CommandParser _parser;
+
+	private final PrintStream _echo;
+
+	private final PrintStream _errors;
+
+	private final WatchService _watcher;
+
+	private final Thread _thread;
+
+	private volatile boolean _closed;
+
+	// Everything below only the follower thread touches
+	private FileChannel _channel;
+
+	// what identifies the file followed, to notice its replacement
+	private Object _identity;
+
+	private long _position;
+
+	private final ByteBuffer _buffer = ByteBuffer.allocate(READ_BUFFER);
+
+	// the bytes of a line whose line end has not been written yet
+	private byte[] _partial = new byte[256];
+
+	private int _partialLength;
+
+	// guarded by this
+	private long _lines;
+
+	private long _rejected;
+
+	private long _rotations;
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Constructor. The file is followed from here on, until close().
+	 *
+	 * @param file
+	 *            - the file; it need not exist yet
+	 * @param target
+	 *            - where the commands are submitted
+	 * @param echo
+	 *            - where the lines are echoed, or null for none
+	 * @param errors
+	 *            - where rejected lines are reported, or null for none
+	 * @throws IOException
+	 *             if the file's directory cannot be watched
+	 */
+	public FileFollower(File file, I_ThreadSafeCommandTarget target,
+			PrintStream echo,
+			PrintStream errors) throws IOException
+	{
+		_file = file.toPath().toAbsolutePath().normalize();
+		_parser = new CommandParser(target);
+		_echo = echo;
+		_errors = errors;
+
+		_watcher = _file.getFileSystem().newWatchService();
+		try
+		{
+			_file.getParent().register(_watcher,
+					StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY,
+					StandardWatchEventKinds.ENTRY_DELETE);
+		} catch (IOException | RuntimeException exception)
+		{
+			_watcher.close();
+			throw exception;
+		}
+
+		_thread = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				follow();
+			}
+		}, "@FOLLOW " + _file.getFileName());
+		_thread.setDaemon(true);
+		_thread.start();
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Starts following a file for @FOLLOW, echoing to System.out and
+	 * reporting to System.err.
+	 *
+	 * @param file
+	 *            - the file
+	 * @param target
+	 *            - where the commands are submitted
+	 * @return the follower, or null if the file is followed already
+	 * @throws IOException
+	 *             if the file's directory cannot be watched
+	 */
+	public static FileFollower follow(File file,
+			I_ThreadSafeCommandTarget target)
+			throws IOException
+	{
+		Path path = file.toPath().toAbsolutePath().normalize();
+		if (FOLLOWERS.containsKey(path))
+			return null;
+
+		FileFollower follower = new FileFollower(file, target, System.out,
+				System.err);
+		if (FOLLOWERS.putIfAbsent(path, follower) != null)
+		{
+			// Note: Another thread started following it meanwhile.
+			follower.close();
+			return null;
+		}
+		return follower;
+	}
+
+	/**
+	 * Stops following a file followed with follow().
+	 *
+	 * @param file
+	 *            - the file
+	 * @return false if the file was not followed
+	 */
+	public static boolean stop(File file)
+	{
+		FileFollower follower = FOLLOWERS.remove(file.toPath()
+				.toAbsolutePath().normalize());
+		if (follower == null)
+			return false;
+		follower.close();
+		return true;
+	}
+
+	/**
+	 * @return the followers started with follow() and not stopped yet
+	 */
+	public static List<FileFollower> getFollowers()
+	{
+		return new ArrayList<FileFollower>(FOLLOWERS.values());
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Stops following and waits for the follower thread. Commands already
+	 * submitted stay submitted.
+	 */
+	@Override
+	public void close()
+	{
+		if (_closed)
+			return;
+		_closed = true;
+
+		FOLLOWERS.remove(_file, this);
+		try
+		{
+			_watcher.close();
+		} catch (IOException exception)
+		{
+			// Note: Nothing to be done; the follower stops either way.
+		}
+		if (Thread.currentThread() == _thread)
+			return;
+
+		boolean interrupted = false;
+		while (true)
+		{
+			try
+			{
+				_thread.join();
+				break;
+			} catch (InterruptedException exception)
+			{
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * @return the file followed
+	 */
+	public File getFile()
+	{
+		return _file.toFile();
+	}
+
+	/**
+	 * @return true until closed, or until following failed
+	 */
+	public boolean isOpen()
+	{
+		return _thread.isAlive() && !_closed;
+	}
+
+	/**
+	 * @return the number of lines parsed
+	 */
+	public synchronized long getLines()
+	{
+		return _lines;
+	}
+
+	/**
+	 * @return the number of lines rejected
+	 */
+	public synchronized long getRejected()
+	{
+		return _rejected;
+	}
+
+	/**
+	 * @return how often the file was replaced or truncated
+	 */
+	public synchronized long getRotations()
+	{
+		return _rotations;
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		return _file + (isOpen() ? "" : " (closed)") + ": lines=" + _lines
+				+ " rejected=" + _rejected + " rotations=" + _rotations;
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	private void follow()
+	{
+		try
+		{
+			while (!_closed)
+			{
+				catchUp();
+
+				// Note: Every event only means "look again"; which file of the
+				// directory changed and how is left to catchUp().
+				WatchKey key = _watcher.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+				while (key != null)
+				{
+					key.pollEvents();
+					key.reset();
+					key = _watcher.poll();
+				}
+			}
+		} catch (ClosedWatchServiceException exception)
+		{
+			// Note: close() wakes the follower this way.
+		} catch (InterruptedException exception)
+		{
+			Thread.currentThread().interrupt();
+		} catch (IOException | RuntimeException exception)
+		{
+			if (!_closed && _errors != null)
+				_errors.println("@FOLLOW " + _file + " failed: " + exception);
+		} finally
+		{
+			closeChannel();
+			FOLLOWERS.remove(_file, this);
+		}
+	}
+
+	// Reads what was appended, and moves on to a new file if the file has been
+	// replaced or truncated
+	private void catchUp() throws IOException
+	{
+		if (_channel != null)
+			read();
+
+		BasicFileAttributes attributes;
+		try
+		{
+			attributes = Files.readAttributes(_file, BasicFileAttributes.class);
+		} catch (NoSuchFileException exception)
+		{
+			// renamed or deleted, and not created anew yet: the old file has
+			// been read to its end, its new successor is waited for
+			return;
+		}
+
+		Object identity = (attributes.fileKey() != null ? attributes.fileKey()
+				: attributes.creationTime());
+		if (_channel == null || !identity.equals(_identity))
+		{
+			if (_channel != null)
+			{
+				// the last line of the old file will not be ended any more
+				endLine();
+				closeChannel();
+				rotated();
+			}
+			try
+			{
+				_channel = FileChannel.open(_file, StandardOpenOption.READ);
+			} catch (NoSuchFileException exception)
+			{
+				return;
+			}
+			_identity = identity;
+			_position = 0;
+		} else if (_channel.size() < _position)
+		{
+			// truncated in place: what was not ended belonged to the old
+			// content
+			_partialLength = 0;
+			_position = 0;
+			rotated();
+		}
+		read();
+	}
+
+	private void read() throws IOException
+	{
+		while (true)
+		{
+			_buffer.clear();
+			int count = _channel.read(_buffer, _position);
+			if (count <= 0)
+				return;
+			_position += count;
+
+			byte[] bytes = _buffer.array();
+			for (int i = 0; i < count; i++)
+			{
+				if (bytes[i] == '\n')
+				{
+					endLine();
+					continue;
+				}
+				if (_partialLength == _partial.length)
+					_partial = Arrays.copyOf(_partial, _partial.length * 2);
+				_partial[_partialLength++] = bytes[i];
+			}
+		}
+	}
+
+	// Parses the line collected so far
+	private void endLine()
+	{
+		int length = _partialLength;
+		_partialLength = 0;
+		if (length > 0 && _partial[length - 1] == '\r')
+			length--;
+
+		String line = new String(_partial, 0, length,
+				StandardCharsets.ISO_8859_1);
+		if (line.trim().isEmpty())
+			return;
+
+		if (_echo != null)
+			_echo.println("F> " + line);
+
+		boolean valid = false;
+		try
+		{
+			ParseResult result = _parser.parse(line);
+			valid = result.isValid();
+			if (!valid && _errors != null)
+				_errors.println("invalid command: " + result.getException());
+		} catch (RuntimeException exception)
+		{
+			// Note: A live feed goes on after a line the parsers or the target
+			// failed on.
+			if (_errors != null)
+				_errors.println("command failed: " + exception);
+		}
+
+		synchronized (this)
+		{
+			_lines++;
+			if (!valid)
+				_rejected++;
+		}
+	}
+
+	private synchronized void rotated()
+	{
+		_rotations++;
+	}
+
+	private void closeChannel()
+	{
+		if (_channel == null)
+			return;
+		try
+		{
+			_channel.close();
+		} catch (IOException exception)
+		{
+			// Note: Nothing to be done; it was only read.
+		}
+		_channel = null;
+	}
+}
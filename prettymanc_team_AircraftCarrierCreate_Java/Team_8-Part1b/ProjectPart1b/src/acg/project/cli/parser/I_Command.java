@@ -16,4 +16,24 @@ public interface I_Command
 	 * @throws ParseException
 	 */
 	public void parseCommand(ActionSet actionset, String command) throws ParseException;
+
+	/**
+	 * Parses a statement that has already been scanned by CommandLexer and
+	 * submits the resulting command to target.
+	 * 
+	 * @param target
+	 * @param command
+	 * @throws ParseException
+	 */
+	public void parseCommand(I_CommandTarget target, CommandTokens command) throws ParseException;
+
+	/**
+	 * Parses a statement like parseCommand(target, command), but returns a
+	 * rejected statement as a result instead of throwing.
+	 * 
+	 * @param target
+	 * @param command
+	 * @return ParseResult.VALID, or why the statement was rejected
+	 */
+	public ParseResult parse(I_CommandTarget target, CommandTokens command);
 }
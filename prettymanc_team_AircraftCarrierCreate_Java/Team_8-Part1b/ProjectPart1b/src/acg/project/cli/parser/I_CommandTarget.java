@@ -0,0 +1,34 @@
+package acg.project.cli.parser;
+
+import acg.architecture.datatype.Identifier;
+import acg.project.action.command.A_Command;
+import acg.project.action.command.creational.define.A_CommandCreationalDefine;
+
+//==================================================================================================================================================================================
+/**
+ * Where the parsers deliver the commands they build.
+ *
+ * In the simulation this is the ActionSet (see ActionSetTarget). Keeping the
+ * parsers behind this interface lets them run without the desktop that an
+ * ActionSet brings up, e.g. in benchmarks or when checking a script.
+ */
+public interface I_CommandTarget
+{
+	/**
+	 * Submits a parsed command to the action processor that executes it.
+	 *
+	 * @param command
+	 *            - the command, not yet bound to an action
+	 */
+	public void submit(A_Command<?> command);
+
+	/**
+	 * Looks up a template that has already been defined. CREATE BOOM needs it
+	 * to tell a male boom from a female one.
+	 *
+	 * @param tid
+	 *            - the template identifier
+	 * @return the template definition, or null if tid is not defined
+	 */
+	public A_CommandCreationalDefine getTemplate(Identifier tid);
+}
@@ -0,0 +1,24 @@
+package acg.project.cli.parser;
+
+//==================================================================================================================================================================================
+/**
+ * Sends items to subscribers as fast as they request them, which lets a slow
+ * consumer slow its producers down. Like java.util.concurrent.Flow.Publisher.
+ *
+ * Note: The project targets Java 7, which has no java.util.concurrent.Flow.
+ * These interfaces have the same methods, so a one-line adapter bridges
+ * them to Flow where a later Java is available.
+ *
+ * @param <T>
+ *            - the type of the items
+ */
+public interface I_Publisher<T>
+{
+	/**
+	 * Adds a subscriber; it is given its subscription through onSubscribe.
+	 * A publisher that cannot take the subscriber calls onError instead.
+	 *
+	 * @param subscriber
+	 */
+	public void subscribe(I_Subscriber<? super T> subscriber);
+}
@@ -0,0 +1,41 @@
+package acg.project.cli.parser;
+
+//==================================================================================================================================================================================
+/**
+ * Receives the items of an I_Publisher, never more than it has requested.
+ * Like java.util.concurrent.Flow.Subscriber.
+ *
+ * The calls come one at a time, in this order: onSubscribe, any number of
+ * onNext, then at most one of onError and onComplete.
+ *
+ * @param <T>
+ *            - the type of the items
+ */
+public interface I_Subscriber<T>
+{
+	/**
+	 * Called first, with the subscription to request items through.
+	 *
+	 * @param subscription
+	 */
+	public void onSubscribe(I_Subscription subscription);
+
+	/**
+	 * Called with the next item.
+	 *
+	 * @param item
+	 */
+	public void onNext(T item);
+
+	/**
+	 * Called when the publisher has failed; nothing follows.
+	 *
+	 * @param throwable
+	 */
+	public void onError(Throwable throwable);
+
+	/**
+	 * Called after the last item; nothing follows.
+	 */
+	public void onComplete();
+}
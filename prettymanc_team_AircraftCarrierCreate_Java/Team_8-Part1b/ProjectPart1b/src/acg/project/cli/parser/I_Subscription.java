@@ -0,0 +1,24 @@
+package acg.project.cli.parser;
+
+//==================================================================================================================================================================================
+/**
+ * The link between one I_Publisher and one I_Subscriber, through which the
+ * subscriber asks for items. Like java.util.concurrent.Flow.Subscription.
+ */
+public interface I_Subscription
+{
+	/**
+	 * Asks for up to n more items. Demand adds up; Long.MAX_VALUE means
+	 * unbounded. May be called from any thread, also from within onNext.
+	 *
+	 * @param n
+	 *            - the number of items, at least 1
+	 */
+	public void request(long n);
+
+	/**
+	 * Asks the publisher to stop sending items. Items already on their way
+	 * may still arrive.
+	 */
+	public void cancel();
+}
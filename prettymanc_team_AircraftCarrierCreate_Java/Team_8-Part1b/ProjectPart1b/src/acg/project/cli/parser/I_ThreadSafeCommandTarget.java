@@ -0,0 +1,15 @@
+package acg.project.cli.parser;
+
+//==================================================================================================================================================================================
+/**
+ * Marks a target that any number of threads may submit to at once, keeping
+ * the order of each submitter, e.g. a SubmissionQueue.
+ *
+ * @FOLLOW and the CommandServer submit from threads of their own, so they
+ * only take a target marked this way. A target that only collects the
+ * commands of the line being parsed (the collector of a script, the capture
+ * of a CommandProcessor) is not one.
+ */
+public interface I_ThreadSafeCommandTarget extends I_CommandTarget
+{
+}
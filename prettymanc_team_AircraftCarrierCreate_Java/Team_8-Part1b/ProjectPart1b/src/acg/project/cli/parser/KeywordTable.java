@@ -0,0 +1,139 @@
+package acg.project.cli.parser;
+
+//==================================================================================================================================================================================
+/**
+ * Case-insensitive keyword lookup for command dispatch.
+ *
+ * The table is an open-addressed hash table that is filled once and read many
+ * times. A lookup hashes the characters of a token directly in the source
+ * line and compares them in place, so finding the handler for a verb costs the
+ * same no matter how many verbs are registered and creates no Strings.
+ *
+ * Lookups are safe from several threads once the table has been filled.
+ *
+ * @param <V>
+ *            - the value stored under each keyword
+ */
+public final class KeywordTable<V>
+{
+	private static final int INITIAL_CAPACITY = 32;
+
+	private String[] _keys = new String[INITIAL_CAPACITY];
+
+	private Object[] _values = new Object[INITIAL_CAPACITY];
+
+	private int _size;
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Adds or replaces a keyword.
+	 *
+	 * @param keyword
+	 *            - the keyword, in any case
+	 * @param value
+	 *            - the value to return for it
+	 */
+	public void put(String keyword, V value)
+	{
+		if (keyword == null || keyword.isEmpty() || value == null)
+			throw new IllegalArgumentException("invalid keyword entry > "
+					+ keyword);
+
+		// keep the load factor at or below one half
+		if ((_size + 1) * 2 > _keys.length)
+			grow();
+
+		int slot = find(keyword, 0, keyword.length());
+		if (_keys[slot] == null)
+		{
+			_keys[slot] = keyword;
+			_size++;
+		}
+		_values[slot] = value;
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * @return the value stored for token i of the statement, or null if the
+	 *         token is not a keyword (or does not exist)
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(CommandTokens tokens, int i)
+	{
+		if (i < 0 || i >= tokens.size())
+			return null;
+		return (V) _values[find(tokens.getSource(), tokens.start(i),
+				tokens.end(i))];
+	}
+
+	/**
+	 * @return the value stored for keyword, or null if it is not a keyword
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(CharSequence keyword)
+	{
+		return (V) _values[find(keyword, 0, keyword.length())];
+	}
+
+	/**
+	 * @return the number of keywords in the table
+	 */
+	public int size()
+	{
+		return _size;
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	// Finds the slot holding source[start, end), or the empty slot where it
+	// belongs. The table always has at least one empty slot, so this ends.
+	private int find(CharSequence source, int start, int end)
+	{
+		int mask = _keys.length - 1;
+		int slot = hash(source, start, end) & mask;
+
+		while (_keys[slot] != null && !matches(_keys[slot], source, start, end))
+			slot = (slot + 1) & mask;
+
+		return slot;
+	}
+
+	private static int hash(CharSequence source, int start, int end)
+	{
+		int h = 0;
+		for (int i = start; i < end; i++)
+			h = 31 * h + Character.toUpperCase(source.charAt(i));
+
+		// spread the high bits so that short keys use the whole table
+		return h ^ (h >>> 16);
+	}
+
+	private static boolean matches(String key, CharSequence source, int start,
+			int end)
+	{
+		if (key.length() != end - start)
+			return false;
+
+		for (int i = 0; i < key.length(); i++)
+			if (Character.toUpperCase(key.charAt(i)) != Character
+					.toUpperCase(source.charAt(start + i)))
+				return false;
+		return true;
+	}
+
+	private void grow()
+	{
+		String[] keys = _keys;
+		Object[] values = _values;
+
+		_keys = new String[keys.length * 2];
+		_values = new Object[keys.length * 2];
+
+		for (int i = 0; i < keys.length; i++)
+			if (keys[i] != null)
+			{
+				int slot = find(keys[i], 0, keys[i].length());
+				_keys[slot] = keys[i];
+				_values[slot] = values[i];
+			}
+	}
+}
@@ -0,0 +1,81 @@
+package acg.project.cli.parser;
+
+//==================================================================================================================================================================================
+/**
+ * The ParseException the parsers throw. It is cheap to throw: it has no stack
+ * trace, and its message is only put together when somebody asks for it.
+ *
+ * To callers of parseCommand it looks exactly like a ParseException, including
+ * its toString(); the result path turns it into a ParseResult instead.
+ */
+final class ParseFailure extends ParseException
+{
+	private static final long serialVersionUID = 1L;
+
+	private final E_ParseError _error;
+
+	private final int _token;
+
+	private final String _prefix;
+
+	private final Object _subject;
+
+	private final String _suffix;
+
+	private String _message;
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Constructor. The message is prefix + subject + suffix.
+	 *
+	 * @param error
+	 *            - the kind of failure
+	 * @param token
+	 *            - the offending token, or -1 if no single token is at fault
+	 * @param prefix
+	 * @param subject
+	 *            - usually the statement or the rejected value
+	 * @param suffix
+	 */
+	ParseFailure(E_ParseError error, int token, String prefix, Object subject,
+			String suffix)
+	{
+		_error = error;
+		_token = token;
+		_prefix = prefix;
+		_subject = subject;
+		_suffix = suffix;
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	E_ParseError getError()
+	{
+		return _error;
+	}
+
+	int getToken()
+	{
+		return _token;
+	}
+
+	@Override
+	public String getMessage()
+	{
+		if (_message == null)
+			_message = _prefix + _subject + _suffix;
+		return _message;
+	}
+
+	@Override
+	public String toString()
+	{
+		return ParseException.class.getName() + ": " + getMessage();
+	}
+
+	// Note: No stack trace; the failure is reported by its message.
+	@Override
+	public synchronized Throwable fillInStackTrace()
+	{
+		return this;
+	}
+}
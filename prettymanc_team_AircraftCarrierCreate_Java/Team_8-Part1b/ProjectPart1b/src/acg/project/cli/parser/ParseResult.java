@@ -0,0 +1,121 @@
+package acg.project.cli.parser;
+
+//==================================================================================================================================================================================
+/**
+ * Outcome of parsing one statement or line without exceptions.
+ *
+ * A rejected statement carries an error code and, where one token is at fault,
+ * its index and offset in the line. The message is the one parseCommand would
+ * have thrown; it is only built when getMessage() is called, so rejecting a
+ * line costs next to nothing until somebody looks at why.
+ */
+public final class ParseResult
+{
+	/** The result of every statement that parsed. */
+	public static final ParseResult VALID = new ParseResult(null, null, null);
+
+	private final E_ParseError _error;
+
+	private final CommandTokens _statement;
+
+	private final ParseException _exception;
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	private ParseResult(E_ParseError error, CommandTokens statement,
+			ParseException exception)
+	{
+		_error = error;
+		_statement = statement;
+		_exception = exception;
+	}
+
+	/**
+	 * @return the result for a statement the parsers rejected
+	 */
+	static ParseResult rejected(CommandTokens statement,
+			ParseException exception)
+	{
+		E_ParseError error = (exception instanceof ParseFailure ? ((ParseFailure) exception)
+				.getError() : E_ParseError.INVALID_COMMAND);
+		return new ParseResult(error, statement, exception);
+	}
+
+	/**
+	 * @return the result for a statement with a number that could not be read
+	 */
+	static ParseResult rejectedNumber(CommandTokens statement)
+	{
+		return new ParseResult(E_ParseError.INVALID_NUMBER, statement,
+				new ParseFailure(E_ParseError.INVALID_NUMBER, -1,
+						"Invalid number > ", statement, ""));
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * @return true if the statement parsed and its command was submitted
+	 */
+	public boolean isValid()
+	{
+		return (_error == null);
+	}
+
+	/**
+	 * @return why the statement was rejected, or null if it is valid
+	 */
+	public E_ParseError getError()
+	{
+		return _error;
+	}
+
+	/**
+	 * @return the rejected statement, or null
+	 */
+	public CommandTokens getStatement()
+	{
+		return _statement;
+	}
+
+	/**
+	 * @return the index of the offending token, or -1 if the statement is
+	 *         valid or no single token is at fault
+	 */
+	public int getToken()
+	{
+		if (_exception instanceof ParseFailure)
+			return ((ParseFailure) _exception).getToken();
+		return -1;
+	}
+
+	/**
+	 * @return the offset of the offending token in the line, or -1
+	 */
+	public int getOffset()
+	{
+		int token = getToken();
+		if (token < 0 || token >= _statement.size())
+			return -1;
+		return _statement.start(token);
+	}
+
+	/**
+	 * @return the message of the failure, or null if the statement is valid
+	 */
+	public String getMessage()
+	{
+		return (_exception == null ? null : _exception.getMessage());
+	}
+
+	/**
+	 * @return the failure as parseCommand would have thrown it, or null
+	 */
+	public ParseException getException()
+	{
+		return _exception;
+	}
+
+	@Override
+	public String toString()
+	{
+		return (isValid() ? "valid" : _error + ": " + getMessage());
+	}
+}
@@ -0,0 +1,74 @@
+package acg.project.cli.parser;
+
+import acg.project.action.command.A_Command;
+
+//==================================================================================================================================================================================
+/**
+ * What a CommandProcessor publishes: a command it parsed from a line, or the
+ * diagnostic for a line it rejected.
+ */
+public final class ParsedItem
+{
+	private final String _line;
+
+	private final A_Command<?> _command;
+
+	private final ParseResult _result;
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	private ParsedItem(String line, A_Command<?> command, ParseResult result)
+	{
+		_line = line;
+		_command = command;
+		_result = result;
+	}
+
+	static ParsedItem command(String line, A_Command<?> command)
+	{
+		return new ParsedItem(line, command, ParseResult.VALID);
+	}
+
+	static ParsedItem rejected(String line, ParseResult result)
+	{
+		return new ParsedItem(line, null, result);
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * @return true for a command, false for a diagnostic
+	 */
+	public boolean isCommand()
+	{
+		return (_command != null);
+	}
+
+	/**
+	 * @return the line the item comes from
+	 */
+	public String getLine()
+	{
+		return _line;
+	}
+
+	/**
+	 * @return the command, or null for a diagnostic
+	 */
+	public A_Command<?> getCommand()
+	{
+		return _command;
+	}
+
+	/**
+	 * @return ParseResult.VALID for a command, else why the line was rejected
+	 */
+	public ParseResult getResult()
+	{
+		return _result;
+	}
+
+	@Override
+	public String toString()
+	{
+		return (isCommand() ? _command.toString() : _result.toString());
+	}
+}
@@ -0,0 +1,357 @@
+package acg.project.cli.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import acg.architecture.datatype.Identifier;
+import acg.project.action.command.structural.CommandStructuralPopulateCarrier;
+import acg.project.action.command.structural.CommandStructuralPopulateWorld;
+
+//==================================================================================================================================================================================
+/**
+ * The agent identifiers of one POPULATE WORLD or POPULATE CARRIER command,
+ * submitted CHUNK_SIZE at a time so that no list of them all is ever built.
+ *
+ * The identifiers come from the command line or from a file. Either may use
+ * range expressions: f[1..500] stands for f1 to f500, and f[1..500]_ols for
+ * f1_ols to f500_ols. In a file the identifiers are separated by whitespace;
+ * // starts a comment that runs to the end of the line.
+ *
+ * The source is read twice: once to check and count it, once to submit. A
+ * malformed identifier or a population of more than MAX_AGENTS is therefore
+ * reported before anything is submitted, and progress can be reported
+ * against the total. The second reading submits no more than the first one
+ * counted; a file that changed in between is reported once what was counted
+ * has been submitted.
+ *
+ * Note: The names are not interned in the SymbolTable. A large population is
+ * mostly names that are named once here and never again on a command line.
+ */
+final class Population
+{
+	/**
+	 * The most identifiers one command carries; longer lists are submitted
+	 * as several commands of this size.
+	 */
+	static final int CHUNK_SIZE = 8192;
+
+	/** The most identifiers one POPULATE may populate with. */
+	static final int MAX_AGENTS = 1000000;
+
+	// Note: Progress is reported every PROGRESS_CHUNKS chunks and at the end,
+	// but only for populations of more than one chunk.
+	private static final int PROGRESS_CHUNKS = 16;
+
+	private final I_CommandTarget _target;
+
+	private final Identifier _carrier;
+
+	private final String _label;
+
+	private final PrintStream _progress;
+
+	private List<Identifier> _chunk;
+
+	private long _total;
+
+	// whether the list on the command line has any range expressions
+	private boolean _ranges;
+
+	private long _submitted;
+
+	private int _chunks;
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	private Population(I_CommandTarget target, Identifier carrier,
+			PrintStream progress)
+	{
+		_target = target;
+		_carrier = carrier;
+		_label = (carrier == null ? "POPULATE WORLD" : "POPULATE CARRIER "
+				+ carrier.getValue());
+		_progress = progress;
+	}
+
+	/**
+	 * Populates the world (carrier null) or a carrier with the identifiers
+	 * that follow token first: FROM <filename>, or a list of identifiers and
+	 * range expressions up to the end of the line or a // comment.
+	 *
+	 * @param progress
+	 *            - where progress is reported, or null
+	 * @throws ParseException
+	 *             if the file cannot be read, an identifier is malformed or
+	 *             there are more than MAX_AGENTS; nothing has been submitted
+	 *             then. Also if the file changed between the two readings;
+	 *             then the identifiers counted have been submitted.
+	 */
+	static void populate(I_CommandTarget target, Identifier carrier,
+			CommandTokens command, int first, PrintStream progress)
+			throws ParseException
+	{
+		Population population = new Population(target, carrier, progress);
+
+		if (command.size() == first + 2 && command.is(first, "FROM"))
+		{
+			File file = new File(command.get(first + 1));
+			population.start(population.readFile(file, command, first + 1,
+					false), command, first + 1);
+			population.finish(population.readFile(file, command, first + 1,
+					true), command, first + 1);
+		} else
+		{
+			population.start(population.readTokens(command, first, false),
+					command, first);
+			population.finish(population.readTokens(command, first, true),
+					command, first);
+		}
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	// @return the number of identifiers, which are submitted if submit is set
+	private long readTokens(CommandTokens command, int first, boolean submit)
+			throws ParseException
+	{
+		CharSequence line = command.getSource();
+		long count = 0;
+
+		// Note: A plain list is searched for ranges once, in one sweep.
+		if (!submit && first < command.size())
+			_ranges = (indexOf(line, '[', command.start(first), command
+					.end(command.size() - 1)) >= 0);
+
+		for (int i = first; i < command.size() && !command.startsWith(i, "//"); i++)
+		{
+			int start = command.start(i);
+			int end = command.end(i);
+
+			if (!_ranges || indexOf(line, '[', start, end) < 0)
+			{
+				if (submit)
+					add(new Identifier(command.get(i)));
+				count++;
+				continue;
+			}
+
+			long range = range(line, start, end, submit);
+			if (range < 0)
+				throw new ParseFailure(E_ParseError.INVALID_VALUE, i,
+						"Invalid identifier range > ", command.get(i), "");
+			count += range;
+		}
+		return count;
+	}
+
+	// @return the number of identifiers, which are submitted if submit is set
+	private long readFile(File file, CommandTokens command, int token,
+			boolean submit) throws ParseException
+	{
+		long count = 0;
+		int lineNumber = 1;
+		StringBuilder word = new StringBuilder();
+
+		try (Reader in = Files.newBufferedReader(file.toPath(),
+				StandardCharsets.ISO_8859_1))
+		{
+			boolean comment = false;
+			for (int c = in.read();; c = in.read())
+			{
+				if (c < 0 || Character.isWhitespace(c))
+				{
+					if (word.length() > 0 && !comment)
+					{
+						long words = word(word, submit);
+						if (words < 0)
+							throw new ParseFailure(
+									E_ParseError.INVALID_VALUE, -1,
+									"Invalid identifier > ", file.getName()
+											+ ":" + lineNumber + ": " + word,
+									"");
+						count += words;
+					}
+					word.setLength(0);
+
+					if (c < 0)
+						break;
+					if (c == '\n')
+					{
+						lineNumber++;
+						comment = false;
+					}
+				} else if (!comment)
+				{
+					word.append((char) c);
+					if (word.length() == 2 && word.charAt(0) == '/'
+							&& word.charAt(1) == '/')
+						comment = true;
+				}
+			}
+		} catch (IOException exception)
+		{
+			throw new ParseFailure(E_ParseError.INVALID_FILENAME, token,
+					"Invalid filename > ", command, "");
+		}
+		return count;
+	}
+
+	// @return the number of identifiers a word of a file stands for, or -1 if
+	// it is malformed
+	private long word(StringBuilder word, boolean submit)
+	{
+		if (indexOf(word, '[', 0, word.length()) >= 0)
+			return range(word, 0, word.length(), submit);
+
+		if (!isWord(word, 0, word.length()))
+			return -1;
+		if (submit)
+			add(new Identifier(word.toString()));
+		return 1;
+	}
+
+	// Reads <prefix>[<from>..<to>]<suffix>.
+	// @return the number of identifiers, or -1 if the range is malformed
+	private long range(CharSequence text, int start, int end, boolean submit)
+	{
+		int open = indexOf(text, '[', start, end);
+		int dots = indexOf(text, '.', open + 1, end);
+		int close = indexOf(text, ']', open + 1, end);
+		if (open <= start || dots < 0 || close < 0 || dots + 1 >= close
+				|| text.charAt(dots + 1) != '.'
+				|| !isWord(text, start, open)
+				|| !isWord(text, close + 1, end) && close + 1 < end)
+			return -1;
+
+		int from = integer(text, open + 1, dots);
+		int to = integer(text, dots + 2, close);
+		if (from < 0 || to < from)
+			return -1;
+
+		if (submit)
+		{
+			StringBuilder name = new StringBuilder().append(text, start, open);
+			int prefix = name.length();
+			for (int k = from; k <= to && k >= 0; k++)
+			{
+				name.setLength(prefix);
+				name.append(k).append(text, close + 1, end);
+				add(new Identifier(name.toString()));
+			}
+		}
+		return (long) to - from + 1;
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	// Rejects a population that is too large
+	private void start(long total, CommandTokens command, int token)
+			throws ParseException
+	{
+		if (total > MAX_AGENTS)
+			throw new ParseFailure(E_ParseError.INVALID_VALUE, token,
+					"Too many identifiers > ", command, " (" + total
+							+ " of at most " + MAX_AGENTS + ")");
+		_total = total;
+		_chunk = new ArrayList<Identifier>((int) Math.min(CHUNK_SIZE, total));
+	}
+
+	private void add(Identifier identifier)
+	{
+		// Note: Only a file read again can have grown; what it has beyond
+		// the counted total is left out, so MAX_AGENTS holds.
+		if (_submitted + _chunk.size() == _total)
+			return;
+
+		_chunk.add(identifier);
+		if (_chunk.size() == CHUNK_SIZE)
+			flush();
+	}
+
+	private void flush()
+	{
+		if (_carrier == null)
+			_target.submit(new CommandStructuralPopulateWorld(_chunk));
+		else
+			_target.submit(new CommandStructuralPopulateCarrier(_carrier,
+					_chunk));
+
+		_submitted += _chunk.size();
+		_chunks++;
+		_chunk = new ArrayList<Identifier>((int) Math.min(CHUNK_SIZE, _total
+				- _submitted));
+
+		if (_chunks % PROGRESS_CHUNKS == 0)
+			progress();
+	}
+
+	// Submits the last chunk, then rejects a source that changed
+	private void finish(long count, CommandTokens command, int token)
+			throws ParseException
+	{
+		// Note: Like the single command it replaces, an empty list is still
+		// submitted.
+		if (!_chunk.isEmpty() || _chunks == 0)
+			flush();
+		if (_chunks > 1 && _chunks % PROGRESS_CHUNKS != 0)
+			progress();
+
+		if (count != _total)
+			throw new ParseFailure(E_ParseError.INVALID_VALUE, token,
+					"Identifiers changed while read > ", command, " ("
+							+ count + " instead of " + _total + ", "
+							+ _submitted + " submitted)");
+	}
+
+	private void progress()
+	{
+		if (_progress != null)
+			_progress.println(_label + " > " + _submitted + " of " + _total
+					+ " agents");
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	private static int indexOf(CharSequence text, char c, int from, int to)
+	{
+		for (int i = from; i < to; i++)
+			if (text.charAt(i) == c)
+				return i;
+		return -1;
+	}
+
+	// @return true if text[from,to) is not empty and has word characters only
+	private static boolean isWord(CharSequence text, int from, int to)
+	{
+		if (from >= to)
+			return false;
+		for (int i = from; i < to; i++)
+		{
+			char c = text.charAt(i);
+			if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+					|| (c >= '0' && c <= '9') || c == '_'))
+				return false;
+		}
+		return true;
+	}
+
+	// @return the non-negative integer in text[from,to), or -1 if there is
+	// none
+	private static int integer(CharSequence text, int from, int to)
+	{
+		if (from >= to || to - from > 9)
+			return -1;
+
+		int value = 0;
+		for (int i = from; i < to; i++)
+		{
+			char c = text.charAt(i);
+			if (c < '0' || c > '9')
+				return -1;
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+}
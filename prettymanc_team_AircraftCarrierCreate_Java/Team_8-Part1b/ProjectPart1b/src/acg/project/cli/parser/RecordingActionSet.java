@@ -0,0 +1,141 @@
+package acg.project.cli.parser;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import acg.architecture.datatype.Identifier;
+import acg.project.action.command.A_Command;
+import acg.project.action.command.creational.define.A_CommandCreationalDefine;
+import acg.project.action.command.creational.define.CommandCreationalUndefine;
+
+//==================================================================================================================================================================================
+/**
+ * In-memory stand-in for an ActionSet. It records the commands each action
+ * processor would receive instead of executing them, so the parsers run
+ * without the command line interface, the desktop or any window, e.g. on a
+ * headless box or for throughput runs.
+ *
+ * Commands are sorted by processor as ActionSetTarget delivers them. Template
+ * definitions are kept like the MapTemplate of an ActionSet, so CREATE BOOM
+ * and the other template lookups still parse. The commands themselves are
+ * only counted unless the stand-in was asked to keep them.
+ *
+ * Any number of threads may submit.
+ */
+public final class RecordingActionSet implements I_ThreadSafeCommandTarget
+{
+	private static final E_ActionProcessor[] PROCESSORS = E_ActionProcessor
+			.values();
+
+	// All guarded by this
+	private final Map<Identifier, A_CommandCreationalDefine> _templates = new HashMap<Identifier, A_CommandCreationalDefine>();
+
+	private final Map<E_ActionProcessor, List<A_Command<?>>> _commands;
+
+	private final long[] _counts = new long[PROCESSORS.length];
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Constructor.
+	 *
+	 * @param keepCommands
+	 *            - true to keep every submitted command, false to only count
+	 *            them
+	 */
+	public RecordingActionSet(boolean keepCommands)
+	{
+		if (!keepCommands)
+			_commands = null;
+		else
+		{
+			_commands = new EnumMap<E_ActionProcessor, List<A_Command<?>>>(
+					E_ActionProcessor.class);
+			for (E_ActionProcessor processor : PROCESSORS)
+				_commands.put(processor, new ArrayList<A_Command<?>>());
+		}
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	@Override
+	public synchronized void submit(A_Command<?> command)
+	{
+		E_ActionProcessor processor = E_ActionProcessor.of(command);
+		_counts[processor.ordinal()]++;
+		if (_commands != null)
+			_commands.get(processor).add(command);
+
+		// Undefine is an A_CommandCreationalDefine too, so it goes first
+		if (command instanceof CommandCreationalUndefine)
+			_templates.remove(((CommandCreationalUndefine) command).getID_());
+		else if (command instanceof A_CommandCreationalDefine)
+			_templates.put(((A_CommandCreationalDefine) command).getID_(),
+					(A_CommandCreationalDefine) command);
+	}
+
+	@Override
+	public synchronized A_CommandCreationalDefine getTemplate(Identifier tid)
+	{
+		return _templates.get(tid);
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * @return the number of commands the processor has been sent
+	 */
+	public synchronized long getCount(E_ActionProcessor processor)
+	{
+		return _counts[processor.ordinal()];
+	}
+
+	/**
+	 * @return the number of commands submitted
+	 */
+	public synchronized long getCount()
+	{
+		long count = 0;
+		for (long processorCount : _counts)
+			count += processorCount;
+		return count;
+	}
+
+	/**
+	 * @return a copy of the commands the processor has been sent, in order
+	 * @throws IllegalStateException
+	 *             if the commands are not kept
+	 */
+	public synchronized List<A_Command<?>> getCommands(
+			E_ActionProcessor processor)
+	{
+		if (_commands == null)
+			throw new IllegalStateException("commands are only counted");
+		return new ArrayList<A_Command<?>>(_commands.get(processor));
+	}
+
+	/**
+	 * Forgets the commands and counts, but not the templates.
+	 */
+	public synchronized void clear()
+	{
+		for (E_ActionProcessor processor : PROCESSORS)
+		{
+			_counts[processor.ordinal()] = 0;
+			if (_commands != null)
+				_commands.get(processor).clear();
+		}
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		StringBuilder text = new StringBuilder();
+		for (E_ActionProcessor processor : PROCESSORS)
+			text.append(text.length() == 0 ? "" : " ")
+					.append(processor.name().toLowerCase()).append('=')
+					.append(_counts[processor.ordinal()]);
+		return text.append(" templates=").append(_templates.size())
+				.toString();
+	}
+}
@@ -0,0 +1,370 @@
+package acg.project.cli.parser;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import acg.architecture.datatype.Altitude;
+import acg.architecture.datatype.AngleNavigational;
+import acg.architecture.datatype.CoordinateWorld;
+import acg.architecture.datatype.Identifier;
+import acg.architecture.datatype.Speed;
+import acg.architecture.timing.Clock;
+import acg.architecture.timing.I_ClockListener;
+import acg.project.action.command.A_Command;
+import acg.project.action.command.behavioral.A_CommandBehavioralDo;
+import acg.project.action.command.behavioral.CommandBehavioralDoForceAll;
+import acg.project.action.command.behavioral.CommandBehavioralDoForceAltitude;
+import acg.project.action.command.behavioral.CommandBehavioralDoForceCoordinates;
+import acg.project.action.command.behavioral.CommandBehavioralDoForceHeading;
+import acg.project.action.command.behavioral.CommandBehavioralDoForceSpeed;
+import acg.project.action.command.behavioral.CommandBehavioralDoSetAltitude;
+import acg.project.action.command.behavioral.CommandBehavioralDoSetHeading;
+import acg.project.action.command.behavioral.CommandBehavioralDoSetSpeed;
+import acg.project.action.command.creational.define.A_CommandCreationalDefine;
+
+//==================================================================================================================================================================================
+/**
+ * Collapses set-point commands that are superseded within the same clock tick
+ * before they reach the target.
+ *
+ * Set-points are DO <aid> SET SPEED, ALTITUDE and HEADING, and @DO <aid> FORCE
+ * COORDINATES, ALTITUDE, HEADING and SPEED (or all of them). They are held per
+ * aid until the next tick. A set-point that a later one of the same aid
+ * overrides completely is dropped; of three SET SPEEDs in one tick only the
+ * last reaches the target. Consecutive FORCEs of one aid that together give
+ * coordinates, heading and speed are merged into one FORCE of all of them.
+ *
+ * Everything else passes straight through, but first releases what is held:
+ * another DO or @DO the set-points of its own aid, any other command all of
+ * them. The commands that do reach the target therefore keep their order.
+ *
+ * The held commands are released on every tick once attach() has registered
+ * the coalescer with the Clock; flush() does the same by hand. The stage sits
+ * between the parser and the real target, e.g. a SubmissionQueue; as the
+ * clock's thread releases into it while the parser submits, the target must
+ * be thread-safe. A
+ * RuntimeException the target throws for a held command is reported to the
+ * error stream and the next command is released.
+ */
+public final class SetPointCoalescer implements I_CommandTarget, I_ClockListener
+{
+	// The kinds of set-point, one bit each
+	private static final int SET_SPEED = 1;
+
+	private static final int SET_ALTITUDE = 2;
+
+	private static final int SET_HEADING = 4;
+
+	private static final int FORCE_COORDINATES = 8;
+
+	private static final int FORCE_ALTITUDE = 16;
+
+	private static final int FORCE_HEADING = 32;
+
+	private static final int FORCE_SPEED = 64;
+
+	private static final int FORCES = FORCE_COORDINATES | FORCE_ALTITUDE
+			| FORCE_HEADING | FORCE_SPEED;
+
+	private final I_ThreadSafeCommandTarget _target;
+
+	private final PrintStream _errors;
+
+	// Per aid, the set-points held this tick; all guarded by this
+	private final Map<Identifier, List<A_CommandBehavioralDo>> _held = new LinkedHashMap<Identifier, List<A_CommandBehavioralDo>>();
+
+	private long _received;
+
+	private long _elided;
+
+	private long _merged;
+
+	private long _released;
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Constructor. Failures go to System.err.
+	 *
+	 * @param target
+	 *            - where the commands are released
+	 */
+	public SetPointCoalescer(I_ThreadSafeCommandTarget target)
+	{
+		this(target, System.err);
+	}
+
+	/**
+	 * Constructor. Nothing held is released until the coalescer is attached to
+	 * the clock or flush() is called.
+	 *
+	 * @param target
+	 *            - where the commands are released
+	 * @param errors
+	 *            - where the target's failures are reported, or null for none
+	 */
+	public SetPointCoalescer(I_ThreadSafeCommandTarget target,
+			PrintStream errors)
+	{
+		_target = target;
+		_errors = errors;
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Holds a set-point until the tick, or passes any other command on.
+	 */
+	@Override
+	public synchronized void submit(A_Command<?> command)
+	{
+		_received++;
+
+		int kind = kind(command);
+		if (kind != 0)
+		{
+			hold((A_CommandBehavioralDo) command, kind);
+			return;
+		}
+
+		if (command instanceof A_CommandBehavioralDo)
+			release(_held.remove(((A_CommandBehavioralDo) command).getID_()));
+		else
+			releaseAll();
+
+		_released++;
+		_target.submit(command);
+	}
+
+	@Override
+	public A_CommandCreationalDefine getTemplate(Identifier tid)
+	{
+		return _target.getTemplate(tid);
+	}
+
+	/**
+	 * Releases everything held on every tick of the simulation clock.
+	 */
+	public void attach()
+	{
+		Clock clock = Clock.getInstance();
+		if (!clock.hasListener(this))
+			clock.registerListener(this);
+	}
+
+	/**
+	 * Stops releasing with the clock. Held commands stay until flush().
+	 */
+	public void detach()
+	{
+		Clock clock = Clock.getInstance();
+		if (clock.hasListener(this))
+			clock.unregisterListener(this);
+	}
+
+	/**
+	 * Called by the clock on every tick.
+	 */
+	@Override
+	public void update_()
+	{
+		flush();
+	}
+
+	/**
+	 * Releases every held set-point, aid by aid in the order the aids came up.
+	 */
+	public synchronized void flush()
+	{
+		releaseAll();
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * @return the number of commands submitted
+	 */
+	public synchronized long getReceived()
+	{
+		return _received;
+	}
+
+	/**
+	 * @return the number of set-points dropped because a later one overrode
+	 *         them
+	 */
+	public synchronized long getElided()
+	{
+		return _elided;
+	}
+
+	/**
+	 * @return the number of FORCEs saved by merging them into one
+	 */
+	public synchronized long getMerged()
+	{
+		return _merged;
+	}
+
+	/**
+	 * @return the number of commands handed to the target
+	 */
+	public synchronized long getReleased()
+	{
+		return _released;
+	}
+
+	/**
+	 * @return the number of set-points held for the next tick
+	 */
+	public synchronized int size()
+	{
+		int size = 0;
+		for (List<A_CommandBehavioralDo> held : _held.values())
+			size += held.size();
+		return size;
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		return "received=" + _received + " elided=" + _elided + " merged="
+				+ _merged + " released=" + _released + " held=" + size();
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	// @return the kinds of set-point the command gives, or 0 if it is none
+	private static int kind(A_Command<?> command)
+	{
+		if (command instanceof CommandBehavioralDoSetSpeed)
+			return SET_SPEED;
+		if (command instanceof CommandBehavioralDoSetAltitude)
+			return SET_ALTITUDE;
+		if (command instanceof CommandBehavioralDoSetHeading)
+			return SET_HEADING;
+		if (command instanceof CommandBehavioralDoForceCoordinates)
+			return FORCE_COORDINATES;
+		if (command instanceof CommandBehavioralDoForceAltitude)
+			return FORCE_ALTITUDE;
+		if (command instanceof CommandBehavioralDoForceHeading)
+			return FORCE_HEADING;
+		if (command instanceof CommandBehavioralDoForceSpeed)
+			return FORCE_SPEED;
+		if (command instanceof CommandBehavioralDoForceAll)
+			return FORCE_COORDINATES | FORCE_HEADING | FORCE_SPEED
+					| (((CommandBehavioralDoForceAll) command).hasAltitude() ? FORCE_ALTITUDE
+							: 0);
+		return 0;
+	}
+
+	// Note: A held set-point whose kinds the new one all gives is overridden
+	// whatever lies between them, so it is dropped and the new one goes to the
+	// end. The rest keep their order.
+	private void hold(A_CommandBehavioralDo command, int kind)
+	{
+		List<A_CommandBehavioralDo> held = _held.get(command.getID_());
+		if (held == null)
+		{
+			held = new ArrayList<A_CommandBehavioralDo>(4);
+			_held.put(command.getID_(), held);
+		}
+
+		for (Iterator<A_CommandBehavioralDo> iterator = held.iterator(); iterator
+				.hasNext();)
+			if ((kind(iterator.next()) & ~kind) == 0)
+			{
+				iterator.remove();
+				_elided++;
+			}
+		held.add(command);
+	}
+
+	private void releaseAll()
+	{
+		for (List<A_CommandBehavioralDo> held : _held.values())
+			release(held);
+		_held.clear();
+	}
+
+	private void release(List<A_CommandBehavioralDo> held)
+	{
+		if (held == null)
+			return;
+
+		int size = held.size();
+		for (int start = 0; start < size;)
+		{
+			int end = start + 1;
+			if ((kind(held.get(start)) & ~FORCES) == 0)
+				while (end < size && (kind(held.get(end)) & ~FORCES) == 0)
+					end++;
+
+			A_CommandBehavioralDo merged = (end - start > 1 ? merge(held
+					.subList(start, end)) : null);
+			if (merged != null)
+			{
+				_merged += end - start - 1;
+				deliver(merged);
+			} else
+				for (int i = start; i < end; i++)
+					deliver(held.get(i));
+			start = end;
+		}
+	}
+
+	// @return one FORCE of all that the run of FORCEs gives, or null if they
+	// do not give coordinates, heading and speed
+	private static A_CommandBehavioralDo merge(List<A_CommandBehavioralDo> run)
+	{
+		CoordinateWorld coordinates = null;
+		Altitude altitude = null;
+		AngleNavigational heading = null;
+		Speed speed = null;
+
+		for (A_CommandBehavioralDo command : run)
+		{
+			if (command instanceof CommandBehavioralDoForceAll)
+			{
+				CommandBehavioralDoForceAll all = (CommandBehavioralDoForceAll) command;
+				coordinates = all.getCoordinates();
+				if (all.hasAltitude())
+					altitude = all.getAltitude();
+				heading = all.getHeading();
+				speed = all.getSpeed();
+			} else if (command instanceof CommandBehavioralDoForceCoordinates)
+				coordinates = ((CommandBehavioralDoForceCoordinates) command)
+						.getCoordinates();
+			else if (command instanceof CommandBehavioralDoForceAltitude)
+				altitude = ((CommandBehavioralDoForceAltitude) command)
+						.getAltitude();
+			else if (command instanceof CommandBehavioralDoForceHeading)
+				heading = ((CommandBehavioralDoForceHeading) command)
+						.getHeading();
+			else
+				speed = ((CommandBehavioralDoForceSpeed) command).getSpeed();
+		}
+
+		if (coordinates == null || heading == null || speed == null)
+			return null;
+
+		Identifier id = run.get(0).getID_();
+		return (altitude != null ? new CommandBehavioralDoForceAll(id,
+				coordinates, altitude, heading, speed)
+				: new CommandBehavioralDoForceAll(id, coordinates, heading,
+						speed));
+	}
+
+	private void deliver(A_Command<?> command)
+	{
+		_released++;
+		try
+		{
+			_target.submit(command);
+		} catch (RuntimeException exception)
+		{
+			if (_errors != null)
+				_errors.println("command failed: " + exception);
+		}
+	}
+}
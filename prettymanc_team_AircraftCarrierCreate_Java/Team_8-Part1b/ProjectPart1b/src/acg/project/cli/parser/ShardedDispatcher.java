@@ -0,0 +1,310 @@
+package acg.project.cli.parser;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+//==================================================================================================================================================================================
+/**
+ * Parses input lines on several threads while keeping the order that matters.
+ *
+ * A DO or @DO line concerns one agent only, the aid after the verb. Such lines
+ * are spread over a fixed number of lanes by a hash of that aid, and each lane
+ * parses its lines, one after another, on a thread of its own. All lines for
+ * one aid take the same lane, so they reach the target in the order they were
+ * dispatched; lines for different aids are validated and built in parallel.
+ *
+ * Every other line (creation, structure, templates, @CLOCK, ...), and any line
+ * with several statements, is a barrier: it waits until the lanes have done
+ * everything dispatched before it, and is parsed on the dispatching thread.
+ *
+ * The target is called from all lanes at once and must be thread-safe, e.g. a
+ * SubmissionQueue in front of the ActionSet. Lines that do not parse, and
+ * failures of the target, are reported to the error stream.
+ *
+ * Only one thread may dispatch.
+ */
+public final class ShardedDispatcher implements AutoCloseable
+{
+	// Lines a lane takes from its queue at a time
+	private static final int BATCH_SIZE = 256;
+
+	private static final int LANE_CAPACITY = 4096;
+
+	// Note: Compared by identity; tells a lane to stop.
+	private static final String END = new String("END");
+
+	private final I_ThreadSafeCommandTarget _target;
+
+	private final PrintStream _errors;
+
+	private final Lane[] _lanes;
+
+	// lines dispatched to the lanes; only the dispatching thread writes it
+	private long _dispatched;
+
+	// guarded by this; barrier() waits on this
+	private long _completed;
+
+	private boolean _closed;
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Constructor. One lane per available processor; errors go to System.err.
+	 *
+	 * @param target
+	 *            - where the commands are submitted, from several threads
+	 */
+	public ShardedDispatcher(I_ThreadSafeCommandTarget target)
+	{
+		this(target, Runtime.getRuntime().availableProcessors(), System.err);
+	}
+
+	/**
+	 * Constructor. The lane threads are started here.
+	 *
+	 * @param target
+	 *            - where the commands are submitted, from several threads
+	 * @param lanes
+	 *            - the number of lanes
+	 * @param errors
+	 *            - where rejected lines are reported, or null for none
+	 */
+	public ShardedDispatcher(I_ThreadSafeCommandTarget target, int lanes,
+			PrintStream errors)
+	{
+		if (lanes < 1)
+			throw new IllegalArgumentException("invalid number of lanes > "
+					+ lanes);
+
+		_target = target;
+		_errors = errors;
+		_lanes = new Lane[lanes];
+		for (int i = 0; i < lanes; i++)
+		{
+			_lanes[i] = new Lane();
+			Thread thread = new Thread(_lanes[i], "behavioral lane " + i);
+			thread.setDaemon(true);
+			_lanes[i]._thread = thread;
+			thread.start();
+		}
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Parses a line: on the lane of its aid if it is a DO or @DO line, else
+	 * here once the lanes have caught up.
+	 *
+	 * @param line
+	 *            - the input line
+	 * @throws IllegalStateException
+	 *             if the dispatcher has been closed
+	 */
+	public void dispatch(String line)
+	{
+		if (_closed)
+			throw new IllegalStateException("dispatcher closed > " + line);
+
+		int hash = aidHash(line);
+		if (hash == 0)
+		{
+			barrier();
+			parse(line);
+			return;
+		}
+
+		// Note: The golden ratio spreads names like f1, f2, ... whose hashes
+		// differ in the low bits only.
+		int lane = (int) (((hash * 0x9E3779B9L) & 0xFFFFFFFFL) * _lanes.length >>> 32);
+		_dispatched++;
+		_lanes[lane].put(line);
+	}
+
+	/**
+	 * Waits until the lanes have parsed every line dispatched so far. Returns
+	 * early, with the interrupt status set, if the caller is interrupted.
+	 */
+	public void barrier()
+	{
+		synchronized (this)
+		{
+			while (_completed < _dispatched)
+			{
+				try
+				{
+					wait();
+				} catch (InterruptedException exception)
+				{
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Waits for the lanes to finish and stops them.
+	 */
+	@Override
+	public void close()
+	{
+		if (_closed)
+			return;
+		_closed = true;
+
+		for (Lane lane : _lanes)
+			lane.put(END);
+
+		boolean interrupted = false;
+		for (Lane lane : _lanes)
+			while (lane._thread.isAlive())
+			{
+				try
+				{
+					lane._thread.join();
+				} catch (InterruptedException exception)
+				{
+					interrupted = true;
+				}
+			}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * @return the number of lanes
+	 */
+	public int getLanes()
+	{
+		return _lanes.length;
+	}
+
+	/**
+	 * @return the number of lines the lanes have parsed
+	 */
+	public synchronized long getCompleted()
+	{
+		return _completed;
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	// Note: A lane must survive a failing target, or barrier() would wait for
+	// it forever.
+	private void parse(String line)
+	{
+		try
+		{
+			ParseResult result = CommandParser.parse(_target, line);
+			if (!result.isValid() && _errors != null)
+				_errors.println("invalid command: " + result.getException());
+		} catch (RuntimeException exception)
+		{
+			if (_errors != null)
+				_errors.println("command failed: " + exception);
+		}
+	}
+
+	// @return the String hash of the aid of a single DO or @DO statement, or
+	// 0 if the line is anything else
+	private static int aidHash(String line)
+	{
+		int length = line.length();
+		int i = skipBlanks(line, 0);
+
+		int verb = i;
+		while (i < length && line.charAt(i) > ' ')
+			i++;
+		if (!isDo(line, verb, i))
+			return 0;
+
+		i = skipBlanks(line, i);
+		int hash = 0;
+		for (; i < length && line.charAt(i) > ' '; i++)
+			hash = 31 * hash + line.charAt(i);
+
+		// more than one statement: the other aids may live on other lanes
+		if (line.indexOf(';', i) >= 0)
+			return 0;
+		return (hash == 0 ? 1 : hash);
+	}
+
+	private static int skipBlanks(String line, int i)
+	{
+		while (i < line.length() && line.charAt(i) <= ' ')
+			i++;
+		return i;
+	}
+
+	private static boolean isDo(String line, int start, int end)
+	{
+		if (end - start == 3 && line.charAt(start) == '@')
+			start++;
+		return (end - start == 2 && (line.charAt(start) | 0x20) == 'd' && (line
+				.charAt(start + 1) | 0x20) == 'o');
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * A queue of lines and the thread that parses them in order.
+	 */
+	private final class Lane implements Runnable
+	{
+		private final BlockingQueue<String> _queue = new ArrayBlockingQueue<String>(
+				LANE_CAPACITY);
+
+		private Thread _thread;
+
+		void put(String line)
+		{
+			try
+			{
+				_queue.put(line);
+			} catch (InterruptedException exception)
+			{
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("interrupted dispatching > "
+						+ line);
+			}
+		}
+
+		@Override
+		public void run()
+		{
+			List<String> batch = new ArrayList<String>(BATCH_SIZE);
+			boolean end = false;
+			try
+			{
+				while (!end)
+				{
+					batch.add(_queue.take());
+					_queue.drainTo(batch, BATCH_SIZE - 1);
+
+					int parsed = 0;
+					for (String line : batch)
+					{
+						if (line == END)
+						{
+							end = true;
+							break;
+						}
+						parse(line);
+						parsed++;
+					}
+					batch.clear();
+
+					synchronized (ShardedDispatcher.this)
+					{
+						_completed += parsed;
+						ShardedDispatcher.this.notifyAll();
+					}
+				}
+			} catch (InterruptedException exception)
+			{
+				// Note: Nobody interrupts the lanes.
+			}
+		}
+	}
+}
@@ -0,0 +1,511 @@
+package acg.project.cli.parser;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import acg.architecture.datatype.Identifier;
+import acg.project.action.command.A_Command;
+import acg.project.action.command.creational.define.A_CommandCreationalDefine;
+import acg.project.action.command.miscellaneous.CommandMiscDoExit;
+import acg.project.action.command.miscellaneous.CommandMiscDoSetClockRunning;
+
+//==================================================================================================================================================================================
+/**
+ * Decouples the threads that parse from the target that executes: submit()
+ * only puts the command into a bounded queue, and one worker thread hands the
+ * queued commands to the real target (usually an ActionSetTarget) in batches.
+ *
+ * Any number of threads may submit. Commands reach the target in the order
+ * they were accepted, always from the worker, so the target itself need not be
+ * thread-safe. When the queue is full, the E_Backpressure policy decides
+ * whether the submitter waits, the command is dropped, or it is rejected.
+ *
+ * A template lookup (CREATE BOOM) first waits until everything accepted so far
+ * has been delivered, so it sees the DEFINE lines before it just as without
+ * the queue.
+ *
+ * Control commands (@EXIT, @CLOCK PAUSE, @CLOCK RESUME) take a priority lane
+ * instead: the worker delivers them before the next queued command, however
+ * long the queue, and they are never blocked, dropped or rejected. They still
+ * reach the target from the worker only. The time from submit() until the
+ * target has taken one is recorded (getMaxControlLatency()). The lane only
+ * skips this queue; an ActionSetTarget schedules them in the ActionSet like
+ * any other command.
+ *
+ * A control command never overtakes the commands of its own submitter,
+ * though: if the submitting thread still has commands in the queue (a script
+ * being run, a file being followed), it is queued behind them like any
+ * command and waits for room whatever the policy. Only the commands of other
+ * threads are overtaken.
+ *
+ * A RuntimeException the target throws for one command is reported to the
+ * error stream and the worker goes on with the next command.
+ */
+public final class SubmissionQueue implements I_ThreadSafeCommandTarget,
+		AutoCloseable
+{
+	/** The number of commands that may be waiting by default. */
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	// Commands the worker delivers per turn of the queue
+	private static final int BATCH_SIZE = 256;
+
+	// Note: Compared by identity; tells the worker to stop.
+	private static final Object END = new Object();
+
+	// Note: Compared by identity; wakes the worker for the priority lane.
+	private static final Object WAKE = new Object();
+
+	private final I_CommandTarget _target;
+
+	private final E_Backpressure _policy;
+
+	private final PrintStream _errors;
+
+	private final BlockingQueue<Object> _queue;
+
+	private final Queue<Control> _control = new ConcurrentLinkedQueue<Control>();
+
+	private final Thread _worker;
+
+	private final AtomicLong _accepted = new AtomicLong();
+
+	private final AtomicLong _dropped = new AtomicLong();
+
+	// Note: Held while a command is put, so the numbers taken under it follow
+	// the order of the queue.
+	private final ReentrantLock _putLock = new ReentrantLock();
+
+	// guarded by _putLock; the commands put so far
+	private long _sequence;
+
+	// the number of the last command each thread has put
+	private final ThreadLocal<long[]> _lastPut = new ThreadLocal<long[]>()
+	{
+		@Override
+		protected long[] initialValue()
+		{
+			return new long[1];
+		}
+	};
+
+	// the commands put that the worker has delivered; only the worker writes
+	// it
+	private volatile long _passed;
+
+	// guarded by this; flush() waits on this
+	private long _delivered;
+
+	// guarded by this; set once the worker has stopped
+	private boolean _stopped;
+
+	// guarded by this; the control commands delivered and their latencies
+	private long _controls;
+
+	private long _lastControlLatency;
+
+	private long _maxControlLatency;
+
+	private volatile boolean _closed;
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Constructor. The queue holds DEFAULT_CAPACITY commands, a full queue
+	 * blocks the submitter, and failures go to System.err.
+	 *
+	 * @param target
+	 *            - where the commands are delivered
+	 */
+	public SubmissionQueue(I_CommandTarget target)
+	{
+		this(target, DEFAULT_CAPACITY, E_Backpressure.BLOCK, System.err);
+	}
+
+	/**
+	 * Constructor. The worker thread is started here.
+	 *
+	 * @param target
+	 *            - where the commands are delivered
+	 * @param capacity
+	 *            - the number of commands that may be waiting
+	 * @param policy
+	 *            - what to do with a command when the queue is full
+	 * @param errors
+	 *            - where the target's failures are reported, or null for none
+	 */
+	public SubmissionQueue(I_CommandTarget target, int capacity,
+			E_Backpressure policy, PrintStream errors)
+	{
+		if (capacity < 1)
+			throw new IllegalArgumentException("invalid capacity > " + capacity);
+		if (policy == null)
+			throw new IllegalArgumentException("no backpressure policy");
+
+		_target = target;
+		_policy = policy;
+		_errors = errors;
+		_queue = new ArrayBlockingQueue<Object>(capacity);
+
+		_worker = new Thread(new Worker(), "command submission");
+		_worker.setDaemon(true);
+		_worker.start();
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Queues a command for the target.
+	 *
+	 * @throws RejectedExecutionException
+	 *             if the queue is full and the policy is REJECT, or the
+	 *             submitter is interrupted while it waits
+	 * @throws IllegalStateException
+	 *             if the queue has been closed
+	 */
+	@Override
+	public void submit(A_Command<?> command)
+	{
+		if (_closed)
+			throw new IllegalStateException("submission queue closed > "
+					+ command);
+
+		long[] last = _lastPut.get();
+		boolean control = isControl(command);
+		if (control && _passed >= last[0])
+		{
+			_control.add(new Control(command));
+			_accepted.incrementAndGet();
+
+			// Note: If the queue is full the worker is busy and looks at
+			// the lane before its next command anyway.
+			_queue.offer(WAKE);
+			return;
+		}
+
+		try
+		{
+			_putLock.lockInterruptibly();
+		} catch (InterruptedException exception)
+		{
+			Thread.currentThread().interrupt();
+			throw new RejectedExecutionException(
+					"interrupted while waiting to submit > " + command);
+		}
+		try
+		{
+			switch (control ? E_Backpressure.BLOCK : _policy)
+			{
+				case BLOCK:
+					try
+					{
+						_queue.put(command);
+					} catch (InterruptedException exception)
+					{
+						Thread.currentThread().interrupt();
+						throw new RejectedExecutionException(
+								"interrupted while the submission queue was full > "
+										+ command);
+					}
+					break;
+				case DROP:
+					if (!_queue.offer(command))
+					{
+						_dropped.incrementAndGet();
+						return;
+					}
+					break;
+				case REJECT:
+					if (!_queue.offer(command))
+						throw new RejectedExecutionException(
+								"submission queue full > " + command);
+					break;
+			}
+			last[0] = ++_sequence;
+		} finally
+		{
+			_putLock.unlock();
+		}
+		_accepted.incrementAndGet();
+	}
+
+	/**
+	 * Looks the template up in the target once every command accepted so far
+	 * has been delivered.
+	 */
+	@Override
+	public A_CommandCreationalDefine getTemplate(Identifier tid)
+	{
+		flush();
+		return _target.getTemplate(tid);
+	}
+
+	/**
+	 * Waits until every command accepted so far has been delivered. Returns
+	 * early, with the interrupt status set, if the caller is interrupted.
+	 */
+	public void flush()
+	{
+		// Note: The worker's own lookups must not wait for themselves.
+		if (Thread.currentThread() == _worker)
+			return;
+
+		long accepted = _accepted.get();
+		synchronized (this)
+		{
+			while (_delivered < accepted && !_stopped)
+			{
+				try
+				{
+					wait();
+				} catch (InterruptedException exception)
+				{
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stops accepting commands, delivers the ones still queued and stops the
+	 * worker. Submitters should be done before; a command that races with
+	 * close() may be lost.
+	 */
+	@Override
+	public void close()
+	{
+		if (_closed)
+			return;
+		_closed = true;
+
+		// Note: Waits uninterruptibly, but keeps the interrupt for the caller.
+		boolean interrupted = false;
+		boolean queued = false;
+		while (!queued)
+		{
+			try
+			{
+				_queue.put(END);
+				queued = true;
+			} catch (InterruptedException exception)
+			{
+				interrupted = true;
+			}
+		}
+		while (_worker.isAlive())
+		{
+			try
+			{
+				_worker.join();
+			} catch (InterruptedException exception)
+			{
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * @return the number of commands accepted
+	 */
+	public long getAccepted()
+	{
+		return _accepted.get();
+	}
+
+	/**
+	 * @return the number of commands handed to the target
+	 */
+	public synchronized long getDelivered()
+	{
+		return _delivered;
+	}
+
+	/**
+	 * @return the number of commands discarded under the DROP policy
+	 */
+	public long getDropped()
+	{
+		return _dropped.get();
+	}
+
+	/**
+	 * @return the number of commands waiting in the queue
+	 */
+	public int size()
+	{
+		return _queue.size();
+	}
+
+	/**
+	 * @return the number of control commands handed to the target
+	 */
+	public synchronized long getControlDelivered()
+	{
+		return _controls;
+	}
+
+	/**
+	 * @return nanoseconds from submit() until the target had taken the last
+	 *         control command, or 0 if there has been none
+	 */
+	public synchronized long getLastControlLatency()
+	{
+		return _lastControlLatency;
+	}
+
+	/**
+	 * @return the longest such time of any control command, in nanoseconds
+	 */
+	public synchronized long getMaxControlLatency()
+	{
+		return _maxControlLatency;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "accepted=" + getAccepted() + " delivered=" + getDelivered()
+				+ " dropped=" + getDropped() + " waiting=" + size()
+				+ " controls=" + getControlDelivered() + " maxControlLatency="
+				+ getMaxControlLatency() / 1000 + "us";
+	}
+
+	/**
+	 * @return true if a command takes the priority lane
+	 */
+	public static boolean isControl(A_Command<?> command)
+	{
+		return (command instanceof CommandMiscDoExit
+				|| command instanceof CommandMiscDoSetClockRunning);
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Takes whatever has piled up, up to BATCH_SIZE commands, and delivers it
+	 * in one go; waits only when the queue is empty. The priority lane is
+	 * emptied before every command.
+	 */
+	private final class Worker implements Runnable
+	{
+		@Override
+		public void run()
+		{
+			List<Object> batch = new ArrayList<Object>(BATCH_SIZE);
+			boolean end = false;
+			try
+			{
+				while (!end)
+				{
+					batch.add(_queue.take());
+					_queue.drainTo(batch, BATCH_SIZE - 1);
+
+					_batchControls = 0;
+					int delivered = 0;
+					for (Object entry : batch)
+					{
+						delivered += deliverControls();
+						if (entry == END)
+						{
+							end = true;
+							break;
+						}
+						if (entry == WAKE)
+							continue;
+						deliver((A_Command<?>) entry);
+						delivered++;
+						_passed++;
+					}
+					batch.clear();
+
+					synchronized (SubmissionQueue.this)
+					{
+						_delivered += delivered;
+						if (_batchControls > 0)
+						{
+							_controls += _batchControls;
+							_lastControlLatency = _batchLastLatency;
+							_maxControlLatency = Math.max(_maxControlLatency,
+									_batchMaxLatency);
+						}
+						SubmissionQueue.this.notifyAll();
+					}
+				}
+			} catch (InterruptedException exception)
+			{
+				// Note: Nobody interrupts the worker; if somebody does, it
+				// stops and flush() no longer waits for it.
+			} finally
+			{
+				synchronized (SubmissionQueue.this)
+				{
+					_stopped = true;
+					SubmissionQueue.this.notifyAll();
+				}
+			}
+		}
+
+		// the control commands of the current batch and their latencies
+		private int _batchControls;
+
+		private long _batchLastLatency;
+
+		private long _batchMaxLatency;
+
+		// @return the number of control commands delivered
+		private int deliverControls()
+		{
+			int delivered = 0;
+			for (Control control = _control.poll(); control != null; control = _control
+					.poll())
+			{
+				deliver(control._command);
+				long latency = System.nanoTime() - control._submitted;
+
+				if (_batchControls++ == 0)
+					_batchMaxLatency = 0;
+				_batchLastLatency = latency;
+				_batchMaxLatency = Math.max(_batchMaxLatency, latency);
+				delivered++;
+			}
+			return delivered;
+		}
+
+		private void deliver(A_Command<?> command)
+		{
+			try
+			{
+				_target.submit(command);
+			} catch (RuntimeException exception)
+			{
+				if (_errors != null)
+					_errors.println("command failed: " + exception);
+			}
+		}
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * A command on the priority lane and when it was submitted.
+	 */
+	private static final class Control
+	{
+		private final A_Command<?> _command;
+
+		private final long _submitted = System.nanoTime();
+
+		public Control(A_Command<?> command)
+		{
+			_command = command;
+		}
+	}
+}
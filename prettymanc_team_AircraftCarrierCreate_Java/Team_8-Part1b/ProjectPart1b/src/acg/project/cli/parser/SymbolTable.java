@@ -0,0 +1,288 @@
+package acg.project.cli.parser;
+
+import acg.architecture.datatype.Identifier;
+
+//==================================================================================================================================================================================
+/**
+ * Interns the agent and template identifiers (aids and tids) of the command
+ * language. A name seen recently maps to one shared Identifier, so the parsers
+ * intern tokens straight from the command line and create neither a String
+ * nor an Identifier for it.
+ *
+ * The table is bounded. It holds two generations of at most GENERATION names
+ * each; when the current one is full it becomes the previous one, and the one
+ * before is dropped. A name found in the previous generation moves on into the
+ * current one, so the names in use stay while those of agents long gone are
+ * evicted. An evicted name gets a new Identifier when it comes back, which is
+ * harmless: Identifiers compare by value.
+ *
+ * Within a generation every name also has a dense int id (0, 1, 2, ... in
+ * order of arrival), so the CLI layer can keep per-name state in plain arrays
+ * indexed by id. The ids are only valid for the generation getGeneration()
+ * stamps them with: a holder compares the stamp before and after taking ids
+ * and keys its arrays again when it has changed.
+ *
+ * Lookups do not lock. Interning a name that is not in the current generation
+ * does.
+ */
+public final class SymbolTable
+{
+	/** The most names of one generation. */
+	public static final int GENERATION = 4096;
+
+	private static final Object LOCK = new Object();
+
+	private static volatile State _current = new State(GENERATION, 0);
+
+	// null until the first generation is full
+	private static volatile State _previous;
+
+	// guarded by LOCK
+	private static long _evictions;
+
+	// Note: No instances, there is one namespace of identifiers.
+	private SymbolTable()
+	{
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * @return token i of a statement as its shared Identifier
+	 */
+	public static Identifier intern(CommandTokens tokens, int i)
+	{
+		CharSequence line = tokens.getSource();
+		int start = tokens.start(i);
+		int end = tokens.end(i);
+		return intern(hash(line, start, end), line, start, end);
+	}
+
+	/**
+	 * @return the shared Identifier for the name in a buffer, which is only
+	 *         copied if the name is new
+	 */
+	public static Identifier intern(CharSequence name)
+	{
+		return intern(hash(name, 0, name.length()), name, 0, name.length());
+	}
+
+	/**
+	 * @return the shared Identifier for name
+	 */
+	public static Identifier intern(String name)
+	{
+		return intern(name.hashCode(), name, 0, name.length());
+	}
+
+	/**
+	 * @return the dense id of an identifier in the current generation; the
+	 *         name is interned into it if it is not there yet
+	 */
+	public static int id(Identifier identifier)
+	{
+		String name = identifier.getValue();
+		int hash = name.hashCode();
+		while (true)
+		{
+			int index = _current.indexOf(hash, name, 0, name.length());
+			if (index >= 0)
+				return index;
+			add(hash, name, 0, name.length());
+		}
+	}
+
+	/**
+	 * @return the Identifier with the given id in the current generation
+	 * @throws IndexOutOfBoundsException
+	 *             if no name has that id
+	 */
+	public static Identifier get(int id)
+	{
+		State current = _current;
+		if (id < 0 || id >= current._count)
+			throw new IndexOutOfBoundsException("invalid symbol id > " + id);
+		return current._symbols[id];
+	}
+
+	/**
+	 * @return the stamp of the current generation; it changes whenever the
+	 *         ids do
+	 */
+	public static int getGeneration()
+	{
+		return _current._generation;
+	}
+
+	/**
+	 * @return the number of names held, at most 2 * GENERATION
+	 */
+	public static int size()
+	{
+		State previous = _previous;
+		return _current._count + (previous == null ? 0 : previous._count);
+	}
+
+	/**
+	 * @return the number of names dropped with their generation
+	 */
+	public static long getEvictions()
+	{
+		synchronized (LOCK)
+		{
+			return _evictions;
+		}
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	private static Identifier intern(int hash, CharSequence line, int start,
+			int end)
+	{
+		Identifier identifier = _current.find(hash, line, start, end);
+		if (identifier != null)
+			return identifier;
+		return add(hash, line, start, end);
+	}
+
+	// Note: The hash is String.hashCode() so that a name and a token hash
+	// alike, and a name's hash comes from the String's own cache.
+	private static int hash(CharSequence name, int start, int end)
+	{
+		int hash = 0;
+		for (int i = start; i < end; i++)
+			hash = 31 * hash + name.charAt(i);
+		return hash;
+	}
+
+	// @return the Identifier of line[start,end) in the current generation,
+	// moving it there from the previous one or adding it
+	private static Identifier add(int hash, CharSequence line, int start,
+			int end)
+	{
+		synchronized (LOCK)
+		{
+			State current = _current;
+			Identifier identifier = current.find(hash, line, start, end);
+			if (identifier != null)
+				return identifier;
+
+			State previous = _previous;
+			if (previous != null)
+				identifier = previous.find(hash, line, start, end);
+			if (identifier == null)
+				identifier = new Identifier(line.subSequence(start, end)
+						.toString());
+
+			if (!current.hasRoom())
+			{
+				// Note: A reader still probing the dropped generation finds
+				// nothing more there and comes here.
+				if (previous != null)
+					_evictions += previous._count;
+				_previous = current;
+				current = new State(GENERATION, current._generation + 1);
+				_current = current;
+			}
+			current.add(hash, identifier);
+			return identifier;
+		}
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * One generation: its symbols by id and an open-addressing index into them
+	 * by hash.
+	 *
+	 * Only the thread holding LOCK adds to a State. A reader that races with
+	 * it sees either the new symbol or nothing and then takes the lock, so it
+	 * never gets a wrong answer. A State never grows; a full one is replaced.
+	 */
+	private static final class State
+	{
+		private final Identifier[] _symbols;
+
+		private final int _generation;
+
+		// id + 1 per slot; 0 is an empty slot
+		private final int[] _slots;
+
+		// the hash of the name in each slot, checked before the name itself
+		private final int[] _hashes;
+
+		private volatile int _count;
+
+		public State(int capacity, int generation)
+		{
+			_symbols = new Identifier[capacity];
+			_generation = generation;
+			_slots = new int[capacity * 2];
+			_hashes = new int[capacity * 2];
+		}
+
+		// @return the symbol named by line[start,end), or null
+		public Identifier find(int hash, CharSequence line, int start, int end)
+		{
+			int id = indexOf(hash, line, start, end);
+			return (id < 0 ? null : _symbols[id]);
+		}
+
+		// @return the id of the symbol named by line[start,end), or -1
+		public int indexOf(int hash, CharSequence line, int start, int end)
+		{
+			int mask = _slots.length - 1;
+			for (int slot = spread(hash) & mask;; slot = (slot + 1) & mask)
+			{
+				int id = _slots[slot] - 1;
+				if (id < 0)
+					return -1;
+				if (_hashes[slot] != hash)
+					continue;
+
+				Identifier symbol = _symbols[id];
+				if (symbol == null)
+					return -1;
+				if (matches(symbol.getValue(), line, start, end))
+					return id;
+			}
+		}
+
+		public boolean hasRoom()
+		{
+			return _count < _symbols.length;
+		}
+
+		public void add(int hash, Identifier symbol)
+		{
+			int id = _count;
+			_symbols[id] = symbol;
+
+			int mask = _slots.length - 1;
+			int slot = spread(hash) & mask;
+			while (_slots[slot] != 0)
+				slot = (slot + 1) & mask;
+			_hashes[slot] = hash;
+			_slots[slot] = id + 1;
+
+			_count = id + 1;
+		}
+
+		// Note: Names like f1, f2, ... f999 have nearly consecutive String
+		// hashes, which would pile up in long probe runs; scrambling with the
+		// golden ratio spreads them over the table.
+		private static int spread(int hash)
+		{
+			int h = hash * 0x9E3779B9;
+			return h ^ (h >>> 16);
+		}
+
+		private static boolean matches(String name, CharSequence line,
+				int start, int end)
+		{
+			if (name.length() != end - start)
+				return false;
+			for (int i = 0; i < name.length(); i++)
+				if (name.charAt(i) != line.charAt(start + i))
+					return false;
+			return true;
+		}
+	}
+}
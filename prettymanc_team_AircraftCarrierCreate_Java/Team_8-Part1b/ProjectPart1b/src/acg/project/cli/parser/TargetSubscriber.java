@@ -0,0 +1,196 @@
+package acg.project.cli.parser;
+
+import java.io.PrintStream;
+
+import acg.project.action.command.A_Command;
+
+//==================================================================================================================================================================================
+/**
+ * Submits the commands of a CommandProcessor (or any publisher of ParsedItems)
+ * to a target, e.g. a SubmissionQueue in front of the ActionSet, and reports
+ * the diagnostics to the error stream.
+ *
+ * Items are requested REQUEST_BATCH at a time, and more only once half of
+ * them have been submitted. While the target blocks (a full SubmissionQueue,
+ * a busy ActionSet) nothing more is requested, and the lack of demand
+ * travels back up to the producer of the lines.
+ */
+public final class TargetSubscriber implements I_Subscriber<ParsedItem>
+{
+	/** The most items requested ahead of the target. */
+	public static final int REQUEST_BATCH = 256;
+
+	private final I_CommandTarget _target;
+
+	private final PrintStream _errors;
+
+	private I_Subscription _subscription;
+
+	// items received since the last request; only the delivering thread
+	// touches it
+	private int _received;
+
+	// guarded by this
+	private long _submitted;
+
+	private long _rejected;
+
+	private long _failed;
+
+	private boolean _done;
+
+	private Throwable _error;
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Constructor.
+	 *
+	 * @param target
+	 *            - where the commands are submitted
+	 * @param errors
+	 *            - where rejected lines and the target's failures are
+	 *            reported, or null for none
+	 */
+	public TargetSubscriber(I_CommandTarget target, PrintStream errors)
+	{
+		_target = target;
+		_errors = errors;
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	@Override
+	public void onSubscribe(I_Subscription subscription)
+	{
+		boolean accepted;
+		synchronized (this)
+		{
+			accepted = (_subscription == null);
+			if (accepted)
+				_subscription = subscription;
+		}
+
+		// Note: Only one publisher; a second one is turned away.
+		if (!accepted)
+			subscription.cancel();
+		else
+			subscription.request(REQUEST_BATCH);
+	}
+
+	@Override
+	public void onNext(ParsedItem item)
+	{
+		if (item.isCommand())
+		{
+			A_Command<?> command = item.getCommand();
+			// Note: An @RUN runs its script into the target, not back into
+			// the publisher.
+			if (command instanceof CommandMiscDoRunScript)
+				command = ((CommandMiscDoRunScript) command).on(_target);
+			try
+			{
+				_target.submit(command);
+				synchronized (this)
+				{
+					_submitted++;
+				}
+			} catch (RuntimeException exception)
+			{
+				synchronized (this)
+				{
+					_failed++;
+				}
+				if (_errors != null)
+					_errors.println("command failed: " + exception);
+			}
+		} else
+		{
+			synchronized (this)
+			{
+				_rejected++;
+			}
+			if (_errors != null)
+				_errors.println("invalid command: "
+						+ item.getResult().getException());
+		}
+
+		if (++_received == REQUEST_BATCH / 2)
+		{
+			_received = 0;
+			_subscription.request(REQUEST_BATCH / 2);
+		}
+	}
+
+	@Override
+	public synchronized void onError(Throwable throwable)
+	{
+		_error = throwable;
+		_done = true;
+		notifyAll();
+	}
+
+	@Override
+	public synchronized void onComplete()
+	{
+		_done = true;
+		notifyAll();
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Waits until the publisher has completed or failed.
+	 *
+	 * @return the failure, or null if the stream completed
+	 * @throws InterruptedException
+	 */
+	public synchronized Throwable await() throws InterruptedException
+	{
+		while (!_done)
+			wait();
+		return _error;
+	}
+
+	/**
+	 * Stops the stream; nothing more is requested.
+	 */
+	public void cancel()
+	{
+		I_Subscription subscription;
+		synchronized (this)
+		{
+			subscription = _subscription;
+		}
+		if (subscription != null)
+			subscription.cancel();
+	}
+
+	/**
+	 * @return the number of commands submitted to the target
+	 */
+	public synchronized long getSubmitted()
+	{
+		return _submitted;
+	}
+
+	/**
+	 * @return the number of rejected lines reported
+	 */
+	public synchronized long getRejected()
+	{
+		return _rejected;
+	}
+
+	/**
+	 * @return the number of commands the target failed on
+	 */
+	public synchronized long getFailed()
+	{
+		return _failed;
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		return "submitted=" + _submitted + " rejected=" + _rejected
+				+ " failed=" + _failed + (_done ? " done" : "");
+	}
+}
@@ -1,32 +1,120 @@
 package acg.project.cli.parser;
 
-import java.util.Scanner;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 import acg.project.action.ActionSet;
 import acg.project.cli.CommandLineInterface;
 import acg.project.cli.parser.ParseException;
 
+/**
+ * Usage: Test [-serve port | -headless [file...]]
+ *
+ * Without arguments the commands typed on the console, or piped into it, run
+ * in a real simulation until the end of the input or a line -1. The console
+ * submits through a SubmissionQueue, which the files an @FOLLOW follows share.
+ * The scripts an @RUN runs wait out their @WAITs on a TimerWheel, each on its
+ * own, which releases their commands at their tick to the action processors.
+ * With -serve, a CommandServer on the port takes command sessions from other
+ * programs as well, through the same queue. With -headless, the lines of the
+ * files (or of the standard input) are parsed into a RecordingActionSet
+ * instead: no window is opened, and at the end the commands per action
+ * processor and the lines per second are reported.
+ */
 public class Test
 {
-	public static void main(String[] args) throws ParseException
+	// Characters read from the console at a time
+	private static final int INPUT_BUFFER = 1 << 16;
+
+	public static void main(String[] args) throws ParseException, IOException
 	{
+		if (args.length > 0 && args[0].equals("-headless"))
+		{
+			headless(args);
+			return;
+		}
+
 		ActionSet actionset = new ActionSet(new CommandLineInterface());
-		CommandParser cp;
-		Scanner scan = new Scanner(System.in);
-		String input = "";
-		while (!input.equals("-1"))
+		ActionSetTarget processors = new ActionSetTarget(actionset);
+		TimerWheel wheel = new TimerWheel(processors);
+		wheel.attach();
+		CommandMiscDoRunScript.setTimerWheel(wheel);
+
+		// Note: @FOLLOW submits from threads of its own, so even the console
+		// alone goes through the queue.
+		I_ThreadSafeCommandTarget target = new SubmissionQueue(processors);
+		if (args.length > 1 && args[0].equals("-serve"))
 		{
+			CommandServer server = new CommandServer(target,
+					Integer.parseInt(args[1]), System.err);
+			System.out.println("accepting command sessions on port "
+					+ server.getPort());
+		}
+		CommandParser parser = new CommandParser(target);
+
+		// Note: Nothing here waits for the simulation. The ActionSet holds
+		// the commands after an @WAIT back itself, so a piped feed is read and
+		// parsed as fast as it comes.
+		boolean prompt = (System.console() != null);
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				System.in), INPUT_BUFFER);
+		while (true)
+		{
+			if (prompt)
+				System.out.print("> ");
+			String input = reader.readLine();
+			if (input == null || input.equals("-1"))
+				break;
+
 			try
 			{
-				System.out.print("> ");
-				input = scan.nextLine();
-				cp = new CommandParser(actionset, input);
-				cp.interpret();
-				Thread.sleep(100);
-			} catch (Exception e)
+				parser.interpret(input);
+			} catch (ParseException | RuntimeException e)
 			{
 				System.out.println(e);
 			}
 		}
 	}
+
+	// Parses every line of the files after args[0], or of the standard input
+	private static void headless(String[] args) throws IOException
+	{
+		RecordingActionSet actionset = new RecordingActionSet(false);
+		CommandParser parser = new CommandParser(actionset);
+		long lines = 0;
+		long rejected = 0;
+
+		long start = System.nanoTime();
+		for (int i = (args.length > 1 ? 1 : 0); i < args.length; i++)
+		{
+			try (BufferedReader reader = (i == 0 ? new BufferedReader(
+					new InputStreamReader(System.in)) : Files
+					.newBufferedReader(Paths.get(args[i]),
+							StandardCharsets.ISO_8859_1)))
+			{
+				for (String line = reader.readLine(); line != null; line = reader
+						.readLine())
+				{
+					lines++;
+					ParseResult result = parser.parse(line);
+					if (!result.isValid())
+					{
+						rejected++;
+						System.err.println("invalid command: "
+								+ result.getException());
+					}
+				}
+			}
+		}
+		long elapsed = Math.max(1, System.nanoTime() - start);
+
+		System.out.println(lines + " lines, " + rejected + " rejected, in "
+				+ elapsed / 1000000 + " ms (" + lines * 1000000000L / elapsed
+				+ " lines/s)");
+		System.out.println(actionset);
+	}
 }
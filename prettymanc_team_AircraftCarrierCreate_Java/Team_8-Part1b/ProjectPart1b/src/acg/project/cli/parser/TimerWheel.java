@@ -0,0 +1,311 @@
+package acg.project.cli.parser;
+
+import java.io.PrintStream;
+
+import acg.architecture.datatype.Identifier;
+import acg.architecture.timing.Clock;
+import acg.architecture.timing.I_ClockListener;
+import acg.project.action.command.A_Command;
+import acg.project.action.command.creational.define.A_CommandCreationalDefine;
+import acg.project.action.command.miscellaneous.CommandMiscDoWait;
+
+//==================================================================================================================================================================================
+/**
+ * Holds commands back until a tick of the simulation clock and then releases
+ * them to the target, without a thread waiting for any of them.
+ *
+ * The ActionSet runs its scheduled commands strictly one after another: an
+ * @WAIT n holds up every command behind it, from every script, for n ticks.
+ * Here each input instead gets its own stream (stream()). A stream consumes
+ * @WAIT itself: the commands after it are parked in the wheel until their due
+ * tick and released in order then. Streams wait independently, so many timed
+ * scripts can run side by side.
+ *
+ * The wheel is hierarchical: 5 levels of 256 slots, level k holding the
+ * commands due within 256^(k+1) ticks. A tick looks at one slot of level 0;
+ * every 256 ticks one slot of the level above is spread out over the level
+ * below. Scheduling and releasing take constant time per command, however
+ * many are waiting.
+ *
+ * The wheel advances on every clock tick once attach() has registered it with
+ * the Clock; advance() does the same by hand. Commands are released on the
+ * clock's thread while it holds the Clock, so the target must take them
+ * without waiting, e.g. the ActionSetTarget of the simulation: a
+ * SubmissionQueue would hold up the clock while it is full, and is refused.
+ * The due commands are taken from the wheel first and released after, so
+ * streams can schedule while the target is busy. A RuntimeException the
+ * target throws for a command, whether released at its tick or at once
+ * because it is due already, is reported to the error stream and the next
+ * command is released.
+ */
+public final class TimerWheel implements I_ClockListener
+{
+	private static final int LEVELS = 5;
+
+	private static final int BITS = 8;
+
+	private static final int SLOTS = 1 << BITS;
+
+	private static final int MASK = SLOTS - 1;
+
+	private final I_ThreadSafeCommandTarget _target;
+
+	private final PrintStream _errors;
+
+	// Held while commands are handed to the target, so they arrive in the
+	// order they became due; taken before the wheel
+	private final Object _releasing = new Object();
+
+	// Per level and slot, a FIFO list of entries; all guarded by this
+	private final Entry[][] _heads = new Entry[LEVELS][SLOTS];
+
+	private final Entry[][] _tails = new Entry[LEVELS][SLOTS];
+
+	private long _now;
+
+	private int _size;
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Constructor. Failures go to System.err.
+	 *
+	 * @param target
+	 *            - where the commands are released
+	 */
+	public TimerWheel(I_ThreadSafeCommandTarget target)
+	{
+		this(target, System.err);
+	}
+
+	/**
+	 * Constructor. The wheel starts at tick 0 and does not advance until it is
+	 * attached to the clock or advance() is called.
+	 *
+	 * @param target
+	 *            - where the commands are released
+	 * @param errors
+	 *            - where the target's failures are reported, or null for none
+	 * @throws IllegalArgumentException
+	 *             if the target is a SubmissionQueue
+	 */
+	public TimerWheel(I_ThreadSafeCommandTarget target, PrintStream errors)
+	{
+		if (target instanceof SubmissionQueue)
+			throw new IllegalArgumentException(
+					"a SubmissionQueue may keep the clock waiting");
+		_target = target;
+		_errors = errors;
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * @return a new input of commands whose @WAITs only hold back its own
+	 *         later commands
+	 */
+	public I_CommandTarget stream()
+	{
+		return new Stream();
+	}
+
+	/**
+	 * Advances the wheel with every tick of the simulation clock.
+	 */
+	public void attach()
+	{
+		Clock clock = Clock.getInstance();
+		if (!clock.hasListener(this))
+			clock.registerListener(this);
+	}
+
+	/**
+	 * Stops advancing with the clock. Waiting commands stay in the wheel.
+	 */
+	public void detach()
+	{
+		Clock clock = Clock.getInstance();
+		if (clock.hasListener(this))
+			clock.unregisterListener(this);
+	}
+
+	/**
+	 * Called by the clock on every tick.
+	 */
+	@Override
+	public void update_()
+	{
+		advance();
+	}
+
+	/**
+	 * Moves on one tick and releases the commands due then, in the order they
+	 * were scheduled.
+	 */
+	public void advance()
+	{
+		synchronized (_releasing)
+		{
+			Entry entry;
+			synchronized (this)
+			{
+				entry = due();
+			}
+			for (; entry != null; entry = entry._next)
+				release(entry._command);
+		}
+	}
+
+	/**
+	 * @return the tick the wheel is at
+	 */
+	public synchronized long getTick()
+	{
+		return _now;
+	}
+
+	/**
+	 * @return the number of commands waiting
+	 */
+	public synchronized int size()
+	{
+		return _size;
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	// Moves on one tick and takes the list of entries due then out of the
+	// wheel. Caller holds the lock.
+	private Entry due()
+	{
+		_now++;
+
+		// Note: When several levels wrap at once, the highest goes first, so
+		// what it spreads out is spread again by the levels below.
+		int top = 0;
+		while (top + 1 < LEVELS
+				&& (_now & ((1L << (BITS * (top + 1))) - 1)) == 0)
+			top++;
+		for (int level = top; level > 0; level--)
+			cascade(level, (int) (_now >>> (BITS * level)) & MASK);
+
+		int slot = (int) _now & MASK;
+		Entry entry = _heads[0][slot];
+		_heads[0][slot] = null;
+		_tails[0][slot] = null;
+		for (Entry counted = entry; counted != null; counted = counted._next)
+			_size--;
+		return entry;
+	}
+
+	// Parks the command unless it is due. Caller holds the lock.
+	// @return true if it is due and is to be released
+	private boolean schedule(A_Command<?> command, long due)
+	{
+		if (due <= _now)
+			return true;
+		insert(new Entry(command, due));
+		_size++;
+		return false;
+	}
+
+	// Hands a due command to the target. A failure is reported; it must not
+	// keep the other commands of the tick from being released.
+	private void release(A_Command<?> command)
+	{
+		try
+		{
+			_target.submit(command);
+		} catch (RuntimeException exception)
+		{
+			if (_errors != null)
+				_errors.println("command failed: " + exception);
+		}
+	}
+
+	// Note: The level is the highest block of bits in which due and now
+	// differ. Entries due at the same tick thus always go to the same list
+	// until that list is spread out, which keeps them in order.
+	private void insert(Entry entry)
+	{
+		long differ = entry._due ^ _now;
+		int level = 0;
+		while (level + 1 < LEVELS && (differ >>> (BITS * (level + 1))) != 0)
+			level++;
+
+		int slot = (int) (entry._due >>> (BITS * level)) & MASK;
+		entry._next = null;
+		if (_tails[level][slot] == null)
+			_heads[level][slot] = entry;
+		else
+			_tails[level][slot]._next = entry;
+		_tails[level][slot] = entry;
+	}
+
+	private void cascade(int level, int slot)
+	{
+		Entry entry = _heads[level][slot];
+		_heads[level][slot] = null;
+		_tails[level][slot] = null;
+		while (entry != null)
+		{
+			Entry next = entry._next;
+			insert(entry);
+			entry = next;
+		}
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * One input. Its @WAITs add up to the tick before which none of its
+	 * commands is released; commands already due go straight to the target.
+	 */
+	private final class Stream implements I_CommandTarget
+	{
+		// guarded by the wheel
+		private long _due;
+
+		@Override
+		public void submit(A_Command<?> command)
+		{
+			synchronized (_releasing)
+			{
+				boolean due;
+				synchronized (TimerWheel.this)
+				{
+					if (command instanceof CommandMiscDoWait)
+					{
+						_due = Math.max(_due, _now)
+								+ ((CommandMiscDoWait) command).getRate()
+										.getValue();
+						return;
+					}
+					due = schedule(command, _due);
+				}
+				if (due)
+					release(command);
+			}
+		}
+
+		@Override
+		public A_CommandCreationalDefine getTemplate(Identifier tid)
+		{
+			return _target.getTemplate(tid);
+		}
+	}
+
+	/**
+	 * A parked command.
+	 */
+	private static final class Entry
+	{
+		private final A_Command<?> _command;
+
+		private final long _due;
+
+		private Entry _next;
+
+		public Entry(A_Command<?> command, long due)
+		{
+			_command = command;
+			_due = due;
+		}
+	}
+}
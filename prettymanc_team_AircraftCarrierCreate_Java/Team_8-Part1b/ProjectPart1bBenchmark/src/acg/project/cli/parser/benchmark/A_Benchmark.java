@@ -0,0 +1,51 @@
+package acg.project.cli.parser.benchmark;
+
+//==================================================================================================================================================================================
+/**
+ * One measured operation for BenchmarkRunner.
+ *
+ * setUp() is called once before the warm-up; operation() is then called as
+ * often as fits into each iteration. Anything operation() allocates is
+ * charged to it, so per-run state belongs in setUp().
+ */
+public abstract class A_Benchmark
+{
+	private final String _name;
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Constructor.
+	 *
+	 * @param name
+	 *            - the name shown in the report
+	 */
+	protected A_Benchmark(String name)
+	{
+		_name = name;
+	}
+
+	/**
+	 * @return the name shown in the report
+	 */
+	public String getName()
+	{
+		return _name;
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Prepares the benchmark. The default does nothing.
+	 *
+	 * @throws Exception
+	 */
+	public void setUp() throws Exception
+	{
+	}
+
+	/**
+	 * Performs one operation.
+	 *
+	 * @throws Exception
+	 */
+	public abstract void operation() throws Exception;
+}
@@ -0,0 +1,180 @@
+package acg.project.cli.parser.benchmark;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+//==================================================================================================================================================================================
+/**
+ * Small JMH-style harness for the parser benchmarks.
+ *
+ * Each benchmark gets a number of timed warm-up iterations, whose results are
+ * thrown away, and then a number of timed measurement iterations. For every
+ * measurement iteration the runner records the operations per second and, if
+ * the JVM can report per-thread allocation, the bytes allocated per
+ * operation. The report shows the mean and the standard deviation of each.
+ */
+public class BenchmarkRunner
+{
+	// Note: The clock is only read every this many operations, so that
+	// reading it does not dominate very short operations.
+	private static final int BATCH = 64;
+
+	private final int _warmupIterations;
+
+	private final int _measureIterations;
+
+	private final long _iterationNanos;
+
+	private final List<A_Benchmark> _benchmarks = new ArrayList<A_Benchmark>();
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Constructor.
+	 *
+	 * @param warmupIterations
+	 *            - timed iterations run before measuring
+	 * @param measureIterations
+	 *            - timed iterations that are reported
+	 * @param iterationMillis
+	 *            - length of one iteration
+	 */
+	public BenchmarkRunner(int warmupIterations, int measureIterations,
+			long iterationMillis)
+	{
+		if (warmupIterations < 0 || measureIterations < 1
+				|| iterationMillis < 1)
+			throw new IllegalArgumentException("invalid benchmark settings");
+
+		_warmupIterations = warmupIterations;
+		_measureIterations = measureIterations;
+		_iterationNanos = iterationMillis * 1000000L;
+	}
+
+	/**
+	 * Adds a benchmark to the run.
+	 *
+	 * @param benchmark
+	 */
+	public void add(A_Benchmark benchmark)
+	{
+		_benchmarks.add(benchmark);
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Runs every benchmark whose name contains filter and prints one line per
+	 * benchmark.
+	 *
+	 * @param filter
+	 *            - substring of the benchmark names to run; empty runs all
+	 * @param out
+	 *            - where the report goes
+	 * @throws Exception
+	 *             from a benchmark
+	 */
+	public void run(String filter, PrintStream out) throws Exception
+	{
+		com.sun.management.ThreadMXBean allocation = allocationBean();
+
+		out.println(String.format("%-28s %5s %14s %12s %12s %10s",
+				"Benchmark", "Cnt", "ops/s", "error", "B/op", "error"));
+
+		for (A_Benchmark benchmark : _benchmarks)
+		{
+			if (!benchmark.getName().contains(filter))
+				continue;
+
+			benchmark.setUp();
+
+			for (int i = 0; i < _warmupIterations; i++)
+				iteration(benchmark, null, null);
+
+			double[] rates = new double[_measureIterations];
+			double[] bytes = new double[_measureIterations];
+			for (int i = 0; i < _measureIterations; i++)
+			{
+				double[] result = new double[2];
+				iteration(benchmark, allocation, result);
+				rates[i] = result[0];
+				bytes[i] = result[1];
+			}
+
+			if (allocation != null)
+				out.println(String.format(
+						"%-28s %5d %14.1f %12.1f %12.1f %10.1f",
+						benchmark.getName(), _measureIterations, mean(rates),
+						deviation(rates), mean(bytes), deviation(bytes)));
+			else
+				out.println(String.format("%-28s %5d %14.1f %12.1f %12s %10s",
+						benchmark.getName(), _measureIterations, mean(rates),
+						deviation(rates), "n/a", ""));
+		}
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	// Runs one timed iteration. result receives ops/s and bytes/op.
+	private void iteration(A_Benchmark benchmark,
+			com.sun.management.ThreadMXBean allocation, double[] result)
+			throws Exception
+	{
+		long thread = Thread.currentThread().getId();
+		long bytesBefore = (allocation != null ? allocation
+				.getThreadAllocatedBytes(thread) : 0);
+		long operations = 0;
+		long start = System.nanoTime();
+		long elapsed;
+
+		do
+		{
+			for (int i = 0; i < BATCH; i++)
+				benchmark.operation();
+			operations += BATCH;
+			elapsed = System.nanoTime() - start;
+		} while (elapsed < _iterationNanos);
+
+		if (result != null)
+		{
+			result[0] = operations * 1e9 / elapsed;
+			if (allocation != null)
+				result[1] = (double) (allocation.getThreadAllocatedBytes(thread) - bytesBefore)
+						/ operations;
+		}
+	}
+
+	private static com.sun.management.ThreadMXBean allocationBean()
+	{
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean))
+			return null;
+
+		com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) bean;
+		if (!allocation.isThreadAllocatedMemorySupported())
+			return null;
+
+		allocation.setThreadAllocatedMemoryEnabled(true);
+		return allocation;
+	}
+
+	private static double mean(double[] values)
+	{
+		double sum = 0;
+		for (double value : values)
+			sum += value;
+		return sum / values.length;
+	}
+
+	private static double deviation(double[] values)
+	{
+		if (values.length < 2)
+			return 0;
+
+		double mean = mean(values);
+		double sum = 0;
+		for (double value : values)
+			sum += (value - mean) * (value - mean);
+		return Math.sqrt(sum / (values.length - 1));
+	}
+}
@@ -0,0 +1,70 @@
+package acg.project.cli.parser.benchmark;
+
+import java.util.regex.Pattern;
+
+import acg.project.cli.parser.CommandPatterns;
+
+/**
+ * Compares the validation cost of a command when its pattern is compiled on
+ * every call (the old behavior of the parsers) against matching with the
+ * shared, precompiled CommandPatterns registry.
+ *
+ * Usage: CommandPatternsBenchmark [iterations]
+ */
+public class CommandPatternsBenchmark
+{
+	private static final String[] LINES = {
+			"CREATE CARRIER c1 FROM ct WITH CATAPULT k1 BARRIER r1 TRAP t1 OLS x1 AT COORDINATES 45*30'15\"/110*30'10\" HEADING 090 SPEED 30",
+			"CREATE TANKER k1 FROM kt WITH BOOM b1 AT COORDINATES 45*30'15\"/110*30'10\" ALTITUDE 2000 HEADING 180 SPEED 250",
+			"CREATE TRAP t1 FROM tt", "@CLOCK 10", "@WAIT 5" };
+
+	private static final Pattern[] SHARED = { CommandPatterns.CREATE_CARRIER,
+			CommandPatterns.CREATE_TANKER, CommandPatterns.CREATE_TRAP,
+			CommandPatterns.CLOCK_RATE, CommandPatterns.WAIT };
+
+	public static void main(String[] args)
+	{
+		int iterations = (args.length > 0 ? Integer.parseInt(args[0]) : 200000);
+
+		// warm up both paths before measuring
+		compiled(iterations / 10);
+		shared(iterations / 10);
+
+		long start = System.nanoTime();
+		int matched = compiled(iterations);
+		long compiledNanos = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		matched += shared(iterations);
+		long sharedNanos = System.nanoTime() - start;
+
+		long commands = (long) iterations * LINES.length;
+		System.out.println("commands validated : " + commands + " (" + matched
+				+ " matched)");
+		System.out.println("compile per command: "
+				+ (compiledNanos / commands) + " ns/command");
+		System.out.println("shared patterns    : " + (sharedNanos / commands)
+				+ " ns/command");
+	}
+
+	private static int compiled(int iterations)
+	{
+		int matched = 0;
+		for (int i = 0; i < iterations; i++)
+			for (int j = 0; j < LINES.length; j++)
+				if (Pattern.compile(SHARED[j].pattern(), SHARED[j].flags())
+						.matcher(LINES[j]).matches())
+					matched++;
+		return matched;
+	}
+
+	private static int shared(int iterations)
+	{
+		int matched = 0;
+		for (int i = 0; i < iterations; i++)
+			for (int j = 0; j < LINES.length; j++)
+				if (SHARED[j].matcher(LINES[j]).matches())
+					matched++;
+		return matched;
+	}
+}
@@ -0,0 +1,128 @@
+package acg.project.cli.parser.benchmark;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import acg.project.cli.parser.CommandServer;
+import acg.project.cli.parser.RecordingActionSet;
+import acg.project.cli.parser.SubmissionQueue;
+
+/**
+ * Drives a CommandServer with several clients at once over the loopback
+ * interface. Every client sends its own aircraft's DO and @DO lines, and a
+ * malformed one now and then, without waiting for the answers; a reader
+ * thread per client collects them. The commands go through a SubmissionQueue
+ * into a RecordingActionSet.
+ *
+ * Reports the lines per second over all sessions, and the counters and
+ * latencies the server added up over the sessions once they had ended.
+ *
+ * Usage: CommandServerBenchmark [clients] [lines per client]
+ */
+public class CommandServerBenchmark
+{
+	private static final String[] BEHAVIORS = { "DO %s SET SPEED 300",
+			"DO %s SET ALTITUDE 12000", "DO %s SET HEADING 270 LEFT",
+			"@DO %s FORCE SPEED 250", "DO %s POSITION" };
+
+	private static final String MALFORMED = "DO %s SET SPEED -5";
+
+	private static final int MALFORMED_EVERY = 100;
+
+	public static void main(String[] args) throws Exception
+	{
+		int clients = (args.length > 0 ? Integer.parseInt(args[0]) : 8);
+		final int lines = (args.length > 1 ? Integer.parseInt(args[1])
+				: 100000);
+
+		RecordingActionSet actionset = new RecordingActionSet(false);
+		SubmissionQueue queue = new SubmissionQueue(actionset);
+		final CommandServer server = new CommandServer(queue, 0, System.err);
+
+		final AtomicLong answers = new AtomicLong();
+		final AtomicLong errors = new AtomicLong();
+		List<Thread> threads = new ArrayList<Thread>();
+		long start = System.nanoTime();
+		for (int c = 1; c <= clients; c++)
+		{
+			final String aid = "f" + c;
+			final Socket socket = new Socket(InetAddress.getLoopbackAddress(),
+					server.getPort());
+
+			Thread writer = new Thread("client " + c)
+			{
+				@Override
+				public void run()
+				{
+					try
+					{
+						Writer out = new BufferedWriter(new OutputStreamWriter(
+								socket.getOutputStream(),
+								StandardCharsets.ISO_8859_1));
+						for (int i = 1; i <= lines; i++)
+							out.write(String.format(
+									i % MALFORMED_EVERY == 0 ? MALFORMED
+											: BEHAVIORS[i % BEHAVIORS.length],
+									aid) + "\n");
+						out.flush();
+						socket.shutdownOutput();
+					} catch (Exception exception)
+					{
+						throw new IllegalStateException(exception);
+					}
+				}
+			};
+			Thread reader = new Thread("client " + c + " answers")
+			{
+				@Override
+				public void run()
+				{
+					try (BufferedReader in = new BufferedReader(
+							new InputStreamReader(socket.getInputStream(),
+									StandardCharsets.ISO_8859_1)))
+					{
+						for (String answer = in.readLine(); answer != null; answer = in
+								.readLine())
+						{
+							answers.incrementAndGet();
+							if (!answer.equals("ok"))
+								errors.incrementAndGet();
+						}
+					} catch (Exception exception)
+					{
+						throw new IllegalStateException(exception);
+					}
+				}
+			};
+			threads.add(writer);
+			threads.add(reader);
+			writer.start();
+			reader.start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		queue.flush();
+		long elapsed = System.nanoTime() - start;
+
+		server.close();
+		queue.close();
+
+		long total = (long) clients * lines;
+		System.out.println(clients + " sessions, " + total + " lines in "
+				+ elapsed / 1000000 + " ms: " + total * 1000000000L / elapsed
+				+ " lines/s");
+		System.out.println("answers " + answers + " (" + errors
+				+ " errors), delivered " + queue.getDelivered() + ": "
+				+ actionset);
+		System.out.println(server);
+	}
+}
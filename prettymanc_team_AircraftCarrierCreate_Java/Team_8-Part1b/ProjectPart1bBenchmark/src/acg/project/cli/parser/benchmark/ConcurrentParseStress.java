@@ -0,0 +1,262 @@
+package acg.project.cli.parser.benchmark;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import acg.architecture.datatype.Identifier;
+import acg.project.action.command.A_Command;
+import acg.project.action.command.creational.define.A_CommandCreationalDefine;
+import acg.project.action.command.creational.define.CommandCreationalUndefine;
+import acg.project.cli.parser.CommandCache;
+import acg.project.cli.parser.CommandParser;
+import acg.project.cli.parser.I_CommandTarget;
+import acg.project.cli.parser.ParseException;
+import acg.project.cli.parser.ParseResult;
+
+/**
+ * Checks that one CommandParser instance gives every thread the same results
+ * as serial parsing. A mix of valid and malformed lines of every command
+ * family is first parsed on one thread; the outcome of each line (the
+ * commands it submits, field by field, or why it was rejected) is the
+ * reference. Then several threads parse the whole mix through one shared
+ * parser, each in its own shuffled order, through both interpret(line) and
+ * parse(line), and every outcome is compared with the reference.
+ *
+ * The run is repeated with a CommandCache in front of the parsers, which the
+ * threads then share as well.
+ *
+ * Usage: ConcurrentParseStress [threads] [rounds]
+ */
+public class ConcurrentParseStress
+{
+	private static final String[] TEMPLATES = {
+			"DEFINE FIGHTER ft SPEED MIN 120 MAX 600 DELTA INCREASE 20 DECREASE 25 TURN 5 CLIMB 100 DESCENT 120 EMPTY WEIGHT 20000 FUEL INITIAL 8000 DELTA 10",
+			"DEFINE TANKER kt SPEED MIN 150 MAX 450 DELTA INCREASE 10 DECREASE 15 TURN 3 CLIMB 80 DESCENT 90 TANK 50000",
+			"DEFINE CARRIER ct SPEED MAX 35 DELTA INCREASE 2 DECREASE 3 TURN 1 LAYOUT carrier.txt",
+			"DEFINE BOOM FEMALE bf LENGTH 10 DIAMETER 1 ELEVATION 5 FLOW 5" };
+
+	private static final String[] LINES = {
+			"CREATE FIGHTER f1 FROM ft WITH OLS o1 BOOM b1 TAILHOOK h1 TANKS t1 t2 t3 OVERRIDING o1.diameter WITH 12 AT COORDINATES 45*30'15\"/110*30'10\" ALTITUDE 1000 HEADING 090 SPEED 300",
+			"CREATE FIGHTER f2 FROM ft WITH OLS o2 BOOM b2 TAILHOOK h2 TANKS t4 OVERRIDING o2.diameter WITH 12 b2.length WITH 20",
+			"CREATE FIGHTER w COUNT 20 FROM ft WITH OLS ot BOOM bf TAILHOOK ht",
+			"CREATE CARRIER c1 FROM ct WITH CATAPULT k1 BARRIER r1 TRAP t1 OLS x1 AT COORDINATES 45*30'15\"/110*30'10\" HEADING 090 SPEED 30",
+			"CREATE TANKER k1 FROM kt WITH BOOM b1 AT COORDINATES 45*30'15\"/110*30'10\" ALTITUDE 2000 HEADING 180 SPEED 250",
+			"CREATE BOOM b9 FROM bf", "CREATE TRAP t1 FROM tt",
+			"DO f1 SET SPEED 300", "DO f1 SET ALTITUDE 12000",
+			"DO f1 SET HEADING 270 LEFT", "DO f1 ASK ALL", "DO c1 BARRIER UP",
+			"DO f1 POSITION", "DO c1 CATAPULT LAUNCH WITH SPEED 150",
+			"@DO f1 FORCE HEADING 90", "@DO f1 FORCE SPEED 250",
+			"@DO f1 FORCE ALTITUDE 8000",
+			"@DO f1 FORCE COORDINATES 45*30'15\"/110*30'10\"",
+			"@DO f1 FORCE COORDINATES 45.504167/110.502778",
+			"@DO f1 FORCE COORDINATES 45*30'15\"/110*30'10\" ALTITUDE 9000 HEADING 180 SPEED 320",
+			"DO f1 SET SPEED 300; DO f2 SET SPEED 200 // two at once",
+			"POPULATE WORLD WITH f1 f2 f3 f4 f5",
+			"POPULATE WORLD WITH w[1..20]",
+			"POPULATE CARRIER c1 WITH f1 f2", "COMMIT", "@CLOCK 10",
+			"@CLOCK PAUSE", "@WAIT 5", "LIST TEMPLATES", "LIST AGENTS",
+			"SHOW TEMPLATE ft", "DESCRIBE AGENT f1",
+			// malformed
+			"DO f1 SET SPEED -5", "DO f1 SET HEADING 400 LEFT",
+			"@DO f1 FORCE COORDINATES 95*30'15\"/110*30'10\"",
+			"CREATE FIGHTER f1 FROM ft WITH OLS", "LIST NOTHING",
+			"POPULATE WORLD WITH f[9..1]", "@CLOCK SOON", "DO",
+			"DEFINE FIGHTER", "DO f1 SET SPEED 99999999999" };
+
+	public static void main(String[] args) throws Exception
+	{
+		int threads = (args.length > 0 ? Integer.parseInt(args[0]) : 8);
+		int rounds = (args.length > 1 ? Integer.parseInt(args[1]) : 200);
+
+		int failures = run(threads, rounds, "without cache");
+		CommandParser.setCache(new CommandCache(LINES.length * 2));
+		try
+		{
+			failures += run(threads, rounds, "with cache");
+		} finally
+		{
+			CommandParser.setCache(null);
+		}
+
+		System.out.println(failures == 0 ? "all results identical"
+				: failures + " results differ");
+		if (failures != 0)
+			System.exit(1);
+	}
+
+	// @return the number of outcomes that differed from serial parsing
+	private static int run(int threads, final int rounds, String label)
+			throws Exception
+	{
+		final SessionTarget target = new SessionTarget();
+		final CommandParser parser = new CommandParser(target);
+		for (String line : TEMPLATES)
+			parser.interpret(line);
+
+		final String[] expected = new String[LINES.length];
+		for (int i = 0; i < LINES.length; i++)
+			expected[i] = outcome(parser, target, LINES[i], i % 2 == 0);
+
+		final AtomicInteger failures = new AtomicInteger();
+		final AtomicInteger checked = new AtomicInteger();
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Thread> workers = new ArrayList<Thread>();
+		for (int t = 0; t < threads; t++)
+		{
+			final Random random = new Random(t);
+			Thread worker = new Thread("session " + t)
+			{
+				@Override
+				public void run()
+				{
+					List<Integer> order = new ArrayList<Integer>();
+					for (int i = 0; i < LINES.length; i++)
+						order.add(i);
+					try
+					{
+						start.await();
+						for (int round = 0; round < rounds; round++)
+						{
+							Collections.shuffle(order, random);
+							for (int i : order)
+							{
+								String actual = outcome(parser, target,
+										LINES[i], i % 2 == 0);
+								checked.incrementAndGet();
+								if (!actual.equals(expected[i])
+										&& failures.incrementAndGet() <= 10)
+									System.out.println(getName() + ": "
+											+ LINES[i] + "\n  expected "
+											+ expected[i] + "\n  actual   "
+											+ actual);
+							}
+						}
+					} catch (InterruptedException exception)
+					{
+						Thread.currentThread().interrupt();
+					}
+				}
+			};
+			workers.add(worker);
+			worker.start();
+		}
+
+		long begin = System.nanoTime();
+		start.countDown();
+		for (Thread worker : workers)
+			worker.join();
+		long elapsed = System.nanoTime() - begin;
+
+		System.out.println(label + ": " + threads + " threads, "
+				+ checked.get() + " lines in " + elapsed / 1000000 + " ms, "
+				+ failures.get() + " differ");
+		return failures.get();
+	}
+
+	// @return what parsing the line does, as text: the commands it submits
+	// and the result, through parse() or interpret()
+	private static String outcome(CommandParser parser, SessionTarget target,
+			String line, boolean result)
+	{
+		StringBuilder outcome = new StringBuilder();
+		List<A_Command<?>> commands = target.session();
+		commands.clear();
+
+		if (result)
+		{
+			ParseResult parsed = parser.parse(line);
+			outcome.append(parsed.isValid() ? "valid" : parsed.getError()
+					+ "@" + parsed.getToken() + " " + parsed.getMessage());
+		} else
+		{
+			try
+			{
+				parser.interpret(line);
+				outcome.append("valid");
+			} catch (ParseException | RuntimeException exception)
+			{
+				outcome.append(exception);
+			}
+		}
+
+		for (A_Command<?> command : commands)
+			describe(command, outcome.append(" | "));
+		return outcome.toString();
+	}
+
+	// Note: The commands have no equals(); they are compared by the values
+	// of all their fields.
+	private static void describe(Object value, StringBuilder out)
+	{
+		out.append(value.getClass().getSimpleName()).append('{');
+		for (Class<?> type = value.getClass(); type != Object.class; type = type
+				.getSuperclass())
+			for (Field field : type.getDeclaredFields())
+			{
+				if (Modifier.isStatic(field.getModifiers()))
+					continue;
+				field.setAccessible(true);
+				try
+				{
+					out.append(field.getName()).append('=')
+							.append(field.get(value)).append(' ');
+				} catch (IllegalAccessException exception)
+				{
+					throw new IllegalStateException(exception);
+				}
+			}
+		out.append('}');
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * A target shared by all threads that keeps the commands of each thread
+	 * apart, as if every thread were a session of its own.
+	 */
+	private static class SessionTarget implements I_CommandTarget
+	{
+		private final Map<Identifier, A_CommandCreationalDefine> _templates = new ConcurrentHashMap<Identifier, A_CommandCreationalDefine>();
+
+		private final ThreadLocal<List<A_Command<?>>> _sessions = new ThreadLocal<List<A_Command<?>>>()
+		{
+			@Override
+			protected List<A_Command<?>> initialValue()
+			{
+				return new ArrayList<A_Command<?>>();
+			}
+		};
+
+		public List<A_Command<?>> session()
+		{
+			return _sessions.get();
+		}
+
+		@Override
+		public void submit(A_Command<?> command)
+		{
+			_sessions.get().add(command);
+
+			// Note: Only the serial set-up defines templates; the lines under
+			// test must not change what the others see.
+			if (command instanceof CommandCreationalUndefine)
+				throw new IllegalStateException("templates are fixed");
+			if (command instanceof A_CommandCreationalDefine)
+				_templates.put(((A_CommandCreationalDefine) command).getID_(),
+						(A_CommandCreationalDefine) command);
+		}
+
+		@Override
+		public A_CommandCreationalDefine getTemplate(Identifier tid)
+		{
+			return _templates.get(tid);
+		}
+	}
+}
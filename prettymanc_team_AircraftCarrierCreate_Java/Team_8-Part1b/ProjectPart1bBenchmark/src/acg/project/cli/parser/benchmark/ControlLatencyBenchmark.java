@@ -0,0 +1,170 @@
+package acg.project.cli.parser.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import acg.architecture.timing.Clock;
+import acg.project.action.ActionSet;
+import acg.project.cli.CommandLineInterface;
+import acg.project.cli.parser.ActionSetTarget;
+import acg.project.cli.parser.CommandParser;
+import acg.project.cli.parser.SubmissionQueue;
+
+/**
+ * Measures @CLOCK PAUSE and @CLOCK RESUME in a real simulation, through a
+ * SubmissionQueue in front of an ActionSetTarget as Test sets it up. Like
+ * Test, it needs a display for the ActionSet.
+ *
+ * First, with nothing scheduled ahead of them, the time from submitting the
+ * line until Clock.isEnabled() has changed: one tick for a pause, and for a
+ * resume the tick that ActionSetTarget forces on the paused clock.
+ *
+ * Then an @RUN script of more lines than the queue holds is run at a tick, so
+ * the clock thread submits its lines into the full queue while it holds the
+ * Clock. The pause and the resume sent meanwhile from the console are timed
+ * until the queue has delivered them, past the script's lines still queued.
+ * The round also fails if the script's lines do not all arrive, i.e. if the
+ * clock thread and the queue's worker wait for each other. The commands are
+ * scheduled in the ActionSet behind the script's, which runs one per tick, so
+ * their effect is not waited for.
+ *
+ * Usage: ControlLatencyBenchmark [script lines] [rounds]
+ */
+public class ControlLatencyBenchmark
+{
+	private static final long TICK_NANOS = 1000000000L / 50;
+
+	private static final long TIMEOUT_MILLIS = 30000;
+
+	public static void main(String[] args) throws Exception
+	{
+		int lines = (args.length > 0 ? Integer.parseInt(args[0])
+				: 5 * SubmissionQueue.DEFAULT_CAPACITY);
+		int rounds = (args.length > 1 ? Integer.parseInt(args[1]) : 5);
+
+		ActionSet actionset = new ActionSet(new CommandLineInterface());
+		int status = 0;
+		try
+		{
+			run(new SubmissionQueue(new ActionSetTarget(actionset)), lines,
+					rounds);
+		} catch (IllegalStateException exception)
+		{
+			System.out.println("FAILED: " + exception.getMessage());
+			status = 1;
+		}
+
+		// Note: The clock's timer thread would keep the VM alive.
+		System.exit(status);
+	}
+
+	static void run(SubmissionQueue queue, int lines, int rounds)
+			throws Exception
+	{
+		Clock clock = Clock.getInstance();
+		clock.isEnabled(true);
+
+		long worst = 0;
+		for (int round = 1; round <= rounds; round++)
+		{
+			long pause = effect(queue, "@CLOCK PAUSE", clock, false);
+			long resume = effect(queue, "@CLOCK RESUME", clock, true);
+			worst = Math.max(worst, Math.max(pause, resume));
+			System.out.println("round " + round + ": pause " + micros(pause)
+					+ ", resume " + micros(resume));
+		}
+		System.out.println("worst pause/resume : " + micros(worst) + " ("
+				+ (worst <= 2 * TICK_NANOS ? "within" : "MORE than")
+				+ " two ticks of " + micros(TICK_NANOS) + ")");
+
+		File script = script(lines);
+		try
+		{
+			// the @RUN itself, then the lines of the script
+			long before = queue.getAccepted();
+			long expected = before + 1 + lines;
+			new CommandParser(queue, "@RUN " + script).interpret();
+			long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+			while (queue.getAccepted() - before < lines / 2)
+			{
+				if (System.currentTimeMillis() > deadline)
+					throw new IllegalStateException("@RUN did not run: "
+							+ queue);
+				Thread.yield();
+			}
+			int behind = queue.size();
+
+			long controls = queue.getControlDelivered();
+			List<Long> latencies = new ArrayList<Long>();
+			for (String line : new String[] { "@CLOCK PAUSE", "@CLOCK RESUME" })
+			{
+				new CommandParser(queue, line).interpret();
+				controls++;
+				await(queue, controls, 0, line);
+				latencies.add(queue.getLastControlLatency());
+			}
+			await(queue, controls, expected + 2, "@RUN " + script);
+
+			System.out.println("script of " + lines + " lines, " + behind
+					+ " queued: pause delivered " + micros(latencies.get(0))
+					+ ", resume " + micros(latencies.get(1)));
+			System.out.println("delivered          : " + queue);
+		} finally
+		{
+			Files.deleteIfExists(script.toPath());
+		}
+	}
+
+	// @return nanoseconds from submitting line until the clock is running or
+	// not as wanted
+	private static long effect(SubmissionQueue queue, String line,
+			Clock clock, boolean running) throws Exception
+	{
+		long start = System.nanoTime();
+		new CommandParser(queue, line).interpret();
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while (clock.isEnabled() != running)
+		{
+			if (System.currentTimeMillis() > deadline)
+				throw new IllegalStateException(line + " had no effect");
+			Thread.yield();
+		}
+		return System.nanoTime() - start;
+	}
+
+	private static void await(SubmissionQueue queue, long controls,
+			long accepted, String what) throws InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while (queue.getControlDelivered() < controls
+				|| queue.getDelivered() < accepted)
+		{
+			if (System.currentTimeMillis() > deadline)
+				throw new IllegalStateException("stalled on " + what + ": "
+						+ queue);
+			Thread.sleep(1);
+		}
+	}
+
+	// A script of silent one-tick commands
+	private static File script(int lines) throws IOException
+	{
+		StringBuilder text = new StringBuilder(lines * 9);
+		for (int i = 0; i < lines; i++)
+			text.append("@WAIT 1\n");
+
+		File file = File.createTempFile("control", ".txt");
+		Files.write(file.toPath(),
+				text.toString().getBytes(StandardCharsets.ISO_8859_1));
+		return file;
+	}
+
+	private static String micros(long nanos)
+	{
+		return (nanos / 1000) + " us";
+	}
+}
@@ -0,0 +1,196 @@
+package acg.project.cli.parser.benchmark;
+
+import acg.project.action.command.A_Command;
+import acg.project.cli.parser.CommandProcessor;
+import acg.project.cli.parser.E_Backpressure;
+import acg.project.cli.parser.I_Publisher;
+import acg.project.cli.parser.I_Subscriber;
+import acg.project.cli.parser.I_Subscription;
+import acg.project.cli.parser.SubmissionQueue;
+import acg.project.cli.parser.TargetSubscriber;
+
+/**
+ * Runs command lines from a producer thread through a CommandProcessor into a
+ * TargetSubscriber, first into a target that only counts, then through a small
+ * SubmissionQueue into one that spends a fixed time on every command.
+ *
+ * Reports the lines per second, how far the producer ever got ahead of the
+ * target and how long it waited for demand. Without backpressure the producer
+ * would be the whole script ahead of the slow target; with it, at most about
+ * LINE_BATCH + REQUEST_BATCH + QUEUE_CAPACITY lines.
+ *
+ * Usage: FlowIngestBenchmark [lines] [micros per slow command]
+ */
+public class FlowIngestBenchmark
+{
+	private static final String[] LINES = { "DO f1 SET SPEED 300",
+			"DO f2 SET ALTITUDE 12000", "DO f3 SET HEADING 270 LEFT",
+			"@DO f4 FORCE SPEED 250", "DO f5 SET SPEED -5" };
+
+	private static final int QUEUE_CAPACITY = 64;
+
+	public static void main(String[] args) throws Exception
+	{
+		int lines = (args.length > 0 ? Integer.parseInt(args[0]) : 1000000);
+		long cost = (args.length > 1 ? Long.parseLong(args[1]) : 20) * 1000;
+
+		// warm-up
+		run(lines, new CountingTarget(0), false);
+
+		run(lines, new CountingTarget(0), false);
+		run(lines / 100, new CountingTarget(cost), true);
+	}
+
+	private static void run(int count, CountingTarget target, boolean queued)
+			throws Exception
+	{
+		LinePublisher producer = new LinePublisher(count);
+		target._producer = producer;
+		SubmissionQueue queue = (queued ? new SubmissionQueue(target,
+				QUEUE_CAPACITY, E_Backpressure.BLOCK, System.err) : null);
+		CommandProcessor processor = new CommandProcessor(target);
+		TargetSubscriber subscriber = new TargetSubscriber(
+				(queued ? queue : target), null);
+
+		long start = System.nanoTime();
+		processor.subscribe(subscriber);
+		producer.subscribe(processor);
+		Throwable error = subscriber.await();
+		if (queued)
+		{
+			queue.flush();
+			queue.close();
+		}
+		long elapsed = System.nanoTime() - start;
+
+		System.out.println(count + " lines" + " at " + target._cost / 1000
+				+ " us per command: " + count * 1000000000L / elapsed
+				+ " lines/s, " + subscriber + (error != null ? " " + error : ""));
+		System.out.println("  producer at most " + target.getMaxAhead()
+				+ " lines ahead of the target, waited for demand "
+				+ producer._stalled / 1000000 + " ms");
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Produces the lines on a thread of its own, only as many as requested.
+	 */
+	private static class LinePublisher implements I_Publisher<String>,
+			I_Subscription
+	{
+		private final int _count;
+
+		private I_Subscriber<? super String> _subscriber;
+
+		// guarded by this
+		private long _demand;
+
+		private boolean _cancelled;
+
+		private volatile long _sent;
+
+		// only the producer thread touches it
+		private long _stalled;
+
+		public LinePublisher(int count)
+		{
+			_count = count;
+		}
+
+		@Override
+		public void subscribe(I_Subscriber<? super String> subscriber)
+		{
+			_subscriber = subscriber;
+			subscriber.onSubscribe(this);
+
+			Thread thread = new Thread("line producer")
+			{
+				@Override
+				public void run()
+				{
+					produce();
+				}
+			};
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		@Override
+		public synchronized void request(long n)
+		{
+			_demand += n;
+			notifyAll();
+		}
+
+		@Override
+		public synchronized void cancel()
+		{
+			_cancelled = true;
+			notifyAll();
+		}
+
+		private void produce()
+		{
+			try
+			{
+				for (int i = 0; i < _count; i++)
+				{
+					synchronized (this)
+					{
+						long waiting = System.nanoTime();
+						while (_demand == 0 && !_cancelled)
+							wait();
+						_stalled += System.nanoTime() - waiting;
+						if (_cancelled)
+							return;
+						_demand--;
+					}
+					_subscriber.onNext(LINES[i % LINES.length]);
+					_sent++;
+				}
+				_subscriber.onComplete();
+			} catch (InterruptedException exception)
+			{
+				_subscriber.onError(exception);
+			}
+		}
+	}
+
+	/**
+	 * Counts the commands, spending a fixed time on each, and notes how far
+	 * the producer is ahead.
+	 */
+	private static class CountingTarget extends RecordingCommandTarget
+	{
+		private final long _cost;
+
+		private LinePublisher _producer;
+
+		// guarded by this
+		private long _maxAhead;
+
+		public CountingTarget(long cost)
+		{
+			super(false);
+			_cost = cost;
+		}
+
+		@Override
+		public synchronized void submit(A_Command<?> command)
+		{
+			long end = System.nanoTime() + _cost;
+			while (System.nanoTime() < end)
+				;
+			super.submit(command);
+
+			// Note: Every fifth line is rejected and never reaches the target.
+			_maxAhead = Math.max(_maxAhead, _producer._sent - getCount() * 5
+					/ 4);
+		}
+
+		public synchronized long getMaxAhead()
+		{
+			return _maxAhead;
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package acg.project.cli.parser.benchmark;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import acg.project.action.command.A_Command;
+import acg.project.cli.parser.FileFollower;
+import acg.project.cli.parser.I_ThreadSafeCommandTarget;
+
+/**
+ * Follows a command file that another thread appends to, the way @FOLLOW
+ * does, into a target that notes when every command arrives.
+ *
+ * First the lines are appended in large writes, to measure the lines per
+ * second. Then the file is rotated (renamed away and created anew) and
+ * truncated in place, with lines written around both, and a line is written
+ * in two halves. Last, single lines are appended one at a time, to measure
+ * the time from writing a line until its command reached the target.
+ *
+ * Every line written yields one command, so the counts must match exactly:
+ * a line read twice or lost to a rotation shows up there.
+ *
+ * Usage: FollowBenchmark [lines] [single lines]
+ */
+public class FollowBenchmark
+{
+	private static final int LINES_PER_WRITE = 1000;
+
+	// Milliseconds between the single lines
+	private static final long PAUSE = 2;
+
+	private static final long TIMEOUT_MILLIS = 60000;
+
+	public static void main(String[] args) throws Exception
+	{
+		int lines = (args.length > 0 ? Integer.parseInt(args[0]) : 500000);
+		int singles = (args.length > 1 ? Integer.parseInt(args[1]) : 1000);
+
+		Path directory = Files.createTempDirectory("follow");
+		Path feed = directory.resolve("feed.txt");
+		Files.createFile(feed);
+
+		ArrivalTarget target = new ArrivalTarget(singles);
+		FileFollower follower = new FileFollower(feed.toFile(), target, null,
+				System.err);
+		long expected = 0;
+
+		// appended in large writes
+		long start = System.nanoTime();
+		StringBuilder chunk = new StringBuilder();
+		for (int i = 1; i <= lines; i++)
+		{
+			chunk.append(line(i)).append('\n');
+			if (i % LINES_PER_WRITE == 0 || i == lines)
+			{
+				append(feed, chunk.toString());
+				chunk.setLength(0);
+			}
+		}
+		expected += lines;
+		await(target, expected);
+		long elapsed = System.nanoTime() - start;
+		System.out.println(lines + " lines appended in " + elapsed / 1000000
+				+ " ms: " + lines * 1000000000L / elapsed + " lines/s");
+
+		// rotated: the end of the old file is still read
+		append(feed, line(1) + "\n");
+		Files.move(feed, directory.resolve("feed.txt.1"));
+		append(feed, line(2) + "\n" + line(3) + "\n");
+		expected += 3;
+		await(target, expected);
+
+		// truncated in place, and a line written in two halves
+		try (FileChannel channel = FileChannel.open(feed,
+				StandardOpenOption.WRITE))
+		{
+			channel.truncate(0);
+		}
+		append(feed, line(4) + "\nDO f9 SET SP");
+		Thread.sleep(50);
+		append(feed, "EED 300\r\n");
+		expected += 2;
+		await(target, expected);
+
+		// one line at a time
+		target.startTiming();
+		for (int i = 0; i < singles; i++)
+		{
+			target._written[i] = System.nanoTime();
+			append(feed, line(i) + "\n");
+			Thread.sleep(PAUSE);
+		}
+		expected += singles;
+		await(target, expected);
+
+		follower.close();
+		System.out.println(singles + " single lines: mean latency "
+				+ target.getMeanLatency() / 1000 + " us, max "
+				+ target.getMaxLatency() / 1000 + " us");
+		System.out.println("commands " + target.getCount() + " of "
+				+ expected + ", " + follower);
+
+		for (String name : new String[] { "feed.txt", "feed.txt.1" })
+			Files.deleteIfExists(directory.resolve(name));
+		Files.delete(directory);
+	}
+
+	private static String line(int i)
+	{
+		return "DO f" + (i % 100) + " SET SPEED " + (100 + i % 400);
+	}
+
+	private static void append(Path file, String text) throws IOException
+	{
+		Files.write(file, text.getBytes(StandardCharsets.ISO_8859_1),
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+	}
+
+	private static void await(ArrivalTarget target, long count)
+			throws InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while (target.getCount() < count)
+		{
+			if (System.currentTimeMillis() > deadline)
+				throw new IllegalStateException("only " + target.getCount()
+						+ " of " + count + " commands arrived");
+			Thread.sleep(1);
+		}
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Counts the commands and, once timing, how long after being written each
+	 * one arrived.
+	 */
+	private static class ArrivalTarget extends RecordingCommandTarget implements
+			I_ThreadSafeCommandTarget
+	{
+		private final long[] _written;
+
+		// guarded by this
+		private int _timed = -1;
+
+		private long _totalLatency;
+
+		private long _maxLatency;
+
+		public ArrivalTarget(int singles)
+		{
+			super(false);
+			_written = new long[singles];
+		}
+
+		public synchronized void startTiming()
+		{
+			_timed = 0;
+		}
+
+		@Override
+		public synchronized void submit(A_Command<?> command)
+		{
+			super.submit(command);
+			if (_timed < 0 || _timed >= _written.length)
+				return;
+
+			long latency = System.nanoTime() - _written[_timed++];
+			_totalLatency += latency;
+			_maxLatency = Math.max(_maxLatency, latency);
+		}
+
+		@Override
+		public synchronized long getCount()
+		{
+			return super.getCount();
+		}
+
+		public synchronized long getMeanLatency()
+		{
+			return (_timed <= 0 ? 0 : _totalLatency / _timed);
+		}
+
+		public synchronized long getMaxLatency()
+		{
+			return _maxLatency;
+		}
+	}
+}
@@ -0,0 +1,488 @@
+package acg.project.cli.parser.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import acg.project.cli.parser.CommandCache;
+import acg.project.cli.parser.CommandParser;
+import acg.project.cli.parser.CommandParserStructural;
+import acg.project.cli.parser.E_Backpressure;
+import acg.project.cli.parser.I_CommandTarget;
+import acg.project.cli.parser.ParseException;
+import acg.project.cli.parser.ParseResult;
+import acg.project.cli.parser.RecordingActionSet;
+import acg.project.cli.parser.SetPointCoalescer;
+import acg.project.cli.parser.SubmissionQueue;
+import acg.project.cli.parser.TimerWheel;
+
+//==================================================================================================================================================================================
+/**
+ * Throughput and allocation of CommandParser, per command family.
+ *
+ * Every benchmark parses its lines into a RecordingCommandTarget, so only the
+ * parser is measured and no desktop is needed.
+ *
+ * Usage: ParserBenchmarks [filter [warmup measure millis]]
+ *
+ * filter selects benchmarks by a part of their name (e.g. "define"); the other
+ * arguments default to 5 warm-up and 5 measurement iterations of 1000 ms.
+ */
+public class ParserBenchmarks
+{
+	private static final String[] DEFINES_FIGHTER = { "DEFINE FIGHTER ft SPEED MIN 120 MAX 600 DELTA INCREASE 20 DECREASE 25 TURN 5 CLIMB 100 DESCENT 120 EMPTY WEIGHT 20000 FUEL INITIAL 8000 DELTA 10" };
+
+	private static final String[] DEFINES_TANKER = { "DEFINE TANKER kt SPEED MIN 150 MAX 450 DELTA INCREASE 10 DECREASE 15 TURN 3 CLIMB 80 DESCENT 90 TANK 50000" };
+
+	private static final String[] DEFINES_CARRIER = { "DEFINE CARRIER ct SPEED MAX 35 DELTA INCREASE 2 DECREASE 3 TURN 1 LAYOUT carrier.txt" };
+
+	private static final String[] CREATES_FIGHTER = {
+			"CREATE FIGHTER f1 FROM ft WITH OLS o1 BOOM b1 TAILHOOK h1 TANKS t1 t2 t3 OVERRIDING o1.diameter WITH 12 AT COORDINATES 45*30'15\"/110*30'10\" ALTITUDE 1000 HEADING 090 SPEED 300",
+			"CREATE FIGHTER f2 FROM ft WITH OLS o2 BOOM b2 TAILHOOK h2 TANKS t4 OVERRIDING o2.diameter WITH 12 b2.length WITH 20" };
+
+	private static final String[] BEHAVIORAL_DO = { "DO f1 SET SPEED 300",
+			"DO f1 SET ALTITUDE 12000", "DO f1 SET HEADING 270 LEFT",
+			"DO f1 ASK ALL", "DO c1 BARRIER UP", "DO f1 POSITION",
+			"DO c1 CATAPULT LAUNCH WITH SPEED 150" };
+
+	private static final String[] BEHAVIORAL_FORCE = {
+			"@DO f1 FORCE HEADING 90", "@DO f1 FORCE SPEED 250",
+			"@DO f1 FORCE ALTITUDE 8000",
+			"@DO f1 FORCE COORDINATES 45*30'15\"/110*30'10\"",
+			"@DO f1 FORCE COORDINATES 45*30'15\"/110*30'10\" ALTITUDE 9000 HEADING 180 SPEED 320" };
+
+	private static final String[] COORDINATES_DMS = { "@DO f1 FORCE COORDINATES 45*30'15\"/110*30'10\"" };
+
+	private static final String[] COORDINATES_DECIMAL = { "@DO f1 FORCE COORDINATES 45.504167/110.502778" };
+
+	private static final String MALFORMED_BEHAVIORAL = "DO f1 SET SPEED -5";
+
+	private static final int POPULATE_SIZE = 1000;
+
+	private static final int POPULATE_LARGE_SIZE = 100000;
+
+	private static final int MALFORMED_TANKS = 50;
+
+	private static final int WING_SIZE = 1000;
+
+	private static final int WAIT_STREAMS = 1000;
+
+	private static final int AUTOPILOT_AIRCRAFT = 100;
+
+	private static final String DEFINE_WING_BOOM = "DEFINE BOOM FEMALE bf LENGTH 10 DIAMETER 1 ELEVATION 5 FLOW 5";
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	public static void main(String[] args) throws Exception
+	{
+		String filter = (args.length > 0 ? args[0] : "");
+		int warmup = (args.length > 1 ? Integer.parseInt(args[1]) : 5);
+		int measure = (args.length > 2 ? Integer.parseInt(args[2]) : 5);
+		long millis = (args.length > 3 ? Long.parseLong(args[3]) : 1000);
+
+		// Note: Large populations would report their progress on every run.
+		CommandParserStructural.setProgress(null);
+
+		BenchmarkRunner runner = new BenchmarkRunner(warmup, measure, millis);
+		runner.add(new LineBenchmark("define.fighter", DEFINES_FIGHTER));
+		runner.add(new LineBenchmark("define.tanker", DEFINES_TANKER));
+		runner.add(new LineBenchmark("define.carrier", DEFINES_CARRIER));
+		runner.add(new LineBenchmark("create.fighter", CREATES_FIGHTER));
+		runner.add(new RejectBenchmark("create.fighter.malformed",
+				malformedFighter(MALFORMED_TANKS)));
+		runner.add(new LineBenchmark("behavioral.do", BEHAVIORAL_DO));
+		runner.add(new LineBenchmark("behavioral.force", BEHAVIORAL_FORCE));
+		runner.add(new LineBenchmark("coordinates.dms", COORDINATES_DMS));
+		runner.add(new LineBenchmark("coordinates.decimal",
+				COORDINATES_DECIMAL));
+		runner.add(new CachedLineBenchmark("behavioral.do.cached",
+				BEHAVIORAL_DO));
+		runner.add(new CachedLineBenchmark("behavioral.force.cached",
+				BEHAVIORAL_FORCE));
+		runner.add(new QueuedLineBenchmark("behavioral.do.queued",
+				BEHAVIORAL_DO));
+		runner.add(new RejectBenchmark("behavioral.malformed",
+				MALFORMED_BEHAVIORAL));
+		runner.add(new ResultBenchmark("behavioral.malformed.result",
+				MALFORMED_BEHAVIORAL));
+		runner.add(new LineBenchmark("populate.world." + POPULATE_SIZE,
+				new String[] { populateWorld(POPULATE_SIZE) }));
+		runner.add(new LineBenchmark("populate.world." + POPULATE_LARGE_SIZE,
+				new String[] { populateWorld(POPULATE_LARGE_SIZE) }));
+		runner.add(new LineBenchmark("populate.world.range."
+				+ POPULATE_LARGE_SIZE, new String[] { "POPULATE WORLD WITH f[0.."
+				+ (POPULATE_LARGE_SIZE - 1) + "]" }));
+		runner.add(new ScriptBenchmark("create.wing.lines." + WING_SIZE,
+				wingLines(WING_SIZE)));
+		runner.add(new ScriptBenchmark("create.wing.count." + WING_SIZE,
+				new String[] { DEFINE_WING_BOOM,
+						"CREATE FIGHTER w COUNT " + WING_SIZE
+								+ " FROM ft WITH OLS ot BOOM bf TAILHOOK ht" }));
+
+		runner.add(new WaitStreamsBenchmark("wait.streams." + WAIT_STREAMS,
+				WAIT_STREAMS));
+		runner.add(new ScriptBenchmark("autopilot.tick." + AUTOPILOT_AIRCRAFT,
+				autopilotTick(AUTOPILOT_AIRCRAFT)));
+		runner.add(new CoalescedScriptBenchmark("autopilot.tick.coalesced."
+				+ AUTOPILOT_AIRCRAFT, autopilotTick(AUTOPILOT_AIRCRAFT)));
+
+		runner.run(filter, System.out);
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * @return POPULATE WORLD WITH followed by count identifiers
+	 */
+	private static String populateWorld(int count)
+	{
+		StringBuilder line = new StringBuilder("POPULATE WORLD WITH");
+		for (int i = 0; i < count; i++)
+			line.append(" f").append(i);
+		return line.toString();
+	}
+
+	/**
+	 * @return the lines that create count fighters with their OLS receiver,
+	 *         boom and tailhook one agent per line, as CREATE FIGHTER ...
+	 *         COUNT does in one line
+	 */
+	private static String[] wingLines(int count)
+	{
+		String[] lines = new String[1 + count * 4];
+		lines[0] = DEFINE_WING_BOOM;
+		for (int k = 1, i = 1; k <= count; k++)
+		{
+			lines[i++] = "CREATE OLS_RCV w" + k + "_ols FROM ot";
+			lines[i++] = "CREATE BOOM w" + k + "_boom FROM bf";
+			lines[i++] = "CREATE TAILHOOK w" + k + "_hook FROM ht";
+			lines[i++] = "CREATE FIGHTER w" + k + " FROM ft WITH OLS w" + k
+					+ "_ols BOOM w" + k + "_boom TAILHOOK w" + k + "_hook";
+		}
+		return lines;
+	}
+
+	/**
+	 * @return what autopilot scripts send count aircraft within one tick:
+	 *         several set-points each, of which only the last per kind
+	 *         matters, and a FORCE split over three lines
+	 */
+	private static String[] autopilotTick(int count)
+	{
+		List<String> lines = new ArrayList<String>();
+		for (int k = 1; k <= count; k++)
+		{
+			String aid = " f" + k + " ";
+			for (int i = 0; i < 3; i++)
+				lines.add("DO" + aid + "SET SPEED " + (200 + 10 * i));
+			lines.add("DO" + aid + "SET ALTITUDE 9000");
+			lines.add("DO" + aid + "SET HEADING 90 LEFT");
+			lines.add("DO" + aid + "SET ALTITUDE 12000");
+			lines.add("DO" + aid + "SET HEADING 270 RIGHT");
+			lines.add("@DO" + aid + "FORCE COORDINATES 45*30'15\"/110*30'10\"");
+			lines.add("@DO" + aid + "FORCE HEADING 180");
+			lines.add("@DO" + aid + "FORCE SPEED 320");
+		}
+		return lines.toArray(new String[lines.size()]);
+	}
+
+	/**
+	 * @return a CREATE FIGHTER with count loosely spaced tanks that only fails
+	 *         at its last token, the worst case for a backtracking matcher
+	 */
+	private static String malformedFighter(int count)
+	{
+		StringBuilder line = new StringBuilder(
+				"CREATE FIGHTER f1 FROM ft WITH OLS o1 BOOM b1 TAILHOOK h1 TANKS");
+		for (int i = 0; i < count; i++)
+			line.append("   t").append(i);
+		return line.append(" OVERRIDING o1.diameter WITH 12 !").toString();
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Parses a fixed set of lines in turn, one line per operation.
+	 */
+	private static class LineBenchmark extends A_Benchmark
+	{
+		private final String[] _lines;
+
+		private final RecordingCommandTarget _target = new RecordingCommandTarget(
+				false);
+
+		private int _next;
+
+		public LineBenchmark(String name, String[] lines)
+		{
+			super(name);
+			_lines = lines;
+		}
+
+		@Override
+		public void setUp() throws Exception
+		{
+			// fail early, and with the offending line, if a line does not
+			// parse
+			for (String line : _lines)
+				new CommandParser(_target, line).interpret();
+		}
+
+		@Override
+		public void operation() throws Exception
+		{
+			new CommandParser(_target, _lines[_next]).interpret();
+			_next = (_next + 1 == _lines.length ? 0 : _next + 1);
+		}
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Parses a whole script, all of its lines in one operation.
+	 */
+	private static class ScriptBenchmark extends A_Benchmark
+	{
+		private final String[] _lines;
+
+		private final RecordingCommandTarget _target = new RecordingCommandTarget(
+				false);
+
+		public ScriptBenchmark(String name, String[] lines)
+		{
+			super(name);
+			_lines = lines;
+		}
+
+		@Override
+		public void operation() throws Exception
+		{
+			for (String line : _lines)
+				new CommandParser(_target, line).interpret();
+		}
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Like ScriptBenchmark, but through a SetPointCoalescer that is flushed
+	 * after the script, as the clock would at the end of the tick.
+	 */
+	private static class CoalescedScriptBenchmark extends A_Benchmark
+	{
+		private final String[] _lines;
+
+		private final RecordingActionSet _target = new RecordingActionSet(false);
+
+		private final SetPointCoalescer _coalescer = new SetPointCoalescer(
+				_target);
+
+		public CoalescedScriptBenchmark(String name, String[] lines)
+		{
+			super(name);
+			_lines = lines;
+		}
+
+		@Override
+		public void setUp() throws Exception
+		{
+			operation();
+			if (_target.getCount() * 2 > _lines.length)
+				throw new IllegalStateException("script not coalesced > "
+						+ _coalescer);
+		}
+
+		@Override
+		public void operation() throws Exception
+		{
+			for (String line : _lines)
+				new CommandParser(_coalescer, line).interpret();
+			_coalescer.flush();
+		}
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Like LineBenchmark, but through a CommandCache that holds every line.
+	 */
+	private static class CachedLineBenchmark extends A_Benchmark
+	{
+		private final String[] _lines;
+
+		private final RecordingCommandTarget _target = new RecordingCommandTarget(
+				false);
+
+		private final CommandCache _cache;
+
+		private int _next;
+
+		public CachedLineBenchmark(String name, String[] lines)
+		{
+			super(name);
+			_lines = lines;
+			_cache = new CommandCache(lines.length);
+		}
+
+		@Override
+		public void setUp() throws Exception
+		{
+			for (String line : _lines)
+				_cache.interpret(_target, line);
+			if (_cache.size() != _lines.length)
+				throw new IllegalStateException("lines not cached > " + _cache);
+		}
+
+		@Override
+		public void operation() throws Exception
+		{
+			_cache.interpret(_target, _lines[_next]);
+			_next = (_next + 1 == _lines.length ? 0 : _next + 1);
+		}
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Like LineBenchmark, but into a SubmissionQueue whose worker thread
+	 * delivers to the target. Only the parsing thread is measured.
+	 */
+	private static class QueuedLineBenchmark extends A_Benchmark
+	{
+		private final String[] _lines;
+
+		private SubmissionQueue _queue;
+
+		private int _next;
+
+		public QueuedLineBenchmark(String name, String[] lines)
+		{
+			super(name);
+			_lines = lines;
+		}
+
+		@Override
+		public void setUp() throws Exception
+		{
+			_queue = new SubmissionQueue(new RecordingCommandTarget(false),
+					SubmissionQueue.DEFAULT_CAPACITY, E_Backpressure.BLOCK,
+					System.err);
+			for (String line : _lines)
+				new CommandParser(_queue, line).interpret();
+		}
+
+		@Override
+		public void operation() throws Exception
+		{
+			new CommandParser(_queue, _lines[_next]).interpret();
+			_next = (_next + 1 == _lines.length ? 0 : _next + 1);
+		}
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Runs a number of timed inputs side by side through a TimerWheel: each
+	 * stream waits a different number of ticks, then sets a speed. One
+	 * operation schedules all of them and ticks until the last is released.
+	 */
+	private static class WaitStreamsBenchmark extends A_Benchmark
+	{
+		private final TimerWheel _wheel = new TimerWheel(
+				new RecordingActionSet(false));
+
+		private final I_CommandTarget[] _streams;
+
+		private final String[] _waits;
+
+		public WaitStreamsBenchmark(String name, int streams)
+		{
+			super(name);
+			_streams = new I_CommandTarget[streams];
+			_waits = new String[streams];
+			for (int i = 0; i < streams; i++)
+			{
+				_streams[i] = _wheel.stream();
+				_waits[i] = "@WAIT " + (1 + i % 300);
+			}
+		}
+
+		@Override
+		public void operation() throws Exception
+		{
+			for (int i = 0; i < _streams.length; i++)
+			{
+				new CommandParser(_streams[i], _waits[i]).interpret();
+				new CommandParser(_streams[i], BEHAVIORAL_DO[0]).interpret();
+			}
+			while (_wheel.size() > 0)
+				_wheel.advance();
+		}
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Parses a line that must be rejected, one rejection per operation.
+	 */
+	private static class RejectBenchmark extends A_Benchmark
+	{
+		private final String _line;
+
+		private final RecordingCommandTarget _target = new RecordingCommandTarget(
+				false);
+
+		public RejectBenchmark(String name, String line)
+		{
+			super(name);
+			_line = line;
+		}
+
+		@Override
+		public void setUp() throws Exception
+		{
+			if (!reject())
+				throw new IllegalStateException("line was accepted > " + _line);
+		}
+
+		@Override
+		public void operation() throws Exception
+		{
+			reject();
+		}
+
+		private boolean reject() throws Exception
+		{
+			try
+			{
+				new CommandParser(_target, _line).interpret();
+				return false;
+			} catch (ParseException exception)
+			{
+				return true;
+			}
+		}
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Like RejectBenchmark, but through the result API that does not throw.
+	 */
+	private static class ResultBenchmark extends A_Benchmark
+	{
+		private final String _line;
+
+		private final RecordingCommandTarget _target = new RecordingCommandTarget(
+				false);
+
+		public ResultBenchmark(String name, String line)
+		{
+			super(name);
+			_line = line;
+		}
+
+		@Override
+		public void setUp() throws Exception
+		{
+			ParseResult result = CommandParser.parse(_target, _line);
+			if (result.isValid())
+				throw new IllegalStateException("line was accepted > " + _line);
+		}
+
+		@Override
+		public void operation() throws Exception
+		{
+			CommandParser.parse(_target, _line);
+		}
+	}
+}
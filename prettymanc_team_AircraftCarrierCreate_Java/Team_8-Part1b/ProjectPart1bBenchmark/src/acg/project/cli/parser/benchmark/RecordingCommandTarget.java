@@ -0,0 +1,105 @@
+package acg.project.cli.parser.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import acg.architecture.datatype.Identifier;
+import acg.project.action.command.A_Command;
+import acg.project.action.command.creational.define.A_CommandCreationalDefine;
+import acg.project.action.command.creational.define.CommandCreationalUndefine;
+import acg.project.cli.parser.I_CommandTarget;
+
+//==================================================================================================================================================================================
+/**
+ * Stand-in for the ActionSet that records what the parsers submit instead of
+ * running it. It needs no desktop, so the parsers can be measured on their
+ * own.
+ *
+ * Template definitions are remembered so that commands which look templates
+ * up (CREATE BOOM) still parse. Everything else is only counted unless the
+ * target was asked to keep the commands.
+ */
+public class RecordingCommandTarget implements I_CommandTarget
+{
+	private final Map<Identifier, A_CommandCreationalDefine> _templates = new HashMap<Identifier, A_CommandCreationalDefine>();
+
+	private final List<A_Command<?>> _commands;
+
+	private long _count;
+
+	private A_Command<?> _last;
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Constructor.
+	 *
+	 * @param keepCommands
+	 *            - true to keep every submitted command, false to only count
+	 *            them
+	 */
+	public RecordingCommandTarget(boolean keepCommands)
+	{
+		_commands = (keepCommands ? new ArrayList<A_Command<?>>() : null);
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	@Override
+	public void submit(A_Command<?> command)
+	{
+		_count++;
+		_last = command;
+
+		if (_commands != null)
+			_commands.add(command);
+
+		if (command instanceof CommandCreationalUndefine)
+			_templates.remove(((CommandCreationalUndefine) command).getID_());
+		else if (command instanceof A_CommandCreationalDefine)
+			_templates.put(((A_CommandCreationalDefine) command).getID_(),
+					(A_CommandCreationalDefine) command);
+	}
+
+	@Override
+	public A_CommandCreationalDefine getTemplate(Identifier tid)
+	{
+		return _templates.get(tid);
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------------------------------------------------------------------
+	/**
+	 * @return the number of commands submitted so far
+	 */
+	public long getCount()
+	{
+		return _count;
+	}
+
+	/**
+	 * @return the most recently submitted command, or null
+	 */
+	public A_Command<?> getLast()
+	{
+		return _last;
+	}
+
+	/**
+	 * @return the submitted commands in order, or null if they are not kept
+	 */
+	public List<A_Command<?>> getCommands()
+	{
+		return _commands;
+	}
+
+	/**
+	 * Forgets the submitted commands. Templates stay defined.
+	 */
+	public void clear()
+	{
+		_count = 0;
+		_last = null;
+		if (_commands != null)
+			_commands.clear();
+	}
+}
@@ -0,0 +1,99 @@
+package acg.project.cli.parser.benchmark;
+
+import java.util.Random;
+
+import acg.project.cli.parser.CommandParser;
+import acg.project.cli.parser.E_Backpressure;
+import acg.project.cli.parser.ShardedDispatcher;
+import acg.project.cli.parser.SubmissionQueue;
+
+/**
+ * Measures how behavioral input scales with the lanes of a ShardedDispatcher.
+ * The scenario is a large air wing (5000 aircraft by default) that receives a
+ * shuffled mix of DO and @DO lines; the commands go through a SubmissionQueue
+ * into a RecordingCommandTarget.
+ *
+ * The baseline parses the same lines on one thread straight into the queue.
+ * Then the dispatcher runs with 1, 2, 4, ... lanes up to the number of
+ * available processors, or up to the given maximum. Each run is timed until
+ * every line has been parsed and every command delivered.
+ *
+ * Usage: ShardingBenchmark [aircraft] [lines] [rounds] [max lanes]
+ */
+public class ShardingBenchmark
+{
+	private static final String[] BEHAVIORS = { "DO %s SET SPEED 300",
+			"DO %s SET ALTITUDE 12000", "DO %s SET HEADING 270 LEFT",
+			"DO %s ASK ALL", "DO %s POSITION", "@DO %s FORCE SPEED 250",
+			"@DO %s FORCE COORDINATES 45*30'15\"/110*30'10\" ALTITUDE 9000 HEADING 180 SPEED 320" };
+
+	public static void main(String[] args) throws Exception
+	{
+		int aircraft = (args.length > 0 ? Integer.parseInt(args[0]) : 5000);
+		int count = (args.length > 1 ? Integer.parseInt(args[1]) : 500000);
+		int rounds = (args.length > 2 ? Integer.parseInt(args[2]) : 5);
+		int cores = Runtime.getRuntime().availableProcessors();
+		int maxLanes = (args.length > 3 ? Integer.parseInt(args[3]) : cores);
+
+		Random random = new Random(42);
+		String[] lines = new String[count];
+		for (int i = 0; i < count; i++)
+			lines[i] = String.format(BEHAVIORS[random.nextInt(BEHAVIORS.length)],
+					"f" + (1 + random.nextInt(aircraft)));
+
+		System.out.println(aircraft + " aircraft, " + count + " lines, "
+				+ cores + " processors");
+
+		// warm-up, so the baseline does not pay for the compiler
+		run(lines, 0);
+		run(lines, maxLanes);
+
+		double baseline = best(lines, 0, rounds);
+		System.out.println(String.format("%-10s %12.0f lines/s", "1 thread",
+				baseline));
+		for (int lanes = 1; lanes <= maxLanes; lanes = (lanes * 2 > maxLanes
+				&& lanes < maxLanes ? maxLanes : lanes * 2))
+		{
+			double rate = best(lines, lanes, rounds);
+			System.out.println(String.format("%-10s %12.0f lines/s  x%.2f",
+					lanes + " lanes", rate, rate / baseline));
+		}
+	}
+
+	// @return the best rate of the rounds, in lines per second; 0 lanes is
+	// the single-threaded baseline
+	private static double best(String[] lines, int lanes, int rounds)
+	{
+		double best = 0;
+		for (int round = 0; round < rounds; round++)
+			best = Math.max(best, run(lines, lanes));
+		return best;
+	}
+
+	private static double run(String[] lines, int lanes)
+	{
+		SubmissionQueue queue = new SubmissionQueue(new RecordingCommandTarget(
+				false), SubmissionQueue.DEFAULT_CAPACITY, E_Backpressure.BLOCK,
+				System.err);
+
+		long start = System.nanoTime();
+		if (lanes == 0)
+		{
+			for (String line : lines)
+				CommandParser.parse(queue, line);
+		}
+		else
+		{
+			try (ShardedDispatcher dispatcher = new ShardedDispatcher(queue,
+					lanes, System.err))
+			{
+				for (String line : lines)
+					dispatcher.dispatch(line);
+			}
+		}
+		queue.close();
+		long elapsed = System.nanoTime() - start;
+
+		return lines.length * 1e9 / elapsed;
+	}
+}